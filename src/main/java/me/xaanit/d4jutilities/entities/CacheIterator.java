@@ -0,0 +1,66 @@
+package me.xaanit.d4jutilities.entities;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Iterates over the entries of a cache, skipping any that were removed or have expired since the iterator
+ * reached them.
+ * <br>It never throws a {@link java.util.ConcurrentModificationException ConcurrentModificationException},
+ * and may or may not show entries added after it was created. Each entry is a snapshot of its key and
+ * value when it was reached.
+ *
+ * @author Jacob (xaanit)
+ */
+final class CacheIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+  private final Iterator<CacheNode<K, V>> nodes;
+  private final Consumer<CacheNode<K, V>> remover;
+  private Map.Entry<K, V> next;
+  private CacheNode<K, V> nextNode;
+  private CacheNode<K, V> lastNode;
+
+  /**
+   * @param nodes   The Iterator over the nodes of the cache
+   * @param remover The Consumer removing a node from the cache, if it still holds it
+   */
+  CacheIterator(Iterator<CacheNode<K, V>> nodes, Consumer<CacheNode<K, V>> remover) {
+    this.nodes = nodes;
+    this.remover = remover;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (next == null && nodes.hasNext()) {
+      CacheNode<K, V> node = nodes.next();
+      if (node.isQueued() && !Expiration.isExpired(node)) {
+        next = new AbstractMap.SimpleImmutableEntry<>(node.key, node.value);
+        nextNode = node;
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public Map.Entry<K, V> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Map.Entry<K, V> entry = next;
+    lastNode = nextNode;
+    next = null;
+    nextNode = null;
+    return entry;
+  }
+
+  @Override
+  public void remove() {
+    if (lastNode == null) {
+      throw new IllegalStateException();
+    }
+    remover.accept(lastNode);
+    lastNode = null;
+  }
+}
@@ -0,0 +1,37 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * A single entry of a cache, linked into whichever {@link NodeList} its {@link EvictionQueue} keeps it in.
+ * <br>The links are only touched by the queue, under whatever lock guards it. The value and the deadlines
+ * may be read without one.
+ * <p>
+ * <p>An entry that expires is also linked into a bucket of its cache's {@link TimerWheel}, through a
+ * second set of links.
+ *
+ * @author Jacob (xaanit)
+ */
+final class CacheNode<K, V> {
+  final K key;
+  volatile V value;
+  CacheNode<K, V> prev;
+  CacheNode<K, V> next;
+  NodeList<K, V> list;
+  int weight = 1;
+  volatile long expiresAt = Expiration.NEVER;
+  volatile long writeExpiresAt = Expiration.NEVER;
+  CacheNode<K, V> wheelPrev;
+  CacheNode<K, V> wheelNext;
+  int bucket = -1;
+
+  CacheNode(K key, V value) {
+    this.key = key;
+    this.value = value;
+  }
+
+  /**
+   * Checks whether this node is still held by its queue, as it stops being once it is evicted or removed.
+   */
+  boolean isQueued() {
+    return list != null;
+  }
+}
@@ -0,0 +1,191 @@
+package me.xaanit.d4jutilities.entities;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Lists every named cache, as named through {@link FixedSizeCacheBuilder#setName(String)}, along with its
+ * statistics.
+ * <p>
+ * <p>Each named cache is also registered with the platform MBean server as
+ * {@code me.xaanit.d4jutilities:type=Cache,name=<name>}, so it can be watched from JConsole or any other
+ * JMX client. Both views read the same {@link CacheStats CacheStats} snapshots.
+ * <br>Caches are only weakly held, and are unregistered once they are collected. Naming a cache after one
+ * that is still registered replaces the older one.
+ *
+ * @author Jacob (xaanit)
+ */
+public final class CacheRegistry {
+  private static final String DOMAIN = "me.xaanit.d4jutilities";
+  private static final Map<String, Entry<?>> CACHES = new ConcurrentHashMap<>();
+
+  private CacheRegistry() {
+  }
+
+  /**
+   * Takes a snapshot of the statistics of every named cache.
+   *
+   * @return The snapshots by the names of their caches, sorted by name
+   */
+  public static Map<String, CacheStats> snapshot() {
+    Map<String, CacheStats> snapshots = new TreeMap<>();
+    for (Entry<?> entry : CACHES.values()) {
+      CacheStats stats = entry.snapshot();
+      if (stats != null) {
+        snapshots.put(entry.name, stats);
+      }
+    }
+    return Collections.unmodifiableMap(snapshots);
+  }
+
+  /**
+   * Takes a snapshot of the statistics of a named cache.
+   *
+   * @param name The name of the cache
+   *
+   * @return The snapshot, or {@code null} if there is no cache by that name
+   */
+  public static CacheStats snapshot(String name) {
+    Entry<?> entry = CACHES.get(name);
+    return entry == null ? null : entry.snapshot();
+  }
+
+  /**
+   * Registers a cache under a name.
+   *
+   * @param cache The cache to register
+   * @param stats The Function taking a snapshot of the cache. It must not hold on to the cache itself.
+   */
+  static <T> void register(String name, T cache, Function<T, CacheStats> stats) {
+    Entry<T> entry = new Entry<>(name, cache, stats);
+    Entry<?> replaced = CACHES.put(name, entry);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      if (replaced != null && server.isRegistered(replaced.objectName)) {
+        server.unregisterMBean(replaced.objectName);
+      }
+      server.registerMBean(entry, entry.objectName);
+    } catch (JMException | SecurityException e) {
+      // The cache is still listed by snapshot(), it just can not be watched over JMX.
+    }
+  }
+
+  private static ObjectName objectName(String name) {
+    String value = name.matches("[^,=:\"*?\\n]+") ? name : ObjectName.quote(name);
+    try {
+      return new ObjectName(DOMAIN + ":type=Cache,name=" + value);
+    } catch (JMException e) {
+      throw new IllegalArgumentException("Invalid cache name: " + name, e);
+    }
+  }
+
+  private static final class Entry<T> implements CacheStatsMXBean {
+    private final String name;
+    private final ObjectName objectName;
+    private final WeakReference<T> cache;
+    private final Function<T, CacheStats> stats;
+
+    Entry(String name, T cache, Function<T, CacheStats> stats) {
+      this.name = name;
+      this.objectName = objectName(name);
+      this.cache = new WeakReference<>(cache);
+      this.stats = stats;
+    }
+
+    /**
+     * Takes a snapshot of the cache, or unregisters it if it was collected.
+     *
+     * @return The snapshot, or {@code null} if the cache was collected
+     */
+    CacheStats snapshot() {
+      T held = cache.get();
+      if (held != null) {
+        return stats.apply(held);
+      }
+      if (CACHES.remove(name, this)) {
+        try {
+          ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException | SecurityException e) {
+          // Already gone.
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Takes a snapshot for a JMX attribute, which is all {@code 0} once the cache is collected.
+     */
+    private CacheStats current() {
+      CacheStats snapshot = snapshot();
+      return snapshot == null ? StatsCounter.snapshot(null, 0, 0, 1) : snapshot;
+    }
+
+    @Override
+    public long getHitCount() {
+      return current().getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+      return current().getMissCount();
+    }
+
+    @Override
+    public double getHitRate() {
+      return current().getHitRate();
+    }
+
+    @Override
+    public long getLoadSuccessCount() {
+      return current().getLoadSuccessCount();
+    }
+
+    @Override
+    public long getLoadFailureCount() {
+      return current().getLoadFailureCount();
+    }
+
+    @Override
+    public double getAverageLoadPenalty() {
+      return current().getAverageLoadPenalty();
+    }
+
+    @Override
+    public long getEvictionCount() {
+      return current().getEvictionCount();
+    }
+
+    @Override
+    public long getExpirationCount() {
+      return current().getExpirationCount();
+    }
+
+    @Override
+    public int getSize() {
+      return current().getSize();
+    }
+
+    @Override
+    public long getWeight() {
+      return current().getWeight();
+    }
+
+    @Override
+    public long getCapacity() {
+      return current().getCapacity();
+    }
+
+    @Override
+    public double getOccupancy() {
+      return current().getOccupancy();
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * A snapshot of the statistics of a {@link FixedSizeCache FixedSizeCache} or
+ * {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache}, as taken by their {@code getStats()}.
+ * <p>
+ * <p>Counts are only kept by caches built with statistics through a
+ * {@link FixedSizeCacheBuilder FixedSizeCacheBuilder}, and are {@code 0} for any other cache. The size,
+ * weight and capacity are always filled in.
+ * <br>Counts are kept since the cache was created. The difference between two snapshots gives the counts
+ * for the time in between.
+ *
+ * @author Jacob (xaanit)
+ */
+public final class CacheStats {
+  private final long hitCount;
+  private final long missCount;
+  private final long loadSuccessCount;
+  private final long loadFailureCount;
+  private final long totalLoadTime;
+  private final long evictionCount;
+  private final long expirationCount;
+  private final int size;
+  private final long weight;
+  private final long capacity;
+
+  CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount, long totalLoadTime,
+             long evictionCount, long expirationCount, int size, long weight, long capacity) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.loadSuccessCount = loadSuccessCount;
+    this.loadFailureCount = loadFailureCount;
+    this.totalLoadTime = totalLoadTime;
+    this.evictionCount = evictionCount;
+    this.expirationCount = expirationCount;
+    this.size = size;
+    this.weight = weight;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Gets the number of lookups that found their key.
+   *
+   * @return The hit count
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Gets the number of lookups that did not find their key, including those that found it expired.
+   *
+   * @return The miss count
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Gets the share of lookups that found their key.
+   *
+   * @return The hit rate, from {@code 0} to {@code 1}, or {@code 1} if there were no lookups
+   */
+  public double getHitRate() {
+    long lookups = hitCount + missCount;
+    return lookups == 0 ? 1 : (double) hitCount / lookups;
+  }
+
+  /**
+   * Gets the number of loads that finished.
+   *
+   * @return The load success count
+   */
+  public long getLoadSuccessCount() {
+    return loadSuccessCount;
+  }
+
+  /**
+   * Gets the number of loads that failed.
+   *
+   * @return The load failure count
+   */
+  public long getLoadFailureCount() {
+    return loadFailureCount;
+  }
+
+  /**
+   * Gets the total time spent loading, whether the loads finished or failed.
+   *
+   * @return The total load time, in nanoseconds
+   */
+  public long getTotalLoadTime() {
+    return totalLoadTime;
+  }
+
+  /**
+   * Gets the average time a load took.
+   *
+   * @return The average load time, in nanoseconds, or {@code 0} if nothing was loaded
+   */
+  public double getAverageLoadPenalty() {
+    long loads = loadSuccessCount + loadFailureCount;
+    return loads == 0 ? 0 : (double) totalLoadTime / loads;
+  }
+
+  /**
+   * Gets the number of entries that were evicted to make room.
+   *
+   * @return The eviction count
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Gets the number of entries that were removed because they expired.
+   *
+   * @return The expiration count
+   */
+  public long getExpirationCount() {
+    return expirationCount;
+  }
+
+  /**
+   * Gets the number of entries, including any that have expired but were not removed yet.
+   *
+   * @return The size
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the total weight of the entries, which is their number if the cache does not weigh them.
+   *
+   * @return The weight
+   */
+  public long getWeight() {
+    return weight;
+  }
+
+  /**
+   * Gets the maximum total weight of the entries, which is the size of the cache if it does not weigh them.
+   *
+   * @return The capacity
+   */
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Gets how full the cache is.
+   *
+   * @return The share of the capacity in use, from {@code 0} to {@code 1}
+   */
+  public double getOccupancy() {
+    return (double) weight / capacity;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("CacheStats{hitRate=%.3f, hits=%d, misses=%d, loads=%d, loadFailures=%d, "
+            + "averageLoadPenalty=%.0fns, evictions=%d, expirations=%d, size=%d, weight=%d/%d}",
+            getHitRate(), hitCount, missCount, loadSuccessCount, loadFailureCount, getAverageLoadPenalty(),
+            evictionCount, expirationCount, size, weight, capacity);
+  }
+}
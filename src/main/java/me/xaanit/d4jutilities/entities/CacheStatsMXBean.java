@@ -0,0 +1,35 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * The JMX view of a named cache, registered by the {@link CacheRegistry CacheRegistry} as
+ * {@code me.xaanit.d4jutilities:type=Cache,name=<name>}.
+ * <br>Every attribute is read from a fresh {@link CacheStats CacheStats} snapshot.
+ *
+ * @author Jacob (xaanit)
+ */
+public interface CacheStatsMXBean {
+
+  long getHitCount();
+
+  long getMissCount();
+
+  double getHitRate();
+
+  long getLoadSuccessCount();
+
+  long getLoadFailureCount();
+
+  double getAverageLoadPenalty();
+
+  long getEvictionCount();
+
+  long getExpirationCount();
+
+  int getSize();
+
+  long getWeight();
+
+  long getCapacity();
+
+  double getOccupancy();
+}
@@ -0,0 +1,81 @@
+package me.xaanit.d4jutilities.entities;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sweeps the expired entries out of every cache that expires entries, so their memory is given back even
+ * once nobody uses them.
+ * <p>
+ * <p>A single daemon thread, started with the first such cache, is shared by all of them. Caches are only
+ * weakly held, and are forgotten once they are collected.
+ *
+ * @author Jacob (xaanit)
+ */
+final class CacheSweeper {
+  private static final Queue<Entry<?>> CACHES = new ConcurrentLinkedQueue<>();
+  private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "D4J-Utilities CacheSweeper");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  static {
+    SWEEPER.scheduleWithFixedDelay(CacheSweeper::sweepAll, 1, 1, TimeUnit.SECONDS);
+  }
+
+  private CacheSweeper() {
+  }
+
+  /**
+   * Sweeps a cache about once a second for as long as it is reachable.
+   *
+   * @param cache The cache to sweep
+   * @param sweep The Consumer sweeping the cache. It must not hold on to the cache itself.
+   */
+  static <T> void register(T cache, Consumer<T> sweep) {
+    CACHES.add(new Entry<>(cache, sweep));
+  }
+
+  private static void sweepAll() {
+    Iterator<Entry<?>> it = CACHES.iterator();
+    while (it.hasNext()) {
+      Entry<?> entry = it.next();
+      try {
+        if (!entry.sweep()) {
+          it.remove();
+        }
+      } catch (RuntimeException e) {
+        // One broken cache must not stop the others from being swept.
+      }
+    }
+  }
+
+  private static final class Entry<T> {
+    private final WeakReference<T> cache;
+    private final Consumer<T> sweep;
+
+    Entry(T cache, Consumer<T> sweep) {
+      this.cache = new WeakReference<>(cache);
+      this.sweep = sweep;
+    }
+
+    /**
+     * @return {@code false} if the cache was collected
+     */
+    boolean sweep() {
+      T held = cache.get();
+      if (held == null) {
+        return false;
+      }
+      sweep.accept(held);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,825 @@
+package me.xaanit.d4jutilities.entities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * A thread-safe version of {@link FixedSizeCache FixedSizeCache}, for caches shared by handlers on many
+ * threads.
+ * <p>
+ * <p>Lookups go straight to a {@link ConcurrentHashMap ConcurrentHashMap} and never wait on a lock. The
+ * capacity is split across a number of stripes, each ordering its own keys by the
+ * {@link EvictionPolicy EvictionPolicy} of the cache behind its own lock, so adds only contend with adds of
+ * keys in the same stripe.
+ * <br>Policies that learn from reads only record a read if its stripe is not locked at that moment. Under
+ * heavy contention some reads go unrecorded, which slightly blurs the order, but never slows a read down.
+ * <p>
+ * <p>The capacity is a hard bound: the cache never holds more entries than it was created with. As each
+ * stripe evicts on its own, an entry may be evicted slightly before the cache as a whole is full.
+ * <br>A cache built with a {@link Weigher Weigher} is bounded by the total weight of all its entries instead,
+ * so any entry up to the maximum weight can be kept. A stripe that takes the cache over its maximum weight
+ * evicts its own entries first, and then the adding thread evicts from the other stripes, one at a time,
+ * until it is back under. Until then the total may briefly run over. An entry weighing more than the
+ * maximum weight is never kept, and only removes the value its key had.
+ * <br>Adding a key that is already in the cache replaces its value in place.
+ * <p>
+ * <p>Entries expire the same way as in a FixedSizeCache. An expired entry is never returned, and is removed
+ * by whichever comes first of the next lookup that finds it, the next add to its stripe, or the background
+ * thread shared by every cache.
+ * <p>
+ * <p>Statistics are recorded the same way as in a FixedSizeCache, through
+ * {@link java.util.concurrent.atomic.LongAdder LongAdder}s that threads rarely contend on.
+ * <p>
+ * <p>Missing values can be loaded through {@link #get(Object, Function)} and
+ * {@link #getAsync(Object, Function)}. However many threads miss a key at once, only one of them loads it,
+ * and the rest share its result.
+ * <p>
+ * <p>Entries can be added and removed in bulk, which groups them by stripe and locks each stripe once for
+ * its whole share of the batch. Iterating over the cache is weakly consistent: it never throws a
+ * {@link java.util.ConcurrentModificationException ConcurrentModificationException}, skips entries removed
+ * or expired since it started, and may or may not show entries added since.
+ * <p>
+ * <p>Keys may not be {@code null}.
+ *
+ * @author Jacob (xaanit)
+ */
+public class ConcurrentFixedSizeCache<K, V> implements Iterable<Map.Entry<K, V>> {
+  private final ConcurrentHashMap<K, CacheNode<K, V>> map;
+  private final Segment<K, V>[] segments;
+  private final int mask;
+  private final Weigher<? super K, ? super V> weigher;
+  private final Expiration expiration;
+  private final AtomicBoolean swept = new AtomicBoolean();
+  private final long capacity;
+  private final AtomicLong totalWeight;
+  private final StatsCounter stats;
+  private final SingleFlight<K, V> flights;
+
+  /**
+   * Constructs a new first-in-first-out {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache} with a
+   * set maximum capacity, striped for the number of available processors.
+   *
+   * @param size The size of the ConcurrentFixedSizeCache to be created.
+   */
+  public ConcurrentFixedSizeCache(int size) {
+    this(size, EvictionPolicy.FIFO);
+  }
+
+  /**
+   * Constructs a new {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache} with a set maximum
+   * capacity and {@link EvictionPolicy EvictionPolicy}, striped for the number of available processors.
+   *
+   * @param size   The size of the ConcurrentFixedSizeCache to be created.
+   * @param policy The EvictionPolicy choosing which entry to remove
+   */
+  public ConcurrentFixedSizeCache(int size, EvictionPolicy policy) {
+    this(size, Runtime.getRuntime().availableProcessors() * 4, policy);
+  }
+
+  /**
+   * Constructs a new first-in-first-out {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache} with a
+   * set maximum capacity.
+   * <p>
+   * <p>The cache uses about {@code concurrencyLevel} stripes, but never more stripes than entries.
+   *
+   * @param size             The size of the ConcurrentFixedSizeCache to be created.
+   * @param concurrencyLevel The number of threads expected to add entries at the same time
+   */
+  public ConcurrentFixedSizeCache(int size, int concurrencyLevel) {
+    this(size, concurrencyLevel, EvictionPolicy.FIFO);
+  }
+
+  /**
+   * Constructs a new {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache} with a set maximum
+   * capacity and {@link EvictionPolicy EvictionPolicy}.
+   * <p>
+   * <p>The cache uses about {@code concurrencyLevel} stripes, but never more stripes than entries.
+   *
+   * @param size             The size of the ConcurrentFixedSizeCache to be created.
+   * @param concurrencyLevel The number of threads expected to add entries at the same time
+   * @param policy           The EvictionPolicy choosing which entry to remove
+   */
+  public ConcurrentFixedSizeCache(int size, int concurrencyLevel, EvictionPolicy policy) {
+    this(size, null, concurrencyLevel, policy, Expiration.NONE, null);
+  }
+
+  /**
+   * @param size    The maximum number of entries, or their maximum total weight if there is a weigher
+   * @param weigher The Weigher of the entries, or {@code null} to bound their number
+   * @param stats   The StatsCounter of the cache, or {@code null} to record no statistics
+   */
+  @SuppressWarnings("unchecked")
+  ConcurrentFixedSizeCache(long size, Weigher<? super K, ? super V> weigher, int concurrencyLevel,
+                           EvictionPolicy policy, Expiration expiration, StatsCounter stats) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Cache size must be at least 1!");
+    }
+    if (concurrencyLevel < 1) {
+      throw new IllegalArgumentException("Concurrency level must be at least 1!");
+    }
+    if (policy == null) {
+      throw new IllegalArgumentException("Eviction policy can not be null!");
+    }
+    int stripes = 1;
+    while (stripes < concurrencyLevel && stripes * 2 <= size) {
+      stripes *= 2;
+    }
+    this.map = new ConcurrentHashMap<>(weigher == null ? (int) Math.min(size, 1 << 16) : 16, 0.75f, stripes);
+    this.segments = (Segment<K, V>[]) new Segment<?, ?>[stripes];
+    this.mask = stripes - 1;
+    this.weigher = weigher;
+    this.expiration = expiration;
+    this.capacity = size;
+    this.totalWeight = weigher == null ? null : new AtomicLong();
+    this.stats = stats;
+    this.flights = new SingleFlight<>(stats);
+    for (int i = 0; i < stripes; i++) {
+      long share = size / stripes + (i < size % stripes ? 1 : 0);
+      EvictionQueue<K, V> queue = policy.newQueue(share, weigher == null ? (int) share : 0);
+      // Counted stripes are each bounded by their share, weighed ones all by the same total.
+      segments[i] = weigher == null
+              ? new Segment<>(share, queue, expiration, stats, null)
+              : new Segment<>(size, queue, expiration, stats, totalWeight);
+    }
+    if (expiration != Expiration.NONE) {
+      startSweeping();
+    }
+  }
+
+  /**
+   * Adds a key and pairs it with a value.
+   * <p>
+   * <p>If the key is new and its stripe of this
+   * {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache} is full, this removes the key of that stripe
+   * chosen by the {@link EvictionPolicy EvictionPolicy}. Under {@link EvictionPolicy#TINY_LFU TINY_LFU},
+   * that may be the new key itself.
+   * <br>The entry expires by the time-to-live of the cache, if it has one.
+   *
+   * @param key   The key to pair with the value
+   * @param value The value to pair with the key
+   */
+  public void add(K key, V value) {
+    Objects.requireNonNull(key, "key");
+    int index = indexFor(key);
+    segments[index].add(map, key, value, FixedSizeCache.weigh(weigher, key, value), 0);
+    shedWeight(index);
+  }
+
+  /**
+   * Adds a key and pairs it with a value, which expires once a time-to-live has passed.
+   * <p>
+   * <p>This works the same as {@link #add(Object, Object)}, except the time-to-live replaces that of the
+   * cache for this entry. If the cache expires entries that are not read for a while, this one still does.
+   *
+   * @param key   The key to pair with the value
+   * @param value The value to pair with the key
+   * @param ttl   How long the entry lives, which must be positive
+   * @param unit  The TimeUnit of the ttl
+   */
+  public void add(K key, V value, long ttl, TimeUnit unit) {
+    Objects.requireNonNull(key, "key");
+    long ttlNanos = Expiration.toNanos(ttl, unit);
+    int weight = FixedSizeCache.weigh(weigher, key, value);
+    startSweeping();
+    int index = indexFor(key);
+    segments[index].add(map, key, value, weight, ttlNanos);
+    shedWeight(index);
+  }
+
+  /**
+   * Checks if this {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache} contains a key.
+   *
+   * @param key The key to check for
+   *
+   * @return {@code true} if the ConcurrentFixedSizeCache contains a key, else {@code false}
+   */
+  public boolean contains(K key) {
+    CacheNode<K, V> node = map.get(key);
+    return node != null && !Expiration.isExpired(node);
+  }
+
+  /**
+   * Retrieves a value from this {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache} corresponding to
+   * the specified key, or {@code null} if there is no corresponding value to be retrieved.
+   *
+   * @param key The key to retrieve a value for
+   *
+   * @return A value corresponding to the provided key, or {@code null} if there was no
+   * value to get.
+   */
+  public V get(K key) {
+    CacheNode<K, V> node = find(key);
+    return node == null ? null : node.value;
+  }
+
+  /**
+   * Retrieves a value from this {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache} corresponding to
+   * the specified key, loading and adding it if there is none.
+   * <p>
+   * <p>Only one load of a key runs at a time. Threads asking for a key while it is being loaded wait for
+   * that load instead of starting their own. The loader runs on the thread that started the load, without
+   * any stripe being locked.
+   * <br>If the loader returns {@code null}, nothing is added. If it throws, nothing is added, and every
+   * thread waiting on the load gets the exception.
+   *
+   * @param key    The key to retrieve a value for
+   * @param loader The Function loading the value of a key that is not in the cache
+   *
+   * @return A value corresponding to the provided key, or {@code null} if it loaded as {@code null}
+   */
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    return SingleFlight.join(getAsync(key, k -> CompletableFuture.completedFuture(loader.apply(k))));
+  }
+
+  /**
+   * Retrieves a value from this {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache} corresponding to
+   * the specified key, loading and adding it if there is none, without waiting for the load.
+   * <p>
+   * <p>This works the same as {@link #get(Object, Function)}, except the loader starts the load and
+   * returns a CompletionStage of it, such as the CompletableFuture of a request.
+   *
+   * @param key    The key to retrieve a value for
+   * @param loader The Function starting the load of a key that is not in the cache
+   *
+   * @return A CompletableFuture completed with the value once it is loaded, or right away if it was in the
+   * cache
+   */
+  public CompletableFuture<V> getAsync(K key,
+                                       Function<? super K, ? extends CompletionStage<? extends V>> loader) {
+    return flights.get(key, loader, this::find, this::peek, this::add);
+  }
+
+  /**
+   * Gets the node of a key if it is in the cache and has not expired, without counting as a lookup.
+   */
+  private CacheNode<K, V> peek(K key) {
+    CacheNode<K, V> node = map.get(key);
+    return node == null || Expiration.isExpired(node) ? null : node;
+  }
+
+  private CacheNode<K, V> find(K key) {
+    CacheNode<K, V> node = map.get(key);
+    if (node == null) {
+      segmentFor(key).recordMiss(key);
+      if (stats != null) {
+        stats.recordMiss();
+      }
+      return null;
+    }
+    if (Expiration.isExpired(node)) {
+      Segment<K, V> segment = segmentFor(key);
+      segment.tryExpire(map, node);
+      segment.recordMiss(key);
+      if (stats != null) {
+        stats.recordMiss();
+      }
+      return null;
+    }
+    expiration.onRead(node);
+    segmentFor(key).recordAccess(node);
+    if (stats != null) {
+      stats.recordHit();
+    }
+    return node;
+  }
+
+  /**
+   * Retrieves the values of several keys from this {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache}.
+   * <br>Each key counts as a lookup, the same as with {@link #get(Object)}.
+   *
+   * @param keys The keys to retrieve values for
+   *
+   * @return The values of the keys that are in the cache, by key
+   */
+  public Map<K, V> getAll(Iterable<? extends K> keys) {
+    Map<K, V> found = new HashMap<>();
+    for (K key : keys) {
+      CacheNode<K, V> node = find(key);
+      if (node != null) {
+        found.put(key, node.value);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Adds every key and value of a map to this {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache},
+   * locking each stripe once for all of its keys.
+   * <br>Each entry is added the same as with {@link #add(Object, Object)}.
+   *
+   * @param entries The keys and values to add
+   */
+  public void addAll(Map<? extends K, ? extends V> entries) {
+    List<Write<K, V>>[] groups = newGroups();
+    for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+      K key = Objects.requireNonNull(entry.getKey(), "key");
+      V value = entry.getValue();
+      group(groups, key).add(new Write<>(key, value, FixedSizeCache.weigh(weigher, key, value)));
+    }
+    for (int i = 0; i < groups.length; i++) {
+      if (groups[i] != null) {
+        segments[i].addAll(map, groups[i]);
+      }
+    }
+    shedWeight(0);
+  }
+
+  /**
+   * Removes a key and its value from this {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache}.
+   *
+   * @param key The key to remove
+   *
+   * @return The value that was paired with the key, or {@code null} if there was none
+   */
+  public V remove(K key) {
+    return segmentFor(key).remove(map, key, null);
+  }
+
+  /**
+   * Removes several keys and their values from this
+   * {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache}, locking each stripe once for all of its keys.
+   *
+   * @param keys The keys to remove
+   *
+   * @return The number of keys that were removed
+   */
+  public int removeAll(Iterable<? extends K> keys) {
+    List<K>[] groups = newGroups();
+    for (K key : keys) {
+      group(groups, key).add(key);
+    }
+    int removed = 0;
+    for (int i = 0; i < groups.length; i++) {
+      if (groups[i] != null) {
+        removed += segments[i].removeAll(map, groups[i]);
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Removes every entry matching a predicate, such as every entry of a guild, locking each stripe once.
+   * <br>The predicate is tested once without a lock to find the candidates, and again with their stripe
+   * locked, so an entry whose value changes in between is only removed if it still matches.
+   *
+   * @param filter The BiPredicate receiving each key and value, returning {@code true} to remove them
+   *
+   * @return The number of entries that were removed
+   */
+  public int removeIf(BiPredicate<? super K, ? super V> filter) {
+    List<CacheNode<K, V>>[] groups = newGroups();
+    for (CacheNode<K, V> node : map.values()) {
+      if (filter.test(node.key, node.value)) {
+        group(groups, node.key).add(node);
+      }
+    }
+    int removed = 0;
+    for (int i = 0; i < groups.length; i++) {
+      if (groups[i] != null) {
+        removed += segments[i].removeIf(map, groups[i], filter);
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Removes every entry from this {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache}.
+   * <br>Entries added while it is being cleared may or may not be removed.
+   */
+  public void clear() {
+    removeIf((key, value) -> true);
+  }
+
+  /**
+   * Iterates over the entries of this {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache}, weakly
+   * consistently.
+   * <br>Iterating does not count as using the entries. Removing through the Iterator removes the entry
+   * from the cache, unless its key was added again since.
+   *
+   * @return The Iterator over the keys and values
+   */
+  @Override
+  public Iterator<Map.Entry<K, V>> iterator() {
+    return new CacheIterator<>(map.values().iterator(), node -> segmentFor(node.key).remove(map, node.key, node));
+  }
+
+  /**
+   * Performs an action for each entry of this {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache}, the
+   * same as iterating over it.
+   *
+   * @param action The BiConsumer receiving each key and value
+   */
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Map.Entry<K, V> entry : this) {
+      action.accept(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> List<T>[] newGroups() {
+    return (List<T>[]) new List<?>[segments.length];
+  }
+
+  /**
+   * Gets the group of a batch for the stripe of a key, creating it if needed.
+   */
+  private <T> List<T> group(List<T>[] groups, K key) {
+    int index = indexFor(key);
+    if (groups[index] == null) {
+      groups[index] = new ArrayList<>();
+    }
+    return groups[index];
+  }
+
+  /**
+   * Gets the number of entries in this {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache}, including
+   * any that have expired but were not removed yet.
+   *
+   * @return The number of entries
+   */
+  public int size() {
+    return map.size();
+  }
+
+  /**
+   * Takes a snapshot of the statistics of this {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache}.
+   * <br>Only the size, weight and capacity are filled in unless it was built to record statistics. The
+   * counts are each exact, but may not all be from the same instant.
+   *
+   * @return The CacheStats
+   */
+  public CacheStats getStats() {
+    long weight = 0;
+    for (Segment<K, V> segment : segments) {
+      weight += segment.getWeight();
+    }
+    return StatsCounter.snapshot(stats, map.size(), weight, capacity);
+  }
+
+  /**
+   * Removes the entries that have expired since the last sweep from every stripe that is not busy.
+   */
+  void expireEntries() {
+    for (Segment<K, V> segment : segments) {
+      segment.tryExpireEntries(map);
+    }
+  }
+
+  /**
+   * Evicts from the stripes after the one that was added to, and then from it, until the total weight is
+   * back under the maximum, if the cache is weighed. Only one stripe is locked at a time.
+   */
+  private void shedWeight(int index) {
+    if (totalWeight == null) {
+      return;
+    }
+    for (int i = 1; i <= segments.length && totalWeight.get() > capacity; i++) {
+      segments[(index + i) & mask].shed(map);
+    }
+  }
+
+  private void startSweeping() {
+    if (!swept.get() && swept.compareAndSet(false, true)) {
+      CacheSweeper.register(this, ConcurrentFixedSizeCache::expireEntries);
+    }
+  }
+
+  private Segment<K, V> segmentFor(K key) {
+    return segments[indexFor(key)];
+  }
+
+  private int indexFor(K key) {
+    int h = key.hashCode();
+    // ConcurrentHashMap picks its bins from the low bits, so stripes are picked from the high ones.
+    h *= 0x9E3779B9;
+    return (h >>> 16) & mask;
+  }
+
+  /**
+   * A key and value waiting to be added by a batch.
+   */
+  private static final class Write<K, V> {
+    private final K key;
+    private final V value;
+    private final int weight;
+
+    Write(K key, V value, int weight) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * A stripe of the cache, holding the {@link EvictionQueue} of the keys it is responsible for.
+   */
+  private static final class Segment<K, V> extends ReentrantLock {
+    private static final long serialVersionUID = 1L;
+
+    private final long capacity;
+    private final EvictionQueue<K, V> queue;
+    private final Expiration expiration;
+    private final StatsCounter stats;
+    private final AtomicLong total;
+    private TimerWheel<K, V> wheel;
+    private long weight = 0;
+
+    /**
+     * @param capacity The maximum weight of the stripe, or of the whole cache if the weight is shared
+     * @param total    The total weight of the whole cache, or {@code null} if each stripe is bounded on its own
+     */
+    Segment(long capacity, EvictionQueue<K, V> queue, Expiration expiration, StatsCounter stats,
+            AtomicLong total) {
+      this.capacity = capacity;
+      this.queue = queue;
+      this.expiration = expiration;
+      this.stats = stats;
+      this.total = total;
+    }
+
+    long getWeight() {
+      lock();
+      try {
+        return weight;
+      } finally {
+        unlock();
+      }
+    }
+
+    void add(ConcurrentHashMap<K, CacheNode<K, V>> map, K key, V value, int entryWeight, long ttlNanos) {
+      lock();
+      try {
+        expireEntries(map);
+        put(map, key, value, entryWeight, ttlNanos);
+      } finally {
+        unlock();
+      }
+    }
+
+    void addAll(ConcurrentHashMap<K, CacheNode<K, V>> map, List<Write<K, V>> writes) {
+      lock();
+      try {
+        expireEntries(map);
+        for (Write<K, V> write : writes) {
+          put(map, write.key, write.value, write.weight, 0);
+        }
+      } finally {
+        unlock();
+      }
+    }
+
+    private void put(ConcurrentHashMap<K, CacheNode<K, V>> map, K key, V value, int entryWeight,
+                     long ttlNanos) {
+      CacheNode<K, V> node = map.get(key);
+      if (entryWeight > capacity) {
+        // It would not fit even after evicting every other entry, so it is evicted right away instead.
+        if (node != null) {
+          unlink(map, node);
+        }
+        if (stats != null) {
+          stats.recordEviction();
+        }
+        return;
+      }
+      if (node != null) {
+        // The deadline is set before the value, so a lookup never sees the new value already expired.
+        schedule(node, ttlNanos);
+        node.value = value;
+        addWeight(entryWeight - node.weight);
+        queue.setWeight(node, entryWeight);
+        queue.access(node);
+        evict(map, null);
+        return;
+      }
+      node = new CacheNode<>(key, value);
+      node.weight = entryWeight;
+      schedule(node, ttlNanos);
+      queue.add(node);
+      addWeight(entryWeight);
+      // Published only once there is room for it, so the map never holds more than the capacity.
+      if (evict(map, node)) {
+        map.put(key, node);
+      }
+    }
+
+    /**
+     * Removes a key, if it is still paired with the expected node.
+     *
+     * @param expected The node the key must be paired with, or {@code null} for whichever it is paired with
+     *
+     * @return The value the key was paired with, or {@code null} if it was not removed or had expired
+     */
+    V remove(ConcurrentHashMap<K, CacheNode<K, V>> map, K key, CacheNode<K, V> expected) {
+      lock();
+      try {
+        CacheNode<K, V> node = map.get(key);
+        if (node == null || (expected != null && node != expected)) {
+          return null;
+        }
+        if (Expiration.isExpired(node)) {
+          expire(map, node);
+          return null;
+        }
+        unlink(map, node);
+        return node.value;
+      } finally {
+        unlock();
+      }
+    }
+
+    int removeAll(ConcurrentHashMap<K, CacheNode<K, V>> map, List<K> keys) {
+      lock();
+      try {
+        int removed = 0;
+        for (K key : keys) {
+          CacheNode<K, V> node = map.get(key);
+          if (node == null) {
+            continue;
+          }
+          if (Expiration.isExpired(node)) {
+            expire(map, node);
+          } else {
+            unlink(map, node);
+            removed++;
+          }
+        }
+        return removed;
+      } finally {
+        unlock();
+      }
+    }
+
+    int removeIf(ConcurrentHashMap<K, CacheNode<K, V>> map, List<CacheNode<K, V>> candidates,
+                 BiPredicate<? super K, ? super V> filter) {
+      lock();
+      try {
+        int removed = 0;
+        for (CacheNode<K, V> node : candidates) {
+          if (map.get(node.key) != node) {
+            continue;
+          }
+          if (Expiration.isExpired(node)) {
+            expire(map, node);
+          } else if (filter.test(node.key, node.value)) {
+            unlink(map, node);
+            removed++;
+          }
+        }
+        return removed;
+      } finally {
+        unlock();
+      }
+    }
+
+    /**
+     * Evicts until the stripe is back under its capacity.
+     *
+     * @return {@code false} if the node that was just added was evicted itself
+     */
+    private boolean evict(ConcurrentHashMap<K, CacheNode<K, V>> map, CacheNode<K, V> added) {
+      boolean admitted = true;
+      while (isOver()) {
+        if (total != null && weight - (admitted && added != null ? added.weight : 0) <= 0) {
+          // Nothing else in this stripe to evict, so the other stripes make room instead.
+          break;
+        }
+        CacheNode<K, V> victim = evictOne();
+        if (victim == added) {
+          admitted = false;
+        } else {
+          map.remove(victim.key, victim);
+        }
+      }
+      return admitted;
+    }
+
+    /**
+     * Evicts from this stripe until the whole cache is back under its maximum weight, or the stripe is
+     * empty, for a cache whose stripes share their weight.
+     */
+    void shed(ConcurrentHashMap<K, CacheNode<K, V>> map) {
+      lock();
+      try {
+        while (isOver() && weight > 0) {
+          CacheNode<K, V> victim = evictOne();
+          map.remove(victim.key, victim);
+        }
+      } finally {
+        unlock();
+      }
+    }
+
+    private boolean isOver() {
+      return (total == null ? weight : total.get()) > capacity;
+    }
+
+    private CacheNode<K, V> evictOne() {
+      CacheNode<K, V> victim = queue.evict();
+      addWeight(-victim.weight);
+      if (wheel != null) {
+        wheel.unschedule(victim);
+      }
+      if (stats != null) {
+        stats.recordEviction();
+      }
+      return victim;
+    }
+
+    private void addWeight(long delta) {
+      weight += delta;
+      if (total != null) {
+        total.addAndGet(delta);
+      }
+    }
+
+    private void schedule(CacheNode<K, V> node, long ttlNanos) {
+      if (expiration != Expiration.NONE || ttlNanos > 0 || node.bucket >= 0) {
+        expiration.onWrite(node, Expiration.now(), ttlNanos);
+        if (wheel == null) {
+          wheel = new TimerWheel<>();
+        }
+        wheel.schedule(node);
+      }
+    }
+
+    void tryExpire(ConcurrentHashMap<K, CacheNode<K, V>> map, CacheNode<K, V> node) {
+      if (tryLock()) {
+        try {
+          if (node.isQueued() && Expiration.isExpired(node)) {
+            expire(map, node);
+          }
+        } finally {
+          unlock();
+        }
+      }
+    }
+
+    void tryExpireEntries(ConcurrentHashMap<K, CacheNode<K, V>> map) {
+      if (tryLock()) {
+        try {
+          expireEntries(map);
+        } finally {
+          unlock();
+        }
+      }
+    }
+
+    private void expireEntries(ConcurrentHashMap<K, CacheNode<K, V>> map) {
+      if (wheel != null) {
+        wheel.expire(node -> expire(map, node));
+      }
+    }
+
+    private void expire(ConcurrentHashMap<K, CacheNode<K, V>> map, CacheNode<K, V> node) {
+      unlink(map, node);
+      if (stats != null) {
+        stats.recordExpiration();
+      }
+    }
+
+    private void unlink(ConcurrentHashMap<K, CacheNode<K, V>> map, CacheNode<K, V> node) {
+      queue.remove(node);
+      addWeight(-node.weight);
+      map.remove(node.key, node);
+      if (wheel != null) {
+        wheel.unschedule(node);
+      }
+    }
+
+    void recordAccess(CacheNode<K, V> node) {
+      if (queue.recordsReads() && tryLock()) {
+        try {
+          if (node.isQueued()) {
+            queue.access(node);
+          }
+        } finally {
+          unlock();
+        }
+      }
+    }
+
+    void recordMiss(Object key) {
+      if (queue.recordsReads() && tryLock()) {
+        try {
+          queue.miss(key);
+        } finally {
+          unlock();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package me.xaanit.d4jutilities.entities;
+
+import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.api.events.IListener;
+import sx.blah.discord.handle.impl.events.guild.GuildCreateEvent;
+import sx.blah.discord.handle.impl.events.guild.GuildEmojisUpdateEvent;
+import sx.blah.discord.handle.impl.events.guild.GuildEvent;
+import sx.blah.discord.handle.impl.events.guild.GuildLeaveEvent;
+import sx.blah.discord.handle.impl.obj.ReactionEmoji;
+import sx.blah.discord.handle.obj.IEmoji;
+import sx.blah.discord.handle.obj.IGuild;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of every custom {@link IEmoji} of every {@link IGuild} an {@link IDiscordClient} is in, by ID.
+ * <p>
+ * <p>Looking up an emoji by ID otherwise means asking every guild in turn. The index is built once per
+ * client, shared by everything using it, and kept up to date as guilds are joined and left and as their
+ * emojis change.
+ *
+ * @author Jacob (xaanit)
+ */
+public class EmojiIndex implements IListener<GuildEvent> {
+  private static final Map<IDiscordClient, EmojiIndex> INDEXES = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final Map<Long, IEmoji> emojis = new ConcurrentHashMap<>();
+
+  private EmojiIndex(IDiscordClient client) {
+    client.getDispatcher().registerListener(this);
+    for (IGuild guild : client.getGuilds()) {
+      addAll(guild.getEmojis());
+    }
+  }
+
+  /**
+   * Gets the index of the provided {@link IDiscordClient}, building it the first time.
+   *
+   * @param client The client
+   *
+   * @return The EmojiIndex of the client
+   */
+  public static EmojiIndex of(IDiscordClient client) {
+    return INDEXES.computeIfAbsent(client, EmojiIndex::new);
+  }
+
+  /**
+   * Gets a custom emoji by its ID.
+   *
+   * @param id The ID of the emoji
+   *
+   * @return The emoji, or {@code null} if it is not in any guild of the client
+   */
+  public IEmoji getEmoji(long id) {
+    return emojis.get(id);
+  }
+
+  /**
+   * Resolves an emoji the way they are given to menus: either a unicode emoji, or the ID of a custom emoji.
+   * <br>An ID that is not in any guild of the client is treated like a unicode emoji.
+   *
+   * @param emoji The unicode emoji or ID
+   *
+   * @return The {@link ReactionEmoji ReactionEmoji}
+   */
+  public ReactionEmoji resolve(String emoji) {
+    IEmoji custom = isID(emoji) ? emojis.get(Long.parseUnsignedLong(emoji)) : null;
+    return custom == null ? ReactionEmoji.of(emoji) : ReactionEmoji.of(custom);
+  }
+
+  /**
+   * Gets the number of custom emojis in the index.
+   *
+   * @return The number of emojis
+   */
+  public int size() {
+    return emojis.size();
+  }
+
+  @Override
+  public void handle(GuildEvent event) {
+    if (event instanceof GuildEmojisUpdateEvent) {
+      GuildEmojisUpdateEvent update = (GuildEmojisUpdateEvent) event;
+      removeAll(update.getOldEmojis());
+      addAll(update.getNewEmojis());
+    } else if (event instanceof GuildCreateEvent) {
+      addAll(event.getGuild().getEmojis());
+    } else if (event instanceof GuildLeaveEvent) {
+      removeAll(event.getGuild().getEmojis());
+    }
+  }
+
+  private void addAll(List<IEmoji> list) {
+    for (IEmoji emoji : list) {
+      emojis.put(emoji.getLongID(), emoji);
+    }
+  }
+
+  private void removeAll(List<IEmoji> list) {
+    for (IEmoji emoji : list) {
+      emojis.remove(emoji.getLongID());
+    }
+  }
+
+  /**
+   * Checks whether a String is a snowflake ID, without relying on an exception when it is not.
+   */
+  private static boolean isID(String s) {
+    if (s.isEmpty() || s.length() > 19) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+}
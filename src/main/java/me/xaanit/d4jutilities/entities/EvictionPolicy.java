@@ -0,0 +1,62 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * How a {@link FixedSizeCache FixedSizeCache} or {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache}
+ * chooses which entry to evict once it is full.
+ * <br>Every policy takes O(1) time per operation.
+ *
+ * @author Jacob (xaanit)
+ */
+public enum EvictionPolicy {
+  /**
+   * Evicts the entry that was added first, however much it is used.
+   * <br>Reads cost nothing extra, which makes this the best fit for entries that are only useful for a
+   * while after being added.
+   */
+  FIFO {
+    @Override
+    <K, V> EvictionQueue<K, V> newQueue(long capacity, int expectedEntries) {
+      return new FifoQueue<>();
+    }
+  },
+  /**
+   * Evicts the entry that was used the longest time ago.
+   */
+  LRU {
+    @Override
+    <K, V> EvictionQueue<K, V> newQueue(long capacity, int expectedEntries) {
+      return new LruQueue<>();
+    }
+  },
+  /**
+   * Evicts the entry that was used the fewest times, breaking ties by recency.
+   * <br>Counts are never forgotten, so entries that were popular once can outstay ones that are popular now.
+   */
+  LFU {
+    @Override
+    <K, V> EvictionQueue<K, V> newQueue(long capacity, int expectedEntries) {
+      return new LfuQueue<>();
+    }
+  },
+  /**
+   * Evicts by recency, but only admits a new entry over an older one if it is estimated to be used more
+   * often recently, in the style of W-TinyLFU.
+   * <br>This usually gives the best hit rate for lookups that favour some keys over others, such as users
+   * and messages.
+   */
+  TINY_LFU {
+    @Override
+    <K, V> EvictionQueue<K, V> newQueue(long capacity, int expectedEntries) {
+      return new TinyLfuQueue<>(capacity, expectedEntries);
+    }
+  };
+
+  /**
+   * Creates the queue implementing this policy for a cache, or a stripe of one, holding up to
+   * {@code capacity} worth of entries.
+   *
+   * @param capacity        The total weight of the entries, which is their number if they are not weighed
+   * @param expectedEntries About how many entries it will hold
+   */
+  abstract <K, V> EvictionQueue<K, V> newQueue(long capacity, int expectedEntries);
+}
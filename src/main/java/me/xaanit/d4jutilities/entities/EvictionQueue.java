@@ -0,0 +1,66 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * Decides which entry of a cache to evict, as chosen through an {@link EvictionPolicy}.
+ * <p>
+ * <p>A queue only orders the {@link CacheNode}s it is given, while the cache keeps its own map and size.
+ * It is not thread-safe: a cache shared between threads must hold a lock around every call.
+ *
+ * @author Jacob (xaanit)
+ */
+abstract class EvictionQueue<K, V> {
+
+  /**
+   * Adds a node for a key that was not in the cache.
+   */
+  abstract void add(CacheNode<K, V> node);
+
+  /**
+   * Records that a node was read or had its value replaced.
+   */
+  void access(CacheNode<K, V> node) {
+  }
+
+  /**
+   * Records that a key was looked up, but was not in the cache.
+   */
+  void miss(Object key) {
+  }
+
+  /**
+   * Removes a node the cache no longer holds.
+   */
+  void remove(CacheNode<K, V> node) {
+    node.list.remove(node);
+  }
+
+  /**
+   * Changes the weight of a node that is in the queue, as its value was replaced.
+   */
+  void setWeight(CacheNode<K, V> node, int weight) {
+    node.list.weight += weight - node.weight;
+    node.weight = weight;
+  }
+
+  /**
+   * Removes and returns the node to evict, which may be the node that was just added.
+   * <br>Only called while the queue holds at least one node.
+   */
+  abstract CacheNode<K, V> evict();
+
+  /**
+   * Checks whether {@link #access(CacheNode)} and {@link #miss(Object)} do anything, so a cache can skip
+   * locking on reads when they do not.
+   */
+  boolean recordsReads() {
+    return true;
+  }
+
+  /**
+   * Spreads the hash of a key, which may be {@code null}.
+   */
+  static int hash(Object key) {
+    int h = key == null ? 0 : key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
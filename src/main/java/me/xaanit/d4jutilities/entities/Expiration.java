@@ -0,0 +1,79 @@
+package me.xaanit.d4jutilities.entities;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When the entries of a cache expire, as set through a {@link FixedSizeCacheBuilder}.
+ * <p>
+ * <p>Each entry has a deadline, held by its {@link CacheNode}. An entry expires at its write deadline,
+ * set from the time-to-live it was added with or the cache's own, or once it has not been read for the
+ * cache's expire-after-access time, whichever comes first. Reading an entry pushes its deadline back, but
+ * never past its write deadline.
+ * <p>
+ * <p>Times are in nanoseconds from when this class was loaded, so they never wrap around.
+ *
+ * @author Jacob (xaanit)
+ */
+final class Expiration {
+  static final long NEVER = Long.MAX_VALUE;
+  static final Expiration NONE = new Expiration(0, 0);
+  private static final long ORIGIN = System.nanoTime();
+
+  private final long writeNanos;
+  private final long accessNanos;
+
+  /**
+   * @param writeNanos  How long entries live after being written, or {@code 0} for as long as they are kept
+   * @param accessNanos How long entries live after being read or written, or {@code 0} for no limit
+   */
+  Expiration(long writeNanos, long accessNanos) {
+    this.writeNanos = writeNanos;
+    this.accessNanos = accessNanos;
+  }
+
+  static long now() {
+    return System.nanoTime() - ORIGIN;
+  }
+
+  static long toNanos(long duration, TimeUnit unit) {
+    if (duration <= 0) {
+      throw new IllegalArgumentException("Time to live must be positive!");
+    }
+    if (unit == null) {
+      throw new IllegalArgumentException("Time unit can not be null!");
+    }
+    return unit.toNanos(duration);
+  }
+
+  /**
+   * Checks whether a node has expired, without looking at the clock if it never does.
+   */
+  static boolean isExpired(CacheNode<?, ?> node) {
+    long expiresAt = node.expiresAt;
+    return expiresAt != NEVER && expiresAt <= now();
+  }
+
+  /**
+   * Sets the deadlines of a node that was just written.
+   *
+   * @param ttlNanos The time-to-live the node was added with, or {@code 0} to use the cache's
+   */
+  void onWrite(CacheNode<?, ?> node, long now, long ttlNanos) {
+    long write = after(now, ttlNanos > 0 ? ttlNanos : writeNanos);
+    node.writeExpiresAt = write;
+    node.expiresAt = accessNanos > 0 ? Math.min(write, after(now, accessNanos)) : write;
+  }
+
+  /**
+   * Pushes back the deadline of a node that was just read, if reads do that.
+   */
+  void onRead(CacheNode<?, ?> node) {
+    if (accessNanos > 0) {
+      node.expiresAt = Math.min(node.writeExpiresAt, after(now(), accessNanos));
+    }
+  }
+
+  private static long after(long now, long nanos) {
+    return nanos <= 0 || nanos >= NEVER - now ? NEVER : now + nanos;
+  }
+}
@@ -0,0 +1,25 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * Evicts the entry that was added first. Reading or replacing an entry does not change its place.
+ *
+ * @author Jacob (xaanit)
+ */
+class FifoQueue<K, V> extends EvictionQueue<K, V> {
+  final NodeList<K, V> nodes = new NodeList<>();
+
+  @Override
+  void add(CacheNode<K, V> node) {
+    nodes.addLast(node);
+  }
+
+  @Override
+  CacheNode<K, V> evict() {
+    return nodes.pollFirst();
+  }
+
+  @Override
+  boolean recordsReads() {
+    return false;
+  }
+}
@@ -1,26 +1,69 @@
 package me.xaanit.d4jutilities.entities;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
 
 /**
- * A simple first-in-first-out key-value storage that uses a {@link HashMap HashMap} to
- * store keys and values while simultaneously registering the keys to an array to maintain a specified
- * maximum capacity.
+ * A simple key-value storage that uses a {@link HashMap HashMap} to store keys and values while
+ * maintaining a specified maximum capacity.
  * <p>
  * <p>As new elements are inserted into the cache, older ones may be removed as a result of the cache
- * being at the maximum capacity set at instantiation.
+ * being at the maximum capacity set at instantiation. Which ones are removed is decided by the
+ * {@link EvictionPolicy EvictionPolicy} of the cache, which is first-in-first-out by default.
+ * <br>Every key is held exactly once, however many times it is added, so the capacity is always the
+ * number of distinct keys the cache can hold.
+ * <br>A cache built with a {@link Weigher Weigher} through a {@link FixedSizeCacheBuilder FixedSizeCacheBuilder}
+ * is bounded by the total weight of its entries instead, such as about how many bytes they take.
  * <p>
+ * <p>Entries can also be made to expire, either all of them through a
+ * {@link FixedSizeCacheBuilder FixedSizeCacheBuilder}, or one at a time through
+ * {@link #add(Object, Object, long, TimeUnit)}. An expired entry is never returned, and is removed when it
+ * is next looked up, when the cache is next added to, or by a background thread shared by every cache,
+ * whichever comes first. Caches that never expire anything are not touched by that thread.
+ * <p>
+ * <p>A cache built with statistics through a FixedSizeCacheBuilder counts its hits, misses, loads,
+ * evictions and expirations, as returned by {@link #getStats()}. Naming the cache also lists it in the
+ * {@link CacheRegistry CacheRegistry} and over JMX.
+ * <p>
+ * <p>Missing values can be loaded through {@link #get(Object, Function)} and
+ * {@link #getAsync(Object, Function)}, which only ever run one load of a key at a time.
+ * <p>
+ * <p>Entries can be added, retrieved and removed in bulk, which locks the cache once for the whole batch.
+ * Iterating over the cache goes over a snapshot of its entries taken when the iterator was created,
+ * skipping any that were removed or have expired since.
+ * <p>
+ * <p>This is not thread-safe, and takes no locks, the same as the HashMap it is built on. Once it can hold
+ * entries that expire, or has loaded a value through {@link #getAsync(Object, Function)}, every method locks
+ * it instead, as the background thread or the thread finishing a load may then change it at any time. Use a
+ * {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache} for a cache shared between threads.
  *
  * @author Michael Ritter
  * @since 1.3
  * @editor Jacob (xaanit)
  */
-public class FixedSizeCache<K, V> {
+public class FixedSizeCache<K, V> implements Iterable<Map.Entry<K, V>> {
 
-  private final Map<K, V> map;
-  private final K[] keys;
-  private int currIndex = 0;
+  private final Map<K, CacheNode<K, V>> map;
+  private final EvictionQueue<K, V> queue;
+  private final long capacity;
+  private final Weigher<? super K, ? super V> weigher;
+  private final Expiration expiration;
+  private final StatsCounter stats;
+  private final SingleFlight<K, V> flights;
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile boolean locking;
+  private TimerWheel<K, V> wheel;
+  private long weight = 0;
 
   /**
    * Constructs a new {@link me.xaanit.d4jutilities.entities.FixedSizeCache FixedSizeCache}
@@ -33,18 +76,55 @@ public class FixedSizeCache<K, V> {
    * @param size The size of the FixedSizeCache to be created.
    */
   public FixedSizeCache(int size) {
+    this(size, EvictionPolicy.FIFO);
+  }
+
+  /**
+   * Constructs a new {@link me.xaanit.d4jutilities.entities.FixedSizeCache FixedSizeCache}
+   * with a set maximum capacity, evicting elements by the provided {@link EvictionPolicy EvictionPolicy}
+   * if the maximum size is already being occupied.
+   *
+   * @param size   The size of the FixedSizeCache to be created.
+   * @param policy The EvictionPolicy choosing which element to remove
+   */
+  public FixedSizeCache(int size, EvictionPolicy policy) {
+    this(size, null, policy, Expiration.NONE, null);
+  }
+
+  /**
+   * @param capacity The maximum number of entries, or their maximum total weight if there is a weigher
+   * @param weigher  The Weigher of the entries, or {@code null} to bound their number
+   * @param stats    The StatsCounter of the cache, or {@code null} to record no statistics
+   */
+  FixedSizeCache(long capacity, Weigher<? super K, ? super V> weigher, EvictionPolicy policy,
+                 Expiration expiration, StatsCounter stats) {
     this.map = new HashMap<>();
-    if (size < 1) {
+    if (capacity < 1) {
       throw new IllegalArgumentException("Cache size must be at least 1!");
     }
-    this.keys = (K[]) new Object[size];
+    if (policy == null) {
+      throw new IllegalArgumentException("Eviction policy can not be null!");
+    }
+    this.capacity = capacity;
+    this.weigher = weigher;
+    this.queue = policy.newQueue(capacity, weigher == null ? (int) capacity : 0);
+    this.expiration = expiration;
+    this.stats = stats;
+    this.flights = new SingleFlight<>(stats);
+    this.locking = expiration != Expiration.NONE;
   }
 
   /**
    * Adds a key and pairs it with a value.
    * <p>
    * <p>If this {@link me.xaanit.d4jutilities.entities.FixedSizeCache FixedSizeCache}
-   * is already at maximum occupation, this will remove the oldest element.
+   * is already at maximum occupation, this will remove the element chosen by its
+   * {@link EvictionPolicy EvictionPolicy}, which is the oldest one by default. A weighed cache removes as
+   * many as it takes to get back under its maximum weight. An entry weighing more than the maximum weight is
+   * never kept, and only removes the value its key had.
+   * <br>If the key is already in the cache, its value is replaced in place instead. Under
+   * {@link EvictionPolicy#FIFO FIFO}, it keeps its place in line.
+   * <br>The entry expires by the time-to-live of the cache, if it has one.
    * <p>
    * <p><b>NOTE:</b> Any inner workings of {@link HashMap#put(Object, Object)
    * HashMap#put(Object, Object)} <b>still apply</b> when using this method!
@@ -56,12 +136,87 @@ public class FixedSizeCache<K, V> {
    * @see HashMap#put(Object, Object) HashMap#put(Object, Object)
    */
   public void add(K key, V value) {
-    if (keys[currIndex] != null) {
-      map.remove(keys[currIndex]);
+    boolean locked = lock();
+    try {
+      put(key, value, 0);
+    } finally {
+      unlock(locked);
+    }
+  }
+
+  /**
+   * Adds a key and pairs it with a value, which expires once a time-to-live has passed.
+   * <p>
+   * <p>This works the same as {@link #add(Object, Object)}, except the time-to-live replaces that of the
+   * cache for this entry. If the cache expires entries that are not read for a while, this one still does.
+   *
+   * @param key   The key to pair with the value
+   * @param value The value to pair with the key
+   * @param ttl   How long the entry lives, which must be positive
+   * @param unit  The TimeUnit of the ttl
+   */
+  public void add(K key, V value, long ttl, TimeUnit unit) {
+    long ttlNanos = Expiration.toNanos(ttl, unit);
+    lock.lock();
+    try {
+      // The background thread can reach the cache from now on.
+      locking = true;
+      put(key, value, ttlNanos);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void put(K key, V value, long ttlNanos) {
+    int entryWeight = weigh(weigher, key, value);
+    expireEntries();
+    CacheNode<K, V> node = map.get(key);
+    if (entryWeight > capacity) {
+      // It would not fit even after evicting every other entry, so it is evicted right away instead.
+      if (node != null) {
+        unlink(node);
+      }
+      if (stats != null) {
+        stats.recordEviction();
+      }
+      return;
+    }
+    if (node != null) {
+      node.value = value;
+      weight += entryWeight - node.weight;
+      queue.setWeight(node, entryWeight);
+      queue.access(node);
+    } else {
+      node = new CacheNode<>(key, value);
+      node.weight = entryWeight;
+      weight += entryWeight;
+      queue.add(node);
+      map.put(key, node);
+    }
+    if (expiration != Expiration.NONE || ttlNanos > 0 || node.bucket >= 0) {
+      expiration.onWrite(node, Expiration.now(), ttlNanos);
+      wheel().schedule(node);
+    }
+    while (weight > capacity) {
+      discard(queue.evict());
+      if (stats != null) {
+        stats.recordEviction();
+      }
     }
-    map.put(key, value);
-    keys[currIndex] = key;
-    currIndex = (currIndex + 1) % keys.length;
+  }
+
+  /**
+   * Weighs an entry, as {@code 1} if there is no weigher.
+   */
+  static <K, V> int weigh(Weigher<? super K, ? super V> weigher, K key, V value) {
+    if (weigher == null) {
+      return 1;
+    }
+    int weight = weigher.weigh(key, value);
+    if (weight < 0) {
+      throw new IllegalArgumentException("Weigher returned a negative weight!");
+    }
+    return weight;
   }
 
   /**
@@ -79,7 +234,17 @@ public class FixedSizeCache<K, V> {
    * @see HashMap#containsKey(Object) HashMap#containsKey(Object)
    */
   public boolean contains(K key) {
-    return map.containsKey(key);
+    boolean locked = lock();
+    try {
+      CacheNode<K, V> node = map.get(key);
+      if (node != null && Expiration.isExpired(node)) {
+        expire(node);
+        return false;
+      }
+      return node != null;
+    } finally {
+      unlock(locked);
+    }
   }
 
   /**
@@ -99,6 +264,379 @@ public class FixedSizeCache<K, V> {
    * @see HashMap#get(Object) HashMap#get(Object)
    */
   public V get(K key) {
-    return map.get(key);
+    CacheNode<K, V> node = lookup(key);
+    return node == null ? null : node.value;
+  }
+
+  /**
+   * Retrieves a value from this {@link me.xaanit.d4jutilities.entities.FixedSizeCache FixedSizeCache}
+   * corresponding to the specified key, loading and adding it if there is none.
+   * <p>
+   * <p>Only one load of a key runs at a time. Anyone asking for a key while it is being loaded waits for
+   * that load instead of starting their own. The loader runs on the thread that started the load, without
+   * the cache being locked.
+   * <br>If the loader returns {@code null}, nothing is added. If it throws, nothing is added, and everyone
+   * waiting on the load gets the exception.
+   *
+   * @param key    The key to retrieve a value for, which can not be {@code null}
+   * @param loader The Function loading the value of a key that is not in the cache
+   *
+   * @return A value corresponding to the provided key, or {@code null} if it loaded as {@code null}
+   */
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    // The load finishes before this returns, so its value is added on this thread.
+    return SingleFlight.join(flights.get(key, k -> CompletableFuture.completedFuture(loader.apply(k)),
+            this::lookup, this::peek, this::add));
+  }
+
+  /**
+   * Retrieves a value from this {@link me.xaanit.d4jutilities.entities.FixedSizeCache FixedSizeCache}
+   * corresponding to the specified key, loading and adding it if there is none, without waiting for the
+   * load.
+   * <p>
+   * <p>This works the same as {@link #get(Object, Function)}, except the loader starts the load and
+   * returns a CompletionStage of it, such as the CompletableFuture of a request.
+   * <br>The value is added from whichever thread finishes the load, so from then on this cache locks itself
+   * for every method, the same as once it can hold entries that expire.
+   *
+   * @param key    The key to retrieve a value for, which can not be {@code null}
+   * @param loader The Function starting the load of a key that is not in the cache
+   *
+   * @return A CompletableFuture completed with the value once it is loaded, or right away if it was in the
+   * cache
+   */
+  public CompletableFuture<V> getAsync(K key,
+                                       Function<? super K, ? extends CompletionStage<? extends V>> loader) {
+    // Set before the load starts, so the thread finishing it always adds the value under the lock.
+    locking = true;
+    return flights.get(key, loader, this::lookup, this::peek, this::add);
+  }
+
+  /**
+   * Gets the node of a key if it is in the cache and has not expired, without counting as a lookup.
+   */
+  private CacheNode<K, V> peek(K key) {
+    boolean locked = lock();
+    try {
+      CacheNode<K, V> node = map.get(key);
+      return node == null || Expiration.isExpired(node) ? null : node;
+    } finally {
+      unlock(locked);
+    }
+  }
+
+  private CacheNode<K, V> lookup(K key) {
+    boolean locked = lock();
+    try {
+      return find(key);
+    } finally {
+      unlock(locked);
+    }
+  }
+
+  private CacheNode<K, V> find(K key) {
+    CacheNode<K, V> node = map.get(key);
+    if (node != null && Expiration.isExpired(node)) {
+      expire(node);
+      node = null;
+    }
+    if (node == null) {
+      queue.miss(key);
+      if (stats != null) {
+        stats.recordMiss();
+      }
+      return null;
+    }
+    queue.access(node);
+    expiration.onRead(node);
+    if (stats != null) {
+      stats.recordHit();
+    }
+    return node;
+  }
+
+  /**
+   * Retrieves the values of several keys from this {@link me.xaanit.d4jutilities.entities.FixedSizeCache
+   * FixedSizeCache}, locking it at most once for all of them.
+   * <br>Each key counts as a lookup, the same as with {@link #get(Object)}.
+   *
+   * @param keys The keys to retrieve values for
+   *
+   * @return The values of the keys that are in the cache, by key
+   */
+  public Map<K, V> getAll(Iterable<? extends K> keys) {
+    Map<K, V> found = new HashMap<>();
+    boolean locked = lock();
+    try {
+      for (K key : keys) {
+        CacheNode<K, V> node = find(key);
+        if (node != null) {
+          found.put(key, node.value);
+        }
+      }
+    } finally {
+      unlock(locked);
+    }
+    return found;
+  }
+
+  /**
+   * Adds every key and value of a map, locking this
+   * {@link me.xaanit.d4jutilities.entities.FixedSizeCache FixedSizeCache} at most once for all of them.
+   * <br>Each entry is added the same as with {@link #add(Object, Object)}, in the order of the map, so a
+   * map larger than the cache only leaves its last entries.
+   *
+   * @param entries The keys and values to add
+   */
+  public void addAll(Map<? extends K, ? extends V> entries) {
+    boolean locked = lock();
+    try {
+      for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+        put(entry.getKey(), entry.getValue(), 0);
+      }
+    } finally {
+      unlock(locked);
+    }
+  }
+
+  /**
+   * Removes a key and its value from this {@link me.xaanit.d4jutilities.entities.FixedSizeCache
+   * FixedSizeCache}.
+   *
+   * @param key The key to remove
+   *
+   * @return The value that was paired with the key, or {@code null} if there was none
+   */
+  public V remove(K key) {
+    boolean locked = lock();
+    try {
+      CacheNode<K, V> node = map.get(key);
+      if (node == null) {
+        return null;
+      }
+      if (Expiration.isExpired(node)) {
+        expire(node);
+        return null;
+      }
+      unlink(node);
+      return node.value;
+    } finally {
+      unlock(locked);
+    }
+  }
+
+  /**
+   * Removes several keys and their values, locking this
+   * {@link me.xaanit.d4jutilities.entities.FixedSizeCache FixedSizeCache} at most once for all of them.
+   *
+   * @param keys The keys to remove
+   *
+   * @return The number of keys that were removed
+   */
+  public int removeAll(Iterable<? extends K> keys) {
+    int removed = 0;
+    boolean locked = lock();
+    try {
+      for (K key : keys) {
+        CacheNode<K, V> node = map.get(key);
+        if (node == null) {
+          continue;
+        }
+        if (Expiration.isExpired(node)) {
+          expire(node);
+        } else {
+          unlink(node);
+          removed++;
+        }
+      }
+    } finally {
+      unlock(locked);
+    }
+    return removed;
+  }
+
+  /**
+   * Removes every entry matching a predicate, such as every entry of a guild.
+   * <br>Entries are tested while the cache is locked, so the predicate must not use the cache.
+   *
+   * @param filter The BiPredicate receiving each key and value, returning {@code true} to remove them
+   *
+   * @return The number of entries that were removed
+   */
+  public int removeIf(BiPredicate<? super K, ? super V> filter) {
+    List<CacheNode<K, V>> expired = new ArrayList<>();
+    List<CacheNode<K, V>> matched = new ArrayList<>();
+    boolean locked = lock();
+    try {
+      for (CacheNode<K, V> node : map.values()) {
+        if (Expiration.isExpired(node)) {
+          expired.add(node);
+        } else if (filter.test(node.key, node.value)) {
+          matched.add(node);
+        }
+      }
+      expired.forEach(this::expire);
+      for (CacheNode<K, V> node : matched) {
+        unlink(node);
+      }
+    } finally {
+      unlock(locked);
+    }
+    return matched.size();
+  }
+
+  /**
+   * Removes every entry from this {@link me.xaanit.d4jutilities.entities.FixedSizeCache FixedSizeCache}.
+   */
+  public void clear() {
+    boolean locked = lock();
+    try {
+      for (CacheNode<K, V> node : new ArrayList<>(map.values())) {
+        unlink(node);
+      }
+    } finally {
+      unlock(locked);
+    }
+  }
+
+  /**
+   * Iterates over the entries of this {@link me.xaanit.d4jutilities.entities.FixedSizeCache FixedSizeCache}
+   * as they were when this is called, skipping any that were removed or have expired since.
+   * <br>Iterating does not count as using the entries. Removing through the Iterator removes the entry
+   * from the cache, unless its key was added again since.
+   *
+   * @return The Iterator over the keys and values
+   */
+  @Override
+  public Iterator<Map.Entry<K, V>> iterator() {
+    List<CacheNode<K, V>> nodes;
+    boolean locked = lock();
+    try {
+      nodes = new ArrayList<>(map.values());
+    } finally {
+      unlock(locked);
+    }
+    return new CacheIterator<>(nodes.iterator(), this::removeNode);
+  }
+
+  /**
+   * Performs an action for each entry of this {@link me.xaanit.d4jutilities.entities.FixedSizeCache
+   * FixedSizeCache}, the same as iterating over it.
+   *
+   * @param action The BiConsumer receiving each key and value
+   */
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Map.Entry<K, V> entry : this) {
+      action.accept(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Gets the number of entries in this {@link me.xaanit.d4jutilities.entities.FixedSizeCache
+   * FixedSizeCache}, including any that have expired but were not removed yet.
+   *
+   * @return The number of entries
+   */
+  public int size() {
+    boolean locked = lock();
+    try {
+      return map.size();
+    } finally {
+      unlock(locked);
+    }
+  }
+
+  /**
+   * Takes a snapshot of the statistics of this {@link me.xaanit.d4jutilities.entities.FixedSizeCache
+   * FixedSizeCache}.
+   * <br>Only the size, weight and capacity are filled in unless it was built to record statistics.
+   *
+   * @return The CacheStats
+   */
+  public CacheStats getStats() {
+    boolean locked = lock();
+    try {
+      return StatsCounter.snapshot(stats, map.size(), weight, capacity);
+    } finally {
+      unlock(locked);
+    }
+  }
+
+  /**
+   * Removes the entries that have expired since the last sweep, if any ever expire.
+   * <br>Called by the background thread and before every add. It only locks the cache once it can hold
+   * entries that expire, which is also the only time there is anything to sweep.
+   */
+  void expireEntries() {
+    if (wheel == null) {
+      return;
+    }
+    boolean locked = lock();
+    try {
+      wheel.expire(this::expire);
+    } finally {
+      unlock(locked);
+    }
+  }
+
+  /**
+   * Locks the cache if it can hold entries that expire.
+   *
+   * @return Whether it was locked, to be passed to {@link #unlock(boolean)}
+   */
+  private boolean lock() {
+    if (!locking) {
+      return false;
+    }
+    lock.lock();
+    return true;
+  }
+
+  private void unlock(boolean locked) {
+    if (locked) {
+      lock.unlock();
+    }
+  }
+
+  private TimerWheel<K, V> wheel() {
+    if (wheel == null) {
+      wheel = new TimerWheel<>();
+      CacheSweeper.register(this, FixedSizeCache::expireEntries);
+    }
+    return wheel;
+  }
+
+  private void removeNode(CacheNode<K, V> node) {
+    boolean locked = lock();
+    try {
+      if (map.get(node.key) == node) {
+        unlink(node);
+      }
+    } finally {
+      unlock(locked);
+    }
+  }
+
+  private void expire(CacheNode<K, V> node) {
+    unlink(node);
+    if (stats != null) {
+      stats.recordExpiration();
+    }
+  }
+
+  private void unlink(CacheNode<K, V> node) {
+    queue.remove(node);
+    discard(node);
+  }
+
+  /**
+   * Forgets a node that its queue no longer holds.
+   */
+  private void discard(CacheNode<K, V> node) {
+    map.remove(node.key);
+    weight -= node.weight;
+    if (wheel != null) {
+      wheel.unschedule(node);
+    }
   }
 }
\ No newline at end of file
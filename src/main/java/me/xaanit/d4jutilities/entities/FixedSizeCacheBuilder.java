@@ -0,0 +1,200 @@
+package me.xaanit.d4jutilities.entities;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a {@link FixedSizeCache FixedSizeCache} or {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache}
+ * whose entries expire, or which is bounded by the weight of its entries.
+ * <p>
+ * <p>A cache must be given either a size or a maximum weight, but not both. By default, nothing expires
+ * and entries are evicted first-in-first-out.
+ * <br>Caches can also record statistics, and be named to be listed in the
+ * {@link CacheRegistry CacheRegistry} and over JMX.
+ * <br>Caches with a time-to-live are swept by a single background thread shared by every cache, so quiet
+ * caches give their memory back without each needing a thread of their own.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ *
+ * @author Jacob (xaanit)
+ */
+public class FixedSizeCacheBuilder<K, V> {
+  private int size = 0;
+  private long maxWeight = 0;
+  private Weigher<? super K, ? super V> weigher;
+  private EvictionPolicy policy = EvictionPolicy.FIFO;
+  private int concurrencyLevel = Runtime.getRuntime().availableProcessors() * 4;
+  private long writeNanos = 0;
+  private long accessNanos = 0;
+  private boolean recordStats = false;
+  private String name;
+
+  /**
+   * Builds a {@link FixedSizeCache FixedSizeCache}.
+   *
+   * @return The built FixedSizeCache
+   */
+  public FixedSizeCache<K, V> build() {
+    checkBound();
+    FixedSizeCache<K, V> cache = weigher == null
+            ? new FixedSizeCache<>(size, null, policy, expiration(), stats())
+            : new FixedSizeCache<>(maxWeight, weigher, policy, expiration(), stats());
+    if (name != null) {
+      CacheRegistry.register(name, cache, FixedSizeCache::getStats);
+    }
+    return cache;
+  }
+
+  /**
+   * Builds a {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache}.
+   *
+   * @return The built ConcurrentFixedSizeCache
+   */
+  public ConcurrentFixedSizeCache<K, V> buildConcurrent() {
+    checkBound();
+    if (concurrencyLevel < 1) {
+      throw new IllegalArgumentException("Concurrency level must be at least 1");
+    }
+    ConcurrentFixedSizeCache<K, V> cache = weigher == null
+            ? new ConcurrentFixedSizeCache<>(size, null, concurrencyLevel, policy, expiration(), stats())
+            : new ConcurrentFixedSizeCache<>(maxWeight, weigher, concurrencyLevel, policy, expiration(), stats());
+    if (name != null) {
+      CacheRegistry.register(name, cache, ConcurrentFixedSizeCache::getStats);
+    }
+    return cache;
+  }
+
+  private void checkBound() {
+    if (weigher != null && size != 0) {
+      throw new IllegalArgumentException("Can not set both a size and a maximum weight");
+    }
+    if (weigher == null && size < 1) {
+      throw new IllegalArgumentException("Must set a size of at least 1, or a maximum weight");
+    }
+  }
+
+  private StatsCounter stats() {
+    return recordStats || name != null ? new StatsCounter() : null;
+  }
+
+  private Expiration expiration() {
+    return writeNanos == 0 && accessNanos == 0 ? Expiration.NONE : new Expiration(writeNanos, accessNanos);
+  }
+
+  /**
+   * Sets the maximum number of entries of the cache.
+   * <br>This can not be set along with a maximum weight.
+   *
+   * @param size The size of the cache
+   *
+   * @return This builder
+   */
+  public FixedSizeCacheBuilder<K, V> setSize(int size) {
+    this.size = size;
+    return this;
+  }
+
+  /**
+   * Bounds the cache by the total weight of its entries instead of their number.
+   * <br>The {@link EvictionPolicy EvictionPolicy} evicts as many entries as it takes to get back under the
+   * maximum weight.
+   *
+   * @param maxWeight The maximum total weight of the entries, in whatever unit the Weigher weighs in
+   * @param weigher   The Weigher of the entries
+   *
+   * @return This builder
+   */
+  public FixedSizeCacheBuilder<K, V> setMaximumWeight(long maxWeight, Weigher<? super K, ? super V> weigher) {
+    if (maxWeight < 1) {
+      throw new IllegalArgumentException("Maximum weight must be at least 1!");
+    }
+    if (weigher == null) {
+      throw new IllegalArgumentException("Weigher can not be null!");
+    }
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+    return this;
+  }
+
+  /**
+   * Sets the {@link EvictionPolicy EvictionPolicy} choosing which entry to remove once the cache is full.
+   *
+   * @param policy The EvictionPolicy
+   *
+   * @return This builder
+   */
+  public FixedSizeCacheBuilder<K, V> setPolicy(EvictionPolicy policy) {
+    if (policy == null) {
+      throw new IllegalArgumentException("Eviction policy can not be null!");
+    }
+    this.policy = policy;
+    return this;
+  }
+
+  /**
+   * Sets the number of threads expected to add entries at the same time, for a ConcurrentFixedSizeCache.
+   *
+   * @param concurrencyLevel The concurrency level
+   *
+   * @return This builder
+   */
+  public FixedSizeCacheBuilder<K, V> setConcurrencyLevel(int concurrencyLevel) {
+    this.concurrencyLevel = concurrencyLevel;
+    return this;
+  }
+
+  /**
+   * Sets how long entries live after they were last added, unless added with a time-to-live of their own.
+   *
+   * @param duration How long entries live, which must be positive
+   * @param unit     The TimeUnit of the duration
+   *
+   * @return This builder
+   */
+  public FixedSizeCacheBuilder<K, V> setExpireAfterWrite(long duration, TimeUnit unit) {
+    this.writeNanos = Expiration.toNanos(duration, unit);
+    return this;
+  }
+
+  /**
+   * Sets how long entries live after they were last read or added.
+   *
+   * @param duration How long entries live, which must be positive
+   * @param unit     The TimeUnit of the duration
+   *
+   * @return This builder
+   */
+  public FixedSizeCacheBuilder<K, V> setExpireAfterAccess(long duration, TimeUnit unit) {
+    this.accessNanos = Expiration.toNanos(duration, unit);
+    return this;
+  }
+
+  /**
+   * Sets whether the cache records statistics, as returned by its {@code getStats()}. Statistics are not
+   * recorded by default.
+   *
+   * @param recordStats {@code true} to record statistics
+   *
+   * @return This builder
+   */
+  public FixedSizeCacheBuilder<K, V> setRecordStats(boolean recordStats) {
+    this.recordStats = recordStats;
+    return this;
+  }
+
+  /**
+   * Names the cache, which then records statistics and is listed by that name in the
+   * {@link CacheRegistry CacheRegistry} and over JMX.
+   *
+   * @param name The name of the cache
+   *
+   * @return This builder
+   */
+  public FixedSizeCacheBuilder<K, V> setName(String name) {
+    if (name == null || name.isEmpty()) {
+      throw new IllegalArgumentException("Name can not be empty!");
+    }
+    this.name = name;
+    return this;
+  }
+}
@@ -0,0 +1,93 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * A count-min sketch estimating how often each key was used recently, in a fixed amount of memory.
+ * <p>
+ * <p>Each key is counted in four 4-bit counters, picked by four different hashes from a single table of
+ * {@code long}s, and its estimate is the lowest of them. Once enough uses have been counted, every counter
+ * is halved, so the estimates follow what is used now rather than what was used once.
+ *
+ * @author Jacob (xaanit)
+ */
+final class FrequencySketch {
+  private static final long[] SEEDS = {
+          0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  private long[] table = new long[0];
+  private int mask;
+  private int sampleSize;
+  private int additions = 0;
+
+  /**
+   * @param capacity The number of entries of the cache, which the table is sized for
+   */
+  FrequencySketch(int capacity) {
+    ensureCapacity(capacity);
+  }
+
+  /**
+   * Grows the table for a cache holding more entries than it was sized for, starting the counts over.
+   *
+   * @param capacity The number of entries of the cache
+   */
+  void ensureCapacity(int capacity) {
+    int size = Integer.highestOneBit(Math.max(16, Math.min(capacity, 1 << 24)) - 1) << 1;
+    if (size <= table.length) {
+      return;
+    }
+    table = new long[size];
+    mask = size - 1;
+    sampleSize = (int) Math.min(10L * Math.max(capacity, 1), Integer.MAX_VALUE);
+    additions = 0;
+  }
+
+  /**
+   * Gets the estimated number of recent uses of a key, up to 15.
+   *
+   * @param hash The spread hash of the key
+   */
+  int frequency(int hash) {
+    int start = (hash & 3) << 2;
+    int frequency = 15;
+    for (int i = 0; i < 4; i++) {
+      int count = (int) ((table[indexOf(hash, i)] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Counts a use of a key.
+   *
+   * @param hash The spread hash of the key
+   */
+  void increment(int hash) {
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int shift = (start + i) << 2;
+      if (((table[index] >>> shift) & 0xfL) != 0xfL) {
+        table[index] += 1L << shift;
+        added = true;
+      }
+    }
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions >>>= 1;
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return (int) h & mask;
+  }
+}
@@ -0,0 +1,88 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * Evicts the entry that was used the fewest times, and of those, the one used the longest time ago.
+ * <p>
+ * <p>Entries are grouped into buckets by how often they were used, and the buckets are kept in a list
+ * from the lowest count to the highest. Using an entry moves it to the next bucket up, and the entry to
+ * evict is always the first of the lowest bucket, so every operation is O(1).
+ *
+ * @author Jacob (xaanit)
+ */
+final class LfuQueue<K, V> extends EvictionQueue<K, V> {
+  private Bucket<K, V> lowest;
+
+  @Override
+  void add(CacheNode<K, V> node) {
+    if (lowest == null || lowest.frequency != 1) {
+      Bucket<K, V> bucket = new Bucket<>(1);
+      bucket.higher = lowest;
+      if (lowest != null) {
+        lowest.lower = bucket;
+      }
+      lowest = bucket;
+    }
+    lowest.addLast(node);
+  }
+
+  @Override
+  void access(CacheNode<K, V> node) {
+    Bucket<K, V> bucket = (Bucket<K, V>) node.list;
+    if (bucket.frequency == Integer.MAX_VALUE) {
+      bucket.moveToLast(node);
+      return;
+    }
+    Bucket<K, V> higher = bucket.higher;
+    if (higher == null || higher.frequency != bucket.frequency + 1) {
+      higher = new Bucket<>(bucket.frequency + 1);
+      higher.lower = bucket;
+      higher.higher = bucket.higher;
+      if (bucket.higher != null) {
+        bucket.higher.lower = higher;
+      }
+      bucket.higher = higher;
+    }
+    bucket.remove(node);
+    higher.addLast(node);
+    unlinkIfEmpty(bucket);
+  }
+
+  @Override
+  void remove(CacheNode<K, V> node) {
+    Bucket<K, V> bucket = (Bucket<K, V>) node.list;
+    bucket.remove(node);
+    unlinkIfEmpty(bucket);
+  }
+
+  @Override
+  CacheNode<K, V> evict() {
+    Bucket<K, V> bucket = lowest;
+    CacheNode<K, V> node = bucket.pollFirst();
+    unlinkIfEmpty(bucket);
+    return node;
+  }
+
+  private void unlinkIfEmpty(Bucket<K, V> bucket) {
+    if (!bucket.isEmpty()) {
+      return;
+    }
+    if (bucket.lower == null) {
+      lowest = bucket.higher;
+    } else {
+      bucket.lower.higher = bucket.higher;
+    }
+    if (bucket.higher != null) {
+      bucket.higher.lower = bucket.lower;
+    }
+  }
+
+  private static final class Bucket<K, V> extends NodeList<K, V> {
+    final int frequency;
+    Bucket<K, V> lower;
+    Bucket<K, V> higher;
+
+    Bucket(int frequency) {
+      this.frequency = frequency;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * The probing shared by the open-addressed tables of this package, such as {@link LongHashSet}, the keys of
+ * {@link LongFixedSizeCache} and the index of {@link OffHeapFixedSizeCache}.
+ * <p>
+ * <p>Each key lives in its home slot or in the first free slot after it. Removing a key moves back the keys
+ * after it instead of leaving a tombstone, so lookups never have to step over removed keys.
+ *
+ * @author Jacob (xaanit)
+ */
+final class LinearProbing {
+
+  private LinearProbing() {
+  }
+
+  /**
+   * The slots of a table, as seen by {@link #removeAt(Slots, int, int)}.
+   */
+  interface Slots {
+
+    /**
+     * Checks whether a slot holds no key.
+     */
+    boolean isFree(int slot);
+
+    /**
+     * Gets the hash of the key in a slot, whose low bits are its home slot.
+     */
+    int hash(int slot);
+
+    /**
+     * Moves the key in a slot, and anything stored with it, to another slot.
+     */
+    void move(int from, int to);
+
+    /**
+     * Empties a slot.
+     */
+    void free(int slot);
+  }
+
+  /**
+   * Mixes every bit of a value into the low bits, as the low bits of a snowflake barely change.
+   */
+  static int hash(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    return (int) value;
+  }
+
+  /**
+   * Finds the slot of a table of {@code long}s holding a non-zero value, or the empty slot it would go in.
+   * <br>Zero marks an empty slot, so the table must have at least one.
+   */
+  static int indexOf(long[] table, long value) {
+    int mask = table.length - 1;
+    int index = hash(value) & mask;
+    while (table[index] != 0 && table[index] != value) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  /**
+   * Removes the key in a slot, moving back the keys after it as needed.
+   *
+   * @param slots The Slots of the table
+   * @param index The slot of the key to remove
+   * @param mask  The size of the table minus one, which is a power of two
+   */
+  static void removeAt(Slots slots, int index, int mask) {
+    // Shift back any following key that would otherwise no longer be found past the new gap.
+    int gap = index;
+    for (int i = (gap + 1) & mask; !slots.isFree(i); i = (i + 1) & mask) {
+      int home = slots.hash(i) & mask;
+      if (((i - home) & mask) >= ((i - gap) & mask)) {
+        slots.move(i, gap);
+        gap = i;
+      }
+    }
+    slots.free(gap);
+  }
+}
@@ -0,0 +1,217 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * A version of {@link FixedSizeCache FixedSizeCache} for primitive {@code long} keys, such as snowflake
+ * IDs.
+ * <p>
+ * <p>Keys are stored directly in an open-addressed {@code long[]}, with their values in a parallel array,
+ * and the order they were added in is kept in a ring of keys. The cache holds no boxed {@link Long Long}s
+ * or entries, so adding, checking and getting allocate nothing, and each entry takes 32 to 56 bytes
+ * instead of the hundred or so of a boxed key, its map entry and its node.
+ * <br>All of it is allocated up front for the maximum capacity, so the cache never resizes.
+ * <p>
+ * <p>Entries are evicted first-in-first-out. Adding a key that is already in the cache replaces its value
+ * in place, and it keeps its place in line.
+ * <p>
+ * <p>A cache constructed with a name records hits, misses and evictions, as returned by {@link #getStats()},
+ * and is listed by that name in the {@link CacheRegistry CacheRegistry} and over JMX.
+ * <p>
+ * <p>This is not thread-safe.
+ *
+ * @author Jacob (xaanit)
+ */
+public class LongFixedSizeCache<V> {
+  private final long[] keys;
+  private final Object[] values;
+  private final long[] order;
+  private int head = 0;
+  private int size = 0;
+  private boolean hasZero = false;
+  private Object zeroValue;
+  private final StatsCounter stats;
+  private final LinearProbing.Slots slots = new LinearProbing.Slots() {
+    @Override
+    public boolean isFree(int slot) {
+      return keys[slot] == 0;
+    }
+
+    @Override
+    public int hash(int slot) {
+      return LinearProbing.hash(keys[slot]);
+    }
+
+    @Override
+    public void move(int from, int to) {
+      keys[to] = keys[from];
+      values[to] = values[from];
+    }
+
+    @Override
+    public void free(int slot) {
+      keys[slot] = 0;
+      values[slot] = null;
+    }
+  };
+
+  /**
+   * Constructs a new {@link LongFixedSizeCache LongFixedSizeCache} with a set maximum capacity.
+   *
+   * @param size The size of the LongFixedSizeCache to be created.
+   */
+  public LongFixedSizeCache(int size) {
+    this(size, null);
+  }
+
+  /**
+   * Constructs a new {@link LongFixedSizeCache LongFixedSizeCache} with a set maximum capacity, which records
+   * statistics and is listed by name in the {@link CacheRegistry CacheRegistry}.
+   *
+   * @param size The size of the LongFixedSizeCache to be created.
+   * @param name The name of the cache
+   */
+  public LongFixedSizeCache(int size, String name) {
+    if (name != null && name.isEmpty()) {
+      throw new IllegalArgumentException("Name can not be empty!");
+    }
+    if (size < 1) {
+      throw new IllegalArgumentException("Cache size must be at least 1!");
+    }
+    if (size > 1 << 29) {
+      throw new IllegalArgumentException("Cache size can not be more than 2^29!");
+    }
+    // At least twice the capacity, so probes stay short even when the cache is full.
+    int capacity = Integer.highestOneBit(size * 2 - 1) << 1;
+    this.keys = new long[capacity];
+    this.values = new Object[capacity];
+    this.order = new long[size];
+    this.stats = name == null ? null : new StatsCounter();
+    if (name != null) {
+      CacheRegistry.register(name, this, LongFixedSizeCache::getStats);
+    }
+  }
+
+  /**
+   * Adds a key and pairs it with a value.
+   * <p>
+   * <p>If this {@link LongFixedSizeCache LongFixedSizeCache} is already at maximum occupation, this will
+   * remove the oldest key.
+   * <br>If the key is already in the cache, its value is replaced in place instead, and it keeps its place in
+   * line.
+   *
+   * @param key   The key to pair with the value
+   * @param value The value to pair with the key
+   */
+  public void add(long key, V value) {
+    if (key == 0) {
+      if (!hasZero) {
+        if (size == order.length) {
+          evict();
+        }
+        hasZero = true;
+        append(0);
+      }
+      zeroValue = value;
+      return;
+    }
+    int index = LinearProbing.indexOf(keys, key);
+    if (keys[index] == key) {
+      values[index] = value;
+      return;
+    }
+    if (size == order.length) {
+      evict();
+      index = LinearProbing.indexOf(keys, key);
+    }
+    keys[index] = key;
+    values[index] = value;
+    append(key);
+  }
+
+  /**
+   * Checks if this {@link LongFixedSizeCache LongFixedSizeCache} contains a key.
+   *
+   * @param key The key to check for
+   *
+   * @return {@code true} if the LongFixedSizeCache contains a key, else {@code false}
+   */
+  public boolean contains(long key) {
+    if (key == 0) {
+      return hasZero;
+    }
+    return keys[LinearProbing.indexOf(keys, key)] == key;
+  }
+
+  /**
+   * Retrieves a value from this {@link LongFixedSizeCache LongFixedSizeCache} corresponding to the
+   * specified key, or {@code null} if there is no corresponding value to be retrieved.
+   *
+   * @param key The key to retrieve a value for
+   *
+   * @return A value corresponding to the provided key, or {@code null} if there was no
+   * value to get.
+   */
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    Object value;
+    boolean found;
+    if (key == 0) {
+      found = hasZero;
+      value = zeroValue;
+    } else {
+      int index = LinearProbing.indexOf(keys, key);
+      found = keys[index] == key;
+      value = values[index];
+    }
+    if (stats != null) {
+      if (found) {
+        stats.recordHit();
+      } else {
+        stats.recordMiss();
+      }
+    }
+    return (V) value;
+  }
+
+  /**
+   * Gets the number of entries in this {@link LongFixedSizeCache LongFixedSizeCache}.
+   *
+   * @return The number of entries
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Takes a snapshot of the statistics of this {@link LongFixedSizeCache LongFixedSizeCache}.
+   * <br>Unless the cache was named, only the size, weight and capacity are filled in, and each entry weighs
+   * {@code 1}.
+   *
+   * @return The CacheStats
+   */
+  public CacheStats getStats() {
+    return StatsCounter.snapshot(stats, size, size, order.length);
+  }
+
+  private void append(long key) {
+    order[(head + size) % order.length] = key;
+    size++;
+  }
+
+  /**
+   * Removes the oldest key, which is always in the cache as every key is in the ring exactly once.
+   */
+  private void evict() {
+    long key = order[head];
+    head = (head + 1) % order.length;
+    size--;
+    if (stats != null) {
+      stats.recordEviction();
+    }
+    if (key == 0) {
+      hasZero = false;
+      zeroValue = null;
+      return;
+    }
+    LinearProbing.removeAt(slots, LinearProbing.indexOf(keys, key), keys.length - 1);
+  }
+}
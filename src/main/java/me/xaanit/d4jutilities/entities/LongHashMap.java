@@ -0,0 +1,187 @@
+package me.xaanit.d4jutilities.entities;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive {@code long}s, such as snowflake IDs, to values.
+ * <p>
+ * <p>Keys are stored directly in an open-addressed {@code long[]}, with their values in a parallel array,
+ * so the map holds no boxed {@link Long Long}s or entries, and getting a value allocates nothing.
+ * <p>
+ * <p>This is not thread-safe. A map that is no longer modified may be read from any number of threads.
+ *
+ * @param <V> The type of the values
+ *
+ * @author Jacob (xaanit)
+ */
+public class LongHashMap<V> {
+  private static final int MIN_CAPACITY = 8;
+
+  private long[] keys;
+  private Object[] values;
+  private int size = 0;
+  private boolean hasZero = false;
+  private Object zeroValue;
+  private final LinearProbing.Slots slots = new LinearProbing.Slots() {
+    @Override
+    public boolean isFree(int slot) {
+      return keys[slot] == 0;
+    }
+
+    @Override
+    public int hash(int slot) {
+      return LinearProbing.hash(keys[slot]);
+    }
+
+    @Override
+    public void move(int from, int to) {
+      keys[to] = keys[from];
+      values[to] = values[from];
+    }
+
+    @Override
+    public void free(int slot) {
+      keys[slot] = 0;
+      values[slot] = null;
+    }
+  };
+
+  /**
+   * Constructs an empty LongHashMap.
+   */
+  public LongHashMap() {
+    this.keys = new long[MIN_CAPACITY];
+    this.values = new Object[MIN_CAPACITY];
+  }
+
+  /**
+   * Pairs a key with a value.
+   *
+   * @param key   The key to pair with the value
+   * @param value The value to pair with the key
+   *
+   * @return The value the key was paired with before, or {@code null} if there was none
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value) {
+    if (key == 0) {
+      Object old = zeroValue;
+      if (!hasZero) {
+        hasZero = true;
+        size++;
+      }
+      zeroValue = value;
+      return (V) old;
+    }
+    int index = LinearProbing.indexOf(keys, key);
+    Object old = values[index];
+    values[index] = value;
+    if (keys[index] != key) {
+      keys[index] = key;
+      if (++size * 2 > keys.length) {
+        resize(keys.length * 2);
+      }
+    }
+    return (V) old;
+  }
+
+  /**
+   * Gets the value paired with a key.
+   *
+   * @param key The key to get the value of
+   *
+   * @return The value, or {@code null} if the key is not in the map
+   */
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    if (key == 0) {
+      return (V) zeroValue;
+    }
+    return (V) values[LinearProbing.indexOf(keys, key)];
+  }
+
+  /**
+   * Checks if a key is in the map.
+   *
+   * @param key The key to check for
+   *
+   * @return {@code true} if the map contains the key, else {@code false}
+   */
+  public boolean containsKey(long key) {
+    if (key == 0) {
+      return hasZero;
+    }
+    return keys[LinearProbing.indexOf(keys, key)] == key;
+  }
+
+  /**
+   * Removes a key and its value.
+   *
+   * @param key The key to remove
+   *
+   * @return The value the key was paired with, or {@code null} if there was none
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    if (key == 0) {
+      Object old = zeroValue;
+      if (hasZero) {
+        hasZero = false;
+        zeroValue = null;
+        size--;
+      }
+      return (V) old;
+    }
+    int index = LinearProbing.indexOf(keys, key);
+    if (keys[index] != key) {
+      return null;
+    }
+    Object old = values[index];
+    LinearProbing.removeAt(slots, index, keys.length - 1);
+    size--;
+    return (V) old;
+  }
+
+  /**
+   * Removes every key and value.
+   */
+  public void clear() {
+    Arrays.fill(keys, 0);
+    Arrays.fill(values, null);
+    size = 0;
+    hasZero = false;
+    zeroValue = null;
+  }
+
+  /**
+   * Gets the number of keys in the map.
+   *
+   * @return The number of keys
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks if the map has no keys.
+   *
+   * @return {@code true} if the map is empty, else {@code false}
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[capacity];
+    values = new Object[capacity];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int index = LinearProbing.indexOf(keys, oldKeys[i]);
+        keys[index] = oldKeys[i];
+        values[index] = oldValues[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package me.xaanit.d4jutilities.entities;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive {@code long}s, such as snowflake IDs.
+ * <p>
+ * <p>Values are stored directly in a single open-addressed {@code long[]}, so the set holds no boxed
+ * {@link Long Long}s or entries, and checking for a value allocates nothing.
+ * <p>
+ * <p>This is not thread-safe. A set that is no longer modified may be read from any number of threads.
+ *
+ * @author Jacob (xaanit)
+ */
+public class LongHashSet {
+  private static final int MIN_CAPACITY = 8;
+
+  private long[] table;
+  private int size = 0;
+  private boolean hasZero = false;
+  private final LinearProbing.Slots slots = new LinearProbing.Slots() {
+    @Override
+    public boolean isFree(int slot) {
+      return table[slot] == 0;
+    }
+
+    @Override
+    public int hash(int slot) {
+      return LinearProbing.hash(table[slot]);
+    }
+
+    @Override
+    public void move(int from, int to) {
+      table[to] = table[from];
+    }
+
+    @Override
+    public void free(int slot) {
+      table[slot] = 0;
+    }
+  };
+
+  /**
+   * Constructs an empty LongHashSet.
+   */
+  public LongHashSet() {
+    this.table = new long[MIN_CAPACITY];
+  }
+
+  /**
+   * Constructs a LongHashSet holding the same values as another.
+   *
+   * @param other The LongHashSet to copy
+   */
+  public LongHashSet(LongHashSet other) {
+    this.table = other.table.clone();
+    this.size = other.size;
+    this.hasZero = other.hasZero;
+  }
+
+  /**
+   * Adds a value.
+   *
+   * @param value The value to add
+   *
+   * @return {@code true} if the value was not already in the set
+   */
+  public boolean add(long value) {
+    if (value == 0) {
+      if (hasZero) {
+        return false;
+      }
+      hasZero = true;
+      size++;
+      return true;
+    }
+    int index = LinearProbing.indexOf(table, value);
+    if (table[index] == value) {
+      return false;
+    }
+    table[index] = value;
+    if (++size * 2 > table.length) {
+      resize(table.length * 2);
+    }
+    return true;
+  }
+
+  /**
+   * Checks if a value is in the set.
+   *
+   * @param value The value to check for
+   *
+   * @return {@code true} if the set contains the value, else {@code false}
+   */
+  public boolean contains(long value) {
+    if (value == 0) {
+      return hasZero;
+    }
+    return table[LinearProbing.indexOf(table, value)] == value;
+  }
+
+  /**
+   * Removes a value.
+   *
+   * @param value The value to remove
+   *
+   * @return {@code true} if the value was in the set
+   */
+  public boolean remove(long value) {
+    if (value == 0) {
+      if (!hasZero) {
+        return false;
+      }
+      hasZero = false;
+      size--;
+      return true;
+    }
+    int index = LinearProbing.indexOf(table, value);
+    if (table[index] != value) {
+      return false;
+    }
+    LinearProbing.removeAt(slots, index, table.length - 1);
+    size--;
+    return true;
+  }
+
+  /**
+   * Removes every value.
+   */
+  public void clear() {
+    Arrays.fill(table, 0);
+    size = 0;
+    hasZero = false;
+  }
+
+  /**
+   * Gets the number of values in the set.
+   *
+   * @return The number of values
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks if the set has no values.
+   *
+   * @return {@code true} if the set is empty, else {@code false}
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  private void resize(int capacity) {
+    long[] old = table;
+    table = new long[capacity];
+    for (long value : old) {
+      if (value != 0) {
+        table[LinearProbing.indexOf(table, value)] = value;
+      }
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * Evicts the entry that was used the longest time ago: a {@link FifoQueue} where reading or replacing an
+ * entry moves it to the back.
+ *
+ * @author Jacob (xaanit)
+ */
+final class LruQueue<K, V> extends FifoQueue<K, V> {
+
+  @Override
+  void access(CacheNode<K, V> node) {
+    nodes.moveToLast(node);
+  }
+
+  @Override
+  boolean recordsReads() {
+    return true;
+  }
+}
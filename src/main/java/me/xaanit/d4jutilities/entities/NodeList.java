@@ -0,0 +1,66 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * An intrusive doubly linked list of {@link CacheNode}s, from the first added to the last.
+ * <br>A node is in at most one list at a time, and knows which one, so every operation is O(1). The list
+ * keeps both the number of its nodes and their total weight.
+ *
+ * @author Jacob (xaanit)
+ */
+class NodeList<K, V> {
+  CacheNode<K, V> head;
+  CacheNode<K, V> tail;
+  int size = 0;
+  long weight = 0;
+
+  void addLast(CacheNode<K, V> node) {
+    node.list = this;
+    node.prev = tail;
+    node.next = null;
+    if (tail == null) {
+      head = node;
+    } else {
+      tail.next = node;
+    }
+    tail = node;
+    size++;
+    weight += node.weight;
+  }
+
+  void remove(CacheNode<K, V> node) {
+    if (node.prev == null) {
+      head = node.next;
+    } else {
+      node.prev.next = node.next;
+    }
+    if (node.next == null) {
+      tail = node.prev;
+    } else {
+      node.next.prev = node.prev;
+    }
+    node.prev = null;
+    node.next = null;
+    node.list = null;
+    size--;
+    weight -= node.weight;
+  }
+
+  void moveToLast(CacheNode<K, V> node) {
+    if (tail != node) {
+      remove(node);
+      addLast(node);
+    }
+  }
+
+  CacheNode<K, V> pollFirst() {
+    CacheNode<K, V> node = head;
+    if (node != null) {
+      remove(node);
+    }
+    return node;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+}
@@ -0,0 +1,546 @@
+package me.xaanit.d4jutilities.entities;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A version of {@link FixedSizeCache FixedSizeCache} for large serialized values, such as rendered embeds
+ * and pages of items, which keeps the values off the heap so they do not add to garbage collection pauses.
+ * <p>
+ * <p>Values are stored as bytes in direct {@link ByteBuffer ByteBuffer} slabs of 1MB each, allocated as the
+ * cache fills up. Each slab is cut into slots of a single size class, a power of two from 64 bytes to the
+ * whole slab, and a value goes into a slot of the smallest class it fits in. Once a class runs out of
+ * slots and there are no slabs left, the entry of that class chosen by the {@link EvictionPolicy
+ * EvictionPolicy} makes room, or if the class has no entries, the slab of another class is taken over.
+ * <br>The only things kept on the heap are, for each entry, its key, its slot, the length of its value and
+ * its place in line, along with an open-addressed index from each key to its entry. The slabs keep nothing
+ * on the heap for their slots, so a slab cut into thousands of small slots costs no more heap than one
+ * holding a single value.
+ * <p>
+ * <p>Values can be read back as a copy through {@link #get(Object)}, or without copying through
+ * {@link #read(Object, Function)}, which hands a read-only view of the slot to a function.
+ * <p>
+ * <p>The capacity is in bytes, rounded up to whole slabs, and includes what is lost to rounding values up
+ * to their slots. Values can not be larger than a slab. The slabs are freed once the cache is collected.
+ * <p>
+ * <p>A cache constructed with a name records hits, misses and evictions, as returned by {@link #getStats()},
+ * and is listed by that name in the {@link CacheRegistry CacheRegistry} and over JMX. Its weight is the
+ * total length of the values.
+ * <br>Every method locks the cache. Keys may not be {@code null}.
+ *
+ * @author Jacob (xaanit)
+ */
+public class OffHeapFixedSizeCache<K> {
+  private static final int SLAB_SHIFT = 20;
+  private static final int SLAB_SIZE = 1 << SLAB_SHIFT;
+  private static final int MIN_SHIFT = 6;
+  private static final int CLASSES = SLAB_SHIFT - MIN_SHIFT + 1;
+  private static final int NONE = -1;
+
+  private final Slab[] slabs;
+  private final SizeClass[] classes = new SizeClass[CLASSES];
+  private final boolean accessOrder;
+  private final StatsCounter stats;
+  private int allocatedSlabs = 0;
+  // The entries, by ID. The IDs of removed entries are chained through next until they are reused.
+  private Object[] keys = new Object[16];
+  private int[] slots = new int[16];
+  private int[] lengths = new int[16];
+  private int[] prev = new int[16];
+  private int[] next = new int[16];
+  private int entries = 0;
+  private int freeEntry = NONE;
+  private int[] index = newIndex(16);
+  private int size = 0;
+  private long bytes = 0;
+  private final LinearProbing.Slots indexSlots = new LinearProbing.Slots() {
+    @Override
+    public boolean isFree(int slot) {
+      return index[slot] == NONE;
+    }
+
+    @Override
+    public int hash(int slot) {
+      return EvictionQueue.hash(keys[index[slot]]);
+    }
+
+    @Override
+    public void move(int from, int to) {
+      index[to] = index[from];
+    }
+
+    @Override
+    public void free(int slot) {
+      index[slot] = NONE;
+    }
+  };
+
+  /**
+   * Constructs a new first-in-first-out {@link OffHeapFixedSizeCache OffHeapFixedSizeCache} with a set
+   * maximum capacity.
+   *
+   * @param capacity The number of bytes the values may take
+   */
+  public OffHeapFixedSizeCache(long capacity) {
+    this(capacity, EvictionPolicy.FIFO);
+  }
+
+  /**
+   * Constructs a new {@link OffHeapFixedSizeCache OffHeapFixedSizeCache} with a set maximum capacity and
+   * {@link EvictionPolicy EvictionPolicy}, which is either {@link EvictionPolicy#FIFO FIFO} or
+   * {@link EvictionPolicy#LRU LRU}.
+   *
+   * @param capacity The number of bytes the values may take
+   * @param policy   The EvictionPolicy choosing which entry of a size class to remove
+   */
+  public OffHeapFixedSizeCache(long capacity, EvictionPolicy policy) {
+    this(capacity, policy, null);
+  }
+
+  /**
+   * Constructs a new {@link OffHeapFixedSizeCache OffHeapFixedSizeCache} with a set maximum capacity and
+   * {@link EvictionPolicy EvictionPolicy}, which records statistics and is listed by name in the
+   * {@link CacheRegistry CacheRegistry}.
+   *
+   * @param capacity The number of bytes the values may take
+   * @param policy   The EvictionPolicy choosing which entry of a size class to remove
+   * @param name     The name of the cache
+   */
+  public OffHeapFixedSizeCache(long capacity, EvictionPolicy policy, String name) {
+    if (name != null && name.isEmpty()) {
+      throw new IllegalArgumentException("Name can not be empty!");
+    }
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Cache capacity must be at least 1 byte!");
+    }
+    if (policy != EvictionPolicy.FIFO && policy != EvictionPolicy.LRU) {
+      throw new IllegalArgumentException("Off-heap caches can only evict by FIFO or LRU!");
+    }
+    long count = (capacity + SLAB_SIZE - 1) >>> SLAB_SHIFT;
+    // Slot IDs hold the slab in their upper 15 bits.
+    if (count > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("Cache capacity can not be more than 32GB!");
+    }
+    this.slabs = new Slab[(int) count];
+    for (int i = 0; i < CLASSES; i++) {
+      classes[i] = new SizeClass();
+    }
+    this.accessOrder = policy == EvictionPolicy.LRU;
+    this.stats = name == null ? null : new StatsCounter();
+    if (name != null) {
+      CacheRegistry.register(name, this, OffHeapFixedSizeCache::getStats);
+    }
+  }
+
+  /**
+   * Adds a key and pairs it with a value.
+   * <p>
+   * <p>If there is no free slot of the size of the value, this will remove the entry of that size chosen by
+   * the {@link EvictionPolicy EvictionPolicy}, which is the oldest one by default.
+   * <br>If the key is already in the cache, its value is replaced. A value of the same size class is written
+   * over the old one in place, and under {@link EvictionPolicy#FIFO FIFO}, keeps its place in line.
+   *
+   * @param key   The key to pair with the value
+   * @param value The bytes to pair with the key
+   */
+  public void add(K key, byte[] value) {
+    add(key, ByteBuffer.wrap(value));
+  }
+
+  /**
+   * Adds a key and pairs it with the remaining bytes of a buffer, the same as {@link #add(Object, byte[])}.
+   * <br>The position of the buffer is not changed.
+   *
+   * @param key   The key to pair with the value
+   * @param value The ByteBuffer whose remaining bytes to pair with the key
+   */
+  public synchronized void add(K key, ByteBuffer value) {
+    Objects.requireNonNull(key, "key");
+    int length = value.remaining();
+    if (length > SLAB_SIZE) {
+      throw new IllegalArgumentException("Values can not be larger than 1MB!");
+    }
+    int sizeClass = classFor(length);
+    int entry = lookup(key);
+    if (entry != NONE) {
+      if (slabs[slots[entry] >>> 16].sizeClass == sizeClass) {
+        write(entry, value);
+        if (accessOrder) {
+          unlink(entry);
+          linkLast(entry);
+        }
+        return;
+      }
+      removeEntry(entry);
+    }
+    entry = newEntry(key, allocate(sizeClass));
+    write(entry, value);
+    linkLast(entry);
+    indexPut(entry);
+  }
+
+  /**
+   * Checks if this {@link OffHeapFixedSizeCache OffHeapFixedSizeCache} contains a key.
+   *
+   * @param key The key to check for
+   *
+   * @return {@code true} if the OffHeapFixedSizeCache contains a key, else {@code false}
+   */
+  public synchronized boolean contains(K key) {
+    return lookup(key) != NONE;
+  }
+
+  /**
+   * Retrieves a copy of the value from this {@link OffHeapFixedSizeCache OffHeapFixedSizeCache}
+   * corresponding to the specified key, or {@code null} if there is no corresponding value to be retrieved.
+   *
+   * @param key The key to retrieve a value for
+   *
+   * @return A copy of the bytes corresponding to the provided key, or {@code null} if there was no
+   * value to get.
+   */
+  public synchronized byte[] get(K key) {
+    int entry = access(key);
+    if (entry == NONE) {
+      return null;
+    }
+    byte[] value = new byte[lengths[entry]];
+    ByteBuffer source = slabs[slots[entry] >>> 16].buffer.duplicate();
+    source.position(offsetOf(slots[entry]));
+    source.get(value);
+    return value;
+  }
+
+  /**
+   * Reads the value from this {@link OffHeapFixedSizeCache OffHeapFixedSizeCache} corresponding to the
+   * specified key without copying it, by handing a read-only view of its bytes to a function.
+   * <br>The cache stays locked while the function runs, and the view must not be used once it returns, as
+   * its slot may be given to another value.
+   *
+   * @param key    The key to read the value of
+   * @param reader The Function receiving the view of the value, from position {@code 0} to its length
+   * @param <R>    The type of what the function reads from the value
+   *
+   * @return What the function returned, or {@code null} if there was no value to read, in which case the
+   * function is not called
+   */
+  public synchronized <R> R read(K key, Function<? super ByteBuffer, ? extends R> reader) {
+    int entry = access(key);
+    if (entry == NONE) {
+      return null;
+    }
+    int offset = offsetOf(slots[entry]);
+    ByteBuffer view = slabs[slots[entry] >>> 16].buffer.duplicate();
+    view.limit(offset + lengths[entry]);
+    view.position(offset);
+    return reader.apply(view.slice().asReadOnlyBuffer());
+  }
+
+  /**
+   * Removes a key and its value from this {@link OffHeapFixedSizeCache OffHeapFixedSizeCache}.
+   *
+   * @param key The key to remove
+   *
+   * @return {@code true} if the key was in the cache
+   */
+  public synchronized boolean remove(K key) {
+    int entry = lookup(key);
+    if (entry == NONE) {
+      return false;
+    }
+    removeEntry(entry);
+    return true;
+  }
+
+  /**
+   * Gets the number of entries in this {@link OffHeapFixedSizeCache OffHeapFixedSizeCache}.
+   *
+   * @return The number of entries
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Gets the total length of the values in this {@link OffHeapFixedSizeCache OffHeapFixedSizeCache}, not
+   * counting what is lost to rounding them up to their slots.
+   *
+   * @return The number of bytes the values take
+   */
+  public synchronized long getValueBytes() {
+    return bytes;
+  }
+
+  /**
+   * Takes a snapshot of the statistics of this {@link OffHeapFixedSizeCache OffHeapFixedSizeCache}.
+   * <br>Unless the cache was named, only the size, weight and capacity are filled in. The weight is the
+   * total length of the values, and the capacity is that of the slabs.
+   *
+   * @return The CacheStats
+   */
+  public synchronized CacheStats getStats() {
+    return StatsCounter.snapshot(stats, size, bytes, (long) slabs.length << SLAB_SHIFT);
+  }
+
+  /**
+   * Looks up the entry of a key, moving it to the back of the line if the cache is in LRU order.
+   */
+  private int access(K key) {
+    int entry = lookup(key);
+    if (stats != null) {
+      if (entry == NONE) {
+        stats.recordMiss();
+      } else {
+        stats.recordHit();
+      }
+    }
+    if (entry != NONE && accessOrder) {
+      unlink(entry);
+      linkLast(entry);
+    }
+    return entry;
+  }
+
+  private void write(int entry, ByteBuffer value) {
+    ByteBuffer target = slabs[slots[entry] >>> 16].buffer.duplicate();
+    target.position(offsetOf(slots[entry]));
+    int length = value.remaining();
+    target.put(value.duplicate());
+    bytes += length - lengths[entry];
+    lengths[entry] = length;
+  }
+
+  /**
+   * Finds a free slot of a size class, making room for it if there is none.
+   */
+  private int allocate(int sizeClass) {
+    SizeClass target = classes[sizeClass];
+    if (target.freeCount > 0) {
+      return target.free[--target.freeCount];
+    }
+    if (target.current != NONE) {
+      Slab slab = slabs[target.current];
+      if (slab.used < slab.slots) {
+        return target.current << 16 | slab.used++;
+      }
+      target.current = NONE;
+    }
+    if (allocatedSlabs < slabs.length) {
+      int s = allocatedSlabs++;
+      slabs[s] = new Slab();
+      assign(s, sizeClass);
+      return s << 16 | slabs[s].used++;
+    }
+    if (target.head != NONE) {
+      evict(target.head);
+      return target.free[--target.freeCount];
+    }
+    int s = victimSlab();
+    evictSlab(s);
+    assign(s, sizeClass);
+    return s << 16 | slabs[s].used++;
+  }
+
+  /**
+   * Picks the slab to take over for a size class that has none, which is the slab of the oldest entry of
+   * the class with the most slabs.
+   */
+  private int victimSlab() {
+    int richest = 0;
+    for (int i = 1; i < CLASSES; i++) {
+      if (classes[i].slabCount > classes[richest].slabCount) {
+        richest = i;
+      }
+    }
+    if (classes[richest].head != NONE) {
+      return slots[classes[richest].head] >>> 16;
+    }
+    for (int s = 0; s < slabs.length; s++) {
+      if (slabs[s].sizeClass == richest) {
+        return s;
+      }
+    }
+    throw new IllegalStateException("No slab to reclaim");
+  }
+
+  /**
+   * Removes every entry of a slab, and takes it away from its size class.
+   * <br>The slab does not know its entries, so this goes through all of them. Slabs are only taken over
+   * once the cache is full and a size class has no entries of its own to evict.
+   */
+  private void evictSlab(int s) {
+    for (int entry = 0; entry < entries; entry++) {
+      if (keys[entry] != null && slots[entry] >>> 16 == s) {
+        evict(entry);
+      }
+    }
+    SizeClass owner = classes[slabs[s].sizeClass];
+    int kept = 0;
+    for (int i = 0; i < owner.freeCount; i++) {
+      if (owner.free[i] >>> 16 != s) {
+        owner.free[kept++] = owner.free[i];
+      }
+    }
+    owner.freeCount = kept;
+    if (owner.current == s) {
+      owner.current = NONE;
+    }
+    owner.slabCount--;
+  }
+
+  private void assign(int s, int sizeClass) {
+    Slab slab = slabs[s];
+    slab.sizeClass = sizeClass;
+    slab.slots = SLAB_SIZE >>> (MIN_SHIFT + sizeClass);
+    slab.used = 0;
+    classes[sizeClass].slabCount++;
+    classes[sizeClass].current = s;
+  }
+
+  /**
+   * Gets an unused entry ID for a key and its slot, growing the entries if none is left.
+   */
+  private int newEntry(Object key, int slot) {
+    int entry = freeEntry;
+    if (entry != NONE) {
+      freeEntry = next[entry];
+    } else {
+      if (entries == keys.length) {
+        int capacity = entries * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        slots = Arrays.copyOf(slots, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        next = Arrays.copyOf(next, capacity);
+      }
+      entry = entries++;
+    }
+    keys[entry] = key;
+    slots[entry] = slot;
+    lengths[entry] = 0;
+    return entry;
+  }
+
+  private void evict(int entry) {
+    removeEntry(entry);
+    if (stats != null) {
+      stats.recordEviction();
+    }
+  }
+
+  private void removeEntry(int entry) {
+    int slot = slots[entry];
+    SizeClass owner = classes[slabs[slot >>> 16].sizeClass];
+    unlink(entry);
+    LinearProbing.removeAt(indexSlots, positionOf(keys[entry]), index.length - 1);
+    size--;
+    bytes -= lengths[entry];
+    if (owner.freeCount == owner.free.length) {
+      owner.free = Arrays.copyOf(owner.free, owner.free.length * 2);
+    }
+    owner.free[owner.freeCount++] = slot;
+    keys[entry] = null;
+    next[entry] = freeEntry;
+    freeEntry = entry;
+  }
+
+  private void linkLast(int entry) {
+    SizeClass owner = classes[slabs[slots[entry] >>> 16].sizeClass];
+    prev[entry] = owner.tail;
+    next[entry] = NONE;
+    if (owner.tail == NONE) {
+      owner.head = entry;
+    } else {
+      next[owner.tail] = entry;
+    }
+    owner.tail = entry;
+  }
+
+  private void unlink(int entry) {
+    SizeClass owner = classes[slabs[slots[entry] >>> 16].sizeClass];
+    if (prev[entry] == NONE) {
+      owner.head = next[entry];
+    } else {
+      next[prev[entry]] = next[entry];
+    }
+    if (next[entry] == NONE) {
+      owner.tail = prev[entry];
+    } else {
+      prev[next[entry]] = prev[entry];
+    }
+  }
+
+  private int offsetOf(int slot) {
+    return (slot & 0xFFFF) << (MIN_SHIFT + slabs[slot >>> 16].sizeClass);
+  }
+
+  /**
+   * Gets the smallest size class a value fits in.
+   */
+  private static int classFor(int length) {
+    if (length <= 1 << MIN_SHIFT) {
+      return 0;
+    }
+    return 32 - Integer.numberOfLeadingZeros(length - 1) - MIN_SHIFT;
+  }
+
+  private static int[] newIndex(int capacity) {
+    int[] index = new int[capacity];
+    Arrays.fill(index, NONE);
+    return index;
+  }
+
+  private int lookup(Object key) {
+    return index[positionOf(key)];
+  }
+
+  /**
+   * Finds the position of the index holding the entry of a key, or the empty position it would go in.
+   */
+  private int positionOf(Object key) {
+    int mask = index.length - 1;
+    int position = EvictionQueue.hash(key) & mask;
+    while (index[position] != NONE && !keys[index[position]].equals(key)) {
+      position = (position + 1) & mask;
+    }
+    return position;
+  }
+
+  private void indexPut(int entry) {
+    index[positionOf(keys[entry])] = entry;
+    if (++size * 2 > index.length) {
+      int[] old = index;
+      index = newIndex(old.length * 2);
+      for (int held : old) {
+        if (held != NONE) {
+          index[positionOf(keys[held])] = held;
+        }
+      }
+    }
+  }
+
+  /**
+   * A direct buffer cut into slots of one size class.
+   */
+  private static final class Slab {
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(SLAB_SIZE);
+    private int sizeClass = NONE;
+    private int slots;
+    private int used;
+  }
+
+  /**
+   * The slots of one size: the free ones, the slab being cut into new ones, and the entries in eviction
+   * order.
+   */
+  private static final class SizeClass {
+    private int head = NONE;
+    private int tail = NONE;
+    private int[] free = new int[8];
+    private int freeCount = 0;
+    private int current = NONE;
+    private int slabCount = 0;
+  }
+}
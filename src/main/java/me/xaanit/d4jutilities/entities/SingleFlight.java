@@ -0,0 +1,118 @@
+package me.xaanit.d4jutilities.entities;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Loads the values a cache is missing, so that only one load of a key is ever running at a time.
+ * <p>
+ * <p>Whoever misses a key first starts its load, and everyone who misses it while that load is running
+ * shares its result. A loaded value is added to the cache before the load counts as finished, so anyone
+ * missing the key afterwards finds it there. A load that fails is forgotten, and the next miss tries again.
+ * <br>A load whose value can not be added to the cache, such as when its weigher throws, fails with
+ * whatever was thrown.
+ *
+ * @author Jacob (xaanit)
+ */
+final class SingleFlight<K, V> {
+  private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+  private final StatsCounter stats;
+
+  /**
+   * @param stats The StatsCounter recording the loads, or {@code null} if the cache records no statistics
+   */
+  SingleFlight(StatsCounter stats) {
+    this.stats = stats;
+  }
+
+  /**
+   * Gets a value from the cache, or from the running load of its key, or from a new load.
+   *
+   * @param key    The key to get the value of
+   * @param loader The Function starting a load
+   * @param lookup The Function getting the node of a key from the cache, or {@code null} if it is missing
+   * @param peek   The same as {@code lookup}, but without counting as a lookup of the key
+   * @param store  The BiConsumer adding a loaded value to the cache
+   *
+   * @return A CompletableFuture completed with the value, which is not shared with anyone else
+   */
+  CompletableFuture<V> get(K key, Function<? super K, ? extends CompletionStage<? extends V>> loader,
+                           Function<K, CacheNode<K, V>> lookup, Function<K, CacheNode<K, V>> peek,
+                           BiConsumer<K, V> store) {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(loader, "loader");
+    CacheNode<K, V> node = lookup.apply(key);
+    if (node != null) {
+      return CompletableFuture.completedFuture(node.value);
+    }
+    CompletableFuture<V> flight = new CompletableFuture<>();
+    CompletableFuture<V> running = loading.putIfAbsent(key, flight);
+    if (running != null) {
+      return running.thenApply(Function.identity());
+    }
+    // A load may have added the value and finished between the lookup and claiming the key.
+    node = peek.apply(key);
+    if (node != null) {
+      loading.remove(key, flight);
+      flight.complete(node.value);
+      return flight.thenApply(Function.identity());
+    }
+    long start = System.nanoTime();
+    try {
+      CompletionStage<? extends V> stage = loader.apply(key);
+      if (stage == null) {
+        throw new NullPointerException("The loader returned null instead of a CompletionStage");
+      }
+      stage.whenComplete((value, e) -> {
+        Throwable failure = e;
+        try {
+          if (e == null && value != null) {
+            store.accept(key, value);
+          }
+        } catch (Throwable t) {
+          failure = t;
+        } finally {
+          loading.remove(key, flight);
+        }
+        if (stats != null) {
+          stats.recordLoad(failure == null, System.nanoTime() - start);
+        }
+        if (failure == null) {
+          flight.complete(value);
+        } else {
+          flight.completeExceptionally(failure);
+        }
+      });
+    } catch (RuntimeException | Error e) {
+      if (stats != null) {
+        stats.recordLoad(false, System.nanoTime() - start);
+      }
+      loading.remove(key, flight);
+      flight.completeExceptionally(e);
+    }
+    return flight.thenApply(Function.identity());
+  }
+
+  /**
+   * Waits for a load, throwing whatever it failed with as it was thrown.
+   */
+  static <V> V join(CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package me.xaanit.d4jutilities.entities;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what happens in a cache that records statistics, for its {@link CacheStats} snapshots.
+ * <br>Every count is a {@link LongAdder}, so threads recording at the same time rarely touch the same
+ * memory, and recording never waits on a lock.
+ *
+ * @author Jacob (xaanit)
+ */
+final class StatsCounter {
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder loadSuccesses = new LongAdder();
+  private final LongAdder loadFailures = new LongAdder();
+  private final LongAdder loadNanos = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder expirations = new LongAdder();
+
+  void recordHit() {
+    hits.increment();
+  }
+
+  void recordMiss() {
+    misses.increment();
+  }
+
+  void recordLoad(boolean success, long nanos) {
+    (success ? loadSuccesses : loadFailures).increment();
+    loadNanos.add(nanos);
+  }
+
+  void recordEviction() {
+    evictions.increment();
+  }
+
+  void recordExpiration() {
+    expirations.increment();
+  }
+
+  /**
+   * Takes a snapshot of the counts of a cache, which are all {@code 0} if it does not record statistics.
+   *
+   * @param counter  The StatsCounter of the cache, or {@code null} if it has none
+   * @param size     The number of entries of the cache
+   * @param weight   The total weight of the entries
+   * @param capacity The maximum total weight of the entries
+   */
+  static CacheStats snapshot(StatsCounter counter, int size, long weight, long capacity) {
+    if (counter == null) {
+      return new CacheStats(0, 0, 0, 0, 0, 0, 0, size, weight, capacity);
+    }
+    return new CacheStats(counter.hits.sum(), counter.misses.sum(), counter.loadSuccesses.sum(),
+            counter.loadFailures.sum(), counter.loadNanos.sum(), counter.evictions.sum(),
+            counter.expirations.sum(), size, weight, capacity);
+  }
+}
@@ -0,0 +1,103 @@
+package me.xaanit.d4jutilities.entities;
+
+import java.util.function.Consumer;
+
+/**
+ * Finds the expired entries of a cache, or a stripe of one, without looking at every entry.
+ * <p>
+ * <p>Nodes are hashed into a ring of buckets by their deadline, each bucket spanning about 67ms. Sweeping
+ * walks the buckets whose time has come since the last sweep, so it only looks at the nodes that may have
+ * expired, plus those due a whole turn of the ring later, which are put back.
+ * <br>A node whose deadline was pushed back by a read is put back in the bucket of its new deadline when
+ * its old one comes round, so reads never have to touch the wheel.
+ * <p>
+ * <p>It is not thread-safe: a cache shared between threads must hold a lock around every call.
+ *
+ * @author Jacob (xaanit)
+ */
+final class TimerWheel<K, V> {
+  private static final int SHIFT = 26;
+  private static final int BUCKETS = 512;
+
+  @SuppressWarnings("unchecked")
+  private final CacheNode<K, V>[] buckets = (CacheNode<K, V>[]) new CacheNode<?, ?>[BUCKETS];
+  private long cursor;
+
+  TimerWheel() {
+    this.cursor = Expiration.now() >>> SHIFT;
+  }
+
+  /**
+   * Links a node into the bucket of its deadline, moving it if it already is in one.
+   */
+  void schedule(CacheNode<K, V> node) {
+    unschedule(node);
+    long expiresAt = node.expiresAt;
+    if (expiresAt == Expiration.NEVER) {
+      return;
+    }
+    long tick = Math.max(expiresAt >>> SHIFT, cursor + 1);
+    int index = (int) (tick & (BUCKETS - 1));
+    CacheNode<K, V> head = buckets[index];
+    node.bucket = index;
+    node.wheelPrev = null;
+    node.wheelNext = head;
+    if (head != null) {
+      head.wheelPrev = node;
+    }
+    buckets[index] = node;
+  }
+
+  /**
+   * Unlinks a node the cache no longer holds, if it is in a bucket.
+   */
+  void unschedule(CacheNode<K, V> node) {
+    if (node.bucket < 0) {
+      return;
+    }
+    if (node.wheelPrev == null) {
+      buckets[node.bucket] = node.wheelNext;
+    } else {
+      node.wheelPrev.wheelNext = node.wheelNext;
+    }
+    if (node.wheelNext != null) {
+      node.wheelNext.wheelPrev = node.wheelPrev;
+    }
+    node.wheelPrev = null;
+    node.wheelNext = null;
+    node.bucket = -1;
+  }
+
+  /**
+   * Walks the buckets that came due since the last call, handing every expired node to the cache to remove
+   * after unlinking it from the wheel. Does nothing if no bucket came due.
+   *
+   * @param expired The Consumer removing an expired node from the cache
+   */
+  void expire(Consumer<CacheNode<K, V>> expired) {
+    long now = Expiration.now();
+    long tick = now >>> SHIFT;
+    if (tick <= cursor) {
+      return;
+    }
+    long from = Math.max(cursor + 1, tick - BUCKETS + 1);
+    cursor = tick;
+    for (long t = from; t <= tick; t++) {
+      int index = (int) (t & (BUCKETS - 1));
+      CacheNode<K, V> node = buckets[index];
+      buckets[index] = null;
+      while (node != null) {
+        CacheNode<K, V> next = node.wheelNext;
+        node.wheelPrev = null;
+        node.wheelNext = null;
+        node.bucket = -1;
+        if (node.expiresAt <= now) {
+          expired.accept(node);
+        } else {
+          schedule(node);
+        }
+        node = next;
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * Evicts by recency, but only lets a new entry push out an older one if it is estimated to be used more
+ * often, in the style of W-TinyLFU.
+ * <p>
+ * <p>New entries first go into a small window, about 1% of the capacity, kept in LRU order. An entry
+ * leaving the window becomes a candidate for the main space, where it has to beat the entry that would be
+ * evicted in its place on how often each was used, as estimated by a {@link FrequencySketch}. The loser is
+ * evicted. This keeps entries that are used often from being flushed out by a burst of entries that are
+ * used once, while the window still gives new entries a chance to prove themselves.
+ * <p>
+ * <p>The main space is split into a probation segment for entries that have not been used since they
+ * entered it, and a protected segment, about 80% of it, for entries that have. Entries are only ever
+ * evicted from probation, and a protected entry that falls out of use is moved back to it.
+ *
+ * @author Jacob (xaanit)
+ */
+final class TinyLfuQueue<K, V> extends EvictionQueue<K, V> {
+  private final NodeList<K, V> window = new NodeList<>();
+  private final NodeList<K, V> probation = new NodeList<>();
+  private final NodeList<K, V> protect = new NodeList<>();
+  private final long maxWindow;
+  private final long maxProtected;
+  private final FrequencySketch sketch;
+  private CacheNode<K, V> candidate;
+
+  /**
+   * @param capacity        The total weight of the cache, which is its number of entries if it is not
+   *                        weighed
+   * @param expectedEntries The number of entries the sketch is first sized for, which it grows past as
+   *                        needed
+   */
+  TinyLfuQueue(long capacity, int expectedEntries) {
+    this.maxWindow = Math.max(1, capacity / 100);
+    this.maxProtected = (capacity - maxWindow) * 4 / 5;
+    this.sketch = new FrequencySketch(expectedEntries);
+  }
+
+  @Override
+  void add(CacheNode<K, V> node) {
+    sketch.ensureCapacity(window.size + probation.size + protect.size + 1);
+    sketch.increment(hash(node.key));
+    window.addLast(node);
+    while (window.weight > maxWindow) {
+      candidate = window.pollFirst();
+      probation.addLast(candidate);
+    }
+  }
+
+  @Override
+  void access(CacheNode<K, V> node) {
+    sketch.increment(hash(node.key));
+    if (node.list == window || node.list == protect) {
+      node.list.moveToLast(node);
+      return;
+    }
+    probation.remove(node);
+    protect.addLast(node);
+    while (protect.weight > maxProtected) {
+      probation.addLast(protect.pollFirst());
+    }
+  }
+
+  @Override
+  void miss(Object key) {
+    sketch.increment(hash(key));
+  }
+
+  @Override
+  CacheNode<K, V> evict() {
+    CacheNode<K, V> admitting = candidate;
+    candidate = null;
+    if (admitting != null && admitting.list == probation) {
+      CacheNode<K, V> victim = probation.head != admitting ? probation.head : protect.head;
+      if (victim == null) {
+        probation.remove(admitting);
+        return admitting;
+      }
+      if (sketch.frequency(hash(admitting.key)) > sketch.frequency(hash(victim.key))) {
+        victim.list.remove(victim);
+        return victim;
+      }
+      probation.remove(admitting);
+      return admitting;
+    }
+    if (!probation.isEmpty()) {
+      return probation.pollFirst();
+    }
+    if (!protect.isEmpty()) {
+      return protect.pollFirst();
+    }
+    return window.pollFirst();
+  }
+}
@@ -0,0 +1,29 @@
+package me.xaanit.d4jutilities.entities;
+
+/**
+ * Weighs the entries of a {@link FixedSizeCache FixedSizeCache} or
+ * {@link ConcurrentFixedSizeCache ConcurrentFixedSizeCache} bounded by their total weight instead of their
+ * number, as set through {@link FixedSizeCacheBuilder#setMaximumWeight(long, Weigher)}.
+ * <p>
+ * <p>Weights are in whatever unit the maximum weight is in, usually about how many bytes an entry takes.
+ * An entry is weighed once each time it is added, so its weight should not change while it is in the
+ * cache.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ *
+ * @author Jacob (xaanit)
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+  /**
+   * Weighs an entry.
+   *
+   * @param key   The key of the entry
+   * @param value The value of the entry
+   *
+   * @return The weight of the entry, which can not be negative
+   */
+  int weigh(K key, V value);
+}
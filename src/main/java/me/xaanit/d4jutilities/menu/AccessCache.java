@@ -0,0 +1,136 @@
+package me.xaanit.d4jutilities.menu;
+
+import me.xaanit.d4jutilities.entities.LongHashSet;
+import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.api.events.IListener;
+import sx.blah.discord.handle.impl.events.guild.GuildEvent;
+import sx.blah.discord.handle.impl.events.guild.GuildLeaveEvent;
+import sx.blah.discord.handle.impl.events.guild.member.UserLeaveEvent;
+import sx.blah.discord.handle.impl.events.guild.member.UserRoleUpdateEvent;
+import sx.blah.discord.handle.impl.events.guild.role.RoleDeleteEvent;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IRole;
+import sx.blah.discord.handle.obj.IUser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers whether an {@link IUser} has one of the allowed {@link IRole}s of a {@link Menu} in an
+ * {@link IGuild}, so their roles are only walked the first time they interact with it.
+ * <p>
+ * <p>Decisions are dropped when the user's roles change, when they leave the guild, when a role of the
+ * guild is deleted, and when the bot leaves the guild. A single listener per client does this for every
+ * live cache, and only holds them weakly, so a Menu that is no longer used is collected with its cache.
+ * <br>Each guild keeps at most {@link #MAX_USERS_PER_GUILD} decisions before starting over.
+ *
+ * @author Jacob (xaanit)
+ */
+final class AccessCache {
+  private static final int MAX_USERS_PER_GUILD = 1024;
+  private static final Map<IDiscordClient, Invalidator> INVALIDATORS = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final LongHashSet roles;
+  private final Map<Long, Map<Long, Boolean>> decisions = new ConcurrentHashMap<>();
+
+  private AccessCache(LongHashSet roles) {
+    this.roles = roles;
+  }
+
+  /**
+   * Creates a cache for a set of allowed roles and registers it for invalidation.
+   *
+   * @param client The client the Menu uses
+   * @param roles  The IDs of the allowed roles
+   *
+   * @return The cache
+   */
+  static AccessCache create(IDiscordClient client, LongHashSet roles) {
+    AccessCache cache = new AccessCache(roles);
+    INVALIDATORS.computeIfAbsent(client, Invalidator::new).add(cache);
+    return cache;
+  }
+
+  /**
+   * Checks whether a user has any of the allowed roles in a guild.
+   *
+   * @param user  The user
+   * @param guild The guild
+   *
+   * @return {@code true} if the user has an allowed role
+   */
+  boolean hasRole(IUser user, IGuild guild) {
+    Map<Long, Boolean> users = decisions.computeIfAbsent(guild.getLongID(), g -> new ConcurrentHashMap<>());
+    Boolean decision = users.get(user.getLongID());
+    if (decision == null) {
+      decision = false;
+      for (IRole role : user.getRolesForGuild(guild)) {
+        if (roles.contains(role.getLongID())) {
+          decision = true;
+          break;
+        }
+      }
+      if (users.size() >= MAX_USERS_PER_GUILD) {
+        users.clear();
+      }
+      users.put(user.getLongID(), decision);
+    }
+    return decision;
+  }
+
+  private void invalidate(long guild, long user) {
+    Map<Long, Boolean> users = decisions.get(guild);
+    if (users != null) {
+      users.remove(user);
+    }
+  }
+
+  private void invalidate(long guild) {
+    decisions.remove(guild);
+  }
+
+  /**
+   * Drops the decisions of every live cache of a client as guild members and roles change.
+   */
+  private static final class Invalidator implements IListener<GuildEvent> {
+    private final Set<AccessCache> caches = Collections.newSetFromMap(new WeakHashMap<>());
+
+    Invalidator(IDiscordClient client) {
+      client.getDispatcher().registerListener(this);
+    }
+
+    synchronized void add(AccessCache cache) {
+      caches.add(cache);
+    }
+
+    @Override
+    public void handle(GuildEvent event) {
+      if (!(event instanceof UserRoleUpdateEvent || event instanceof UserLeaveEvent
+                    || event instanceof RoleDeleteEvent || event instanceof GuildLeaveEvent)) {
+        return;
+      }
+      List<AccessCache> live;
+      synchronized (this) {
+        if (caches.isEmpty()) {
+          return;
+        }
+        live = new ArrayList<>(caches);
+      }
+      long guild = event.getGuild().getLongID();
+      for (AccessCache cache : live) {
+        if (event instanceof UserRoleUpdateEvent) {
+          cache.invalidate(guild, ((UserRoleUpdateEvent) event).getUser().getLongID());
+        } else if (event instanceof UserLeaveEvent) {
+          cache.invalidate(guild, ((UserLeaveEvent) event).getUser().getLongID());
+        } else {
+          cache.invalidate(guild);
+        }
+      }
+    }
+  }
+}
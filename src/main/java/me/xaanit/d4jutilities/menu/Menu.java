@@ -1,16 +1,26 @@
 package me.xaanit.d4jutilities.menu;
 
+import me.xaanit.d4jutilities.entities.LongHashSet;
+import me.xaanit.d4jutilities.menu.RequestScheduler.Priority;
 import me.xaanit.d4jutilities.waiter.EventWaiter;
 import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
 import sx.blah.discord.handle.impl.events.guild.channel.message.reaction.ReactionAddEvent;
 import sx.blah.discord.handle.impl.obj.Channel;
+import sx.blah.discord.handle.impl.obj.ReactionEmoji;
 import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IGuild;
+import sx.blah.discord.handle.obj.IIDLinkedObject;
 import sx.blah.discord.handle.obj.IMessage;
 import sx.blah.discord.handle.obj.IRole;
 import sx.blah.discord.handle.obj.IUser;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 
@@ -20,67 +30,248 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class Menu {
   protected final EventWaiter waiter;
-  protected final Set<IUser> users;
-  protected final Set<IRole> roles;
+  protected final LongHashSet users;
+  protected final LongHashSet roles;
   protected final long timeout;
   protected final TimeUnit unit;
+  protected final boolean useReactions;
   protected final IDiscordClient client;
+  private final AccessCache access;
 
-  protected Menu(EventWaiter waiter, Set<IUser> users, Set<IRole> roles, long timeout, TimeUnit unit, IDiscordClient client) {
+  protected Menu(EventWaiter waiter, Set<IUser> users, Set<IRole> roles, long timeout, TimeUnit unit,
+                 IDiscordClient client) {
+    this(waiter, idsOf(users), idsOf(roles), timeout, unit, true, client);
+  }
+
+  protected Menu(EventWaiter waiter, Set<IUser> users, Set<IRole> roles, long timeout, TimeUnit unit,
+                 boolean useReactions, IDiscordClient client) {
+    this(waiter, idsOf(users), idsOf(roles), timeout, unit, useReactions, client);
+  }
+
+  protected Menu(EventWaiter waiter, LongHashSet users, LongHashSet roles, long timeout, TimeUnit unit,
+                 IDiscordClient client) {
+    this(waiter, users, roles, timeout, unit, true, client);
+  }
+
+  protected Menu(EventWaiter waiter, LongHashSet users, LongHashSet roles, long timeout, TimeUnit unit,
+                 boolean useReactions, IDiscordClient client) {
     this.waiter = waiter;
-    this.users = users;
-    this.roles = roles;
+    this.users = new LongHashSet(users);
+    this.roles = new LongHashSet(roles);
     this.timeout = timeout;
     this.unit = unit;
+    this.useReactions = useReactions;
     this.client = client;
+    this.access = roles.isEmpty() ? null : AccessCache.create(client, this.roles);
   }
 
   /**
    * Displays this Menu in a {@link sx.blah.discord.handle.obj.IChannel IChannel}.
+   * <br>This blocks until the Menu has been sent. Use {@link #displayAsync(IChannel)} to avoid
+   * blocking the calling thread.
    *
    * @param channel The IChannel to display this Menu in
    */
-  public abstract void display(IChannel channel);
+  public void display(IChannel channel) {
+    await(displayAsync(channel));
+  }
 
   /**
    * Displays this Menu as a designated {@link sx.blah.discord.handle.obj.IMessage IMessage}.
    * <br>The Message provided must be one sent by the bot! Trying to provided a Message
    * authored by another {@link sx.blah.discord.handle.obj.IUser IUser} will prevent the
    * Menu from being displayed!
+   * <p>
+   * <p>This is how Menus are chained: a Menu handing its IMessage on, like a
+   * {@link me.xaanit.d4jutilities.menu.buttonmenu.ButtonMenu ButtonMenu} with a chained action, can be
+   * displayed as the next step without deleting and resending it. Reactions already on the IMessage that
+   * this Menu also uses are kept in place.
+   * <br>This blocks until the Message has been edited. Use {@link #displayAsync(IMessage)} to avoid
+   * blocking the calling thread.
    *
    * @param message The Message to display this Menu as
    */
-  public abstract void display(IMessage message);
+  public void display(IMessage message) {
+    await(displayAsync(message));
+  }
 
-  protected boolean isValidUser(ReactionAddEvent event) {
-    if (event.getUser().isBot()) {
-      return false;
-    }
-    if (users.isEmpty() && roles.isEmpty()) {
-      return true;
-    }
-    if (users.contains(event.getUser())) {
-      return true;
+  /**
+   * Displays this Menu in a {@link sx.blah.discord.handle.obj.IChannel IChannel} without blocking.
+   * <p>
+   * <p>The returned future completes with the sent {@link sx.blah.discord.handle.obj.IMessage IMessage}
+   * once the Menu is listening for input. Reactions may still be in the process of being added.
+   *
+   * @param channel The IChannel to display this Menu in
+   *
+   * @return A future completing with the IMessage the Menu is displayed as
+   */
+  public CompletableFuture<IMessage> displayAsync(IChannel channel) {
+    validate(channel);
+    RenderedMenu render = render();
+    return RequestScheduler.request(channel, Priority.INTERACTIVE, () -> {
+      return render.send(client, channel);
+    }).thenApply(m -> begin(m, resolveReactions()));
+  }
+
+  /**
+   * Displays this Menu as a designated {@link sx.blah.discord.handle.obj.IMessage IMessage} without
+   * blocking.
+   * <br>The same restrictions as {@link #display(IMessage)} apply.
+   *
+   * @param message The Message to display this Menu as
+   *
+   * @return A future completing with the edited IMessage the Menu is displayed as
+   */
+  public CompletableFuture<IMessage> displayAsync(IMessage message) {
+    validate(message.getChannel());
+    RenderedMenu render = render();
+    return RequestScheduler.edit(message, render).thenApply(m -> begin(m, resolveReactions()));
+  }
+
+  /**
+   * Renders this Menu once and wraps it in a {@link MenuTemplate} that can be displayed in many
+   * {@link sx.blah.discord.handle.obj.IChannel IChannel}s without rendering it again.
+   *
+   * @return The MenuTemplate
+   */
+  public final MenuTemplate toTemplate() {
+    return new MenuTemplate(this, render(), resolveReactions());
+  }
+
+  /**
+   * Renders the state this Menu starts in.
+   *
+   * @return The render
+   */
+  protected abstract RenderedMenu render();
+
+  /**
+   * Resolves the reactions this Menu starts with, in the order they should be added.
+   *
+   * @return The reactions
+   */
+  protected abstract List<ReactionEmoji> getReactions();
+
+  /**
+   * Resolves the reactions to add when this Menu is displayed.
+   * <br>If this Menu does not use reactions, this is always empty and no reaction requests are made.
+   *
+   * @return The reactions, or an empty list if this Menu is only controlled by typed input
+   */
+  protected final List<ReactionEmoji> resolveReactions() {
+    return useReactions ? getReactions() : Collections.emptyList();
+  }
+
+  /**
+   * Starts a session of this Menu on a message that has just been sent or edited to show
+   * {@link #render()}.
+   * <br>Implementations must not block. They usually hand the message to their {@link MenuEngine}, which
+   * starts listening first and then adds the reactions through {@link #startReactions(IMessage, List)}.
+   *
+   * @param message   The IMessage the Menu is displayed as
+   * @param reactions The reactions to add, as returned by {@link #resolveReactions()}
+   *
+   * @return The same IMessage
+   */
+  protected abstract IMessage begin(IMessage message, List<ReactionEmoji> reactions);
+
+  /**
+   * Starts adding the reactions of this Menu to a message it is displayed as.
+   * <br>If the message was handed over by a previous Menu, only the reactions that differ from the ones
+   * already on it are removed and added.
+   *
+   * @param message   The IMessage the Menu is displayed as
+   * @param reactions The reactions this Menu uses, as passed to {@link #begin(IMessage, List)}
+   *
+   * @return The started {@link ReactionPipeline}
+   */
+  protected final ReactionPipeline startReactions(IMessage message, List<ReactionEmoji> reactions) {
+    return ReactionPipeline.reconcile(message, reactions, client.getOurUser()).start();
+  }
+
+  /**
+   * Removes the reaction an {@link IUser} added to select something, so the same reaction can be used
+   * again by whatever the message is showing next.
+   * <br>If the bot is not allowed to remove it, the reaction is left in place. Removals are batched by the
+   * {@link RequestScheduler}, which may clear the message and add this Menu's reactions back instead.
+   *
+   * @param event The event of the reaction
+   */
+  protected final void removeReaction(ReactionAddEvent event) {
+    RequestScheduler.removeReaction(event.getMessage(), event.getUser(), event.getReaction().getEmoji(),
+            resolveReactions());
+  }
+
+  /**
+   * Checks that this Menu can be displayed in the provided channel, throwing if it can not.
+   * <br>By default, this does nothing.
+   *
+   * @param channel The channel the Menu is about to be displayed in
+   */
+  protected void validate(IChannel channel) {
+  }
+
+  /**
+   * Waits for a future returned by one of the async display methods, rethrowing whatever
+   * {@link RuntimeException} it failed with.
+   *
+   * @param future The future to wait for
+   * @param <T>    The type of the future's result
+   *
+   * @return The future's result
+   */
+  protected static <T> T await(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
     }
-    if (!(event.getChannel() instanceof Channel)) {
-      return false;
+  }
+
+  /**
+   * Collects the IDs of {@link IUser}s or {@link IRole}s, as used by the allow-lists of a Menu.
+   *
+   * @param entities The IUsers or IRoles
+   *
+   * @return A new LongHashSet of their IDs
+   */
+  protected static LongHashSet idsOf(Collection<? extends IIDLinkedObject> entities) {
+    LongHashSet ids = new LongHashSet();
+    for (IIDLinkedObject entity : entities) {
+      ids.add(entity.getLongID());
     }
-    return event.getUser().getRolesForGuild(event.getGuild()).stream().anyMatch(r -> roles.contains(r));
+    return ids;
+  }
+
+  protected boolean isValidUser(ReactionAddEvent event) {
+    return isValidUser(event.getUser(), event.getChannel(), event.getGuild());
   }
 
   protected boolean isValidUser(MessageReceivedEvent event) {
-    if (event.getAuthor().isBot()) {
+    return isValidUser(event.getAuthor(), event.getChannel(), event.getGuild());
+  }
+
+  /**
+   * Checks whether an {@link IUser} may use this Menu.
+   * <br>Whether they have one of the allowed {@link IRole}s is only worked out once per guild, until
+   * their roles change.
+   */
+  private boolean isValidUser(IUser user, IChannel channel, IGuild guild) {
+    if (user.isBot()) {
       return false;
     }
     if (users.isEmpty() && roles.isEmpty()) {
       return true;
     }
-    if (users.contains(event.getAuthor())) {
+    if (users.contains(user.getLongID())) {
       return true;
     }
-    if (!(event.getChannel() instanceof Channel)) {
+    if (!(channel instanceof Channel) || access == null) {
       return false;
     }
-    return event.getAuthor().getRolesForGuild(event.getGuild()).stream().anyMatch(r -> roles.contains(r));
+    return access.hasRole(user, guild);
   }
-}
\ No newline at end of file
+}
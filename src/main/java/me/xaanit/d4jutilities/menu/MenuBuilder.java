@@ -20,6 +20,7 @@ public abstract class MenuBuilder<T extends MenuBuilder<T, V>, V extends Menu> {
   protected Set<IRole> roles = new HashSet<>();
   protected long timeout = -1;
   protected TimeUnit unit = TimeUnit.MINUTES;
+  protected boolean useReactions = true;
 
   /**
    * Builds the {@link me.xaanit.d4jutilities.menu.Menu Menu} corresponding to
@@ -80,8 +81,7 @@ public abstract class MenuBuilder<T extends MenuBuilder<T, V>, V extends Menu> {
    */
   public final T setUsers(IUser... users) {
     this.users.clear();
-    this.users.addAll(Arrays.asList(users));
-    return (T) this;
+    return addUsers(users);
   }
 
   /**
@@ -108,8 +108,7 @@ public abstract class MenuBuilder<T extends MenuBuilder<T, V>, V extends Menu> {
    */
   public final T setRoles(IRole... roles) {
     this.roles.clear();
-    this.roles.addAll(Arrays.asList(roles));
-    return (T) this;
+    return addRoles(roles);
   }
 
   /**
@@ -129,4 +128,24 @@ public abstract class MenuBuilder<T extends MenuBuilder<T, V>, V extends Menu> {
     this.unit = unit;
     return (T) this;
   }
+
+  /**
+   * If {@code false}, the {@link Menu} will not add any reactions and is controlled entirely by messages
+   * typed in its {@link sx.blah.discord.handle.obj.IChannel IChannel} instead.
+   * <p>
+   * <p>This saves one request per reaction every time the Menu is displayed, and one more for every
+   * reaction an {@link IUser} adds, at the cost of the input being less obvious to users.
+   * <br>Typed input only goes to the most recent open Menu in the channel that the author may use. Opening
+   * another Menu in the same channel takes typed input away from this one until the newer Menu closes, so
+   * two Menus never both act on the same message.
+   * <br>By default, Menus use reactions.
+   *
+   * @param use {@code true} if the Menu should use reactions, {@code false} if it should only use typed input
+   *
+   * @return This builder
+   */
+  public final T useReactions(boolean use) {
+    this.useReactions = use;
+    return (T) this;
+  }
 }
\ No newline at end of file
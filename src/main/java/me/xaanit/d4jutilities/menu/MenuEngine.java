@@ -0,0 +1,89 @@
+package me.xaanit.d4jutilities.menu;
+
+import sx.blah.discord.handle.impl.obj.ReactionEmoji;
+import sx.blah.discord.handle.obj.IMessage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs the sessions of a {@link Menu} from what the Menu declares about itself: the states it can be in,
+ * how each state is rendered, and which {@link Transition} an input leads to.
+ * <p>
+ * <p>Everything else is done here, once for every kind of Menu. Each {@link MenuSession} holds a single
+ * {@link me.xaanit.d4jutilities.waiter.EventWaiter.Subscription Subscription} for its whole life, which
+ * matches inputs to the message, checks the user, and holds off the timeout while it is being used.
+ * Edits go through the {@link RequestScheduler}, the reactions that were used are removed again, and the
+ * session is torn down exactly once, whether it ends by input, by update, or by timing out.
+ * <p>
+ * <p>An engine is built through a {@link MenuEngineBuilder} when the Menu is constructed, and is shared by
+ * every session of that Menu.
+ *
+ * @param <S> The type of the states of the Menu. States should be immutable, with
+ *            {@link Object#equals(Object) equals} telling whether two of them render the same.
+ *
+ * @author Jacob (xaanit)
+ */
+public final class MenuEngine<S> {
+  final Menu menu;
+  final Function<S, RenderedMenu> renderer;
+  final BiFunction<S, MenuInput, Transition<S>> handler;
+  final boolean reactionInput;
+  final boolean textInput;
+  final Consumer<IMessage> timeoutAction;
+  final Consumer<MenuSession<S>> endAction;
+  private final int maxCachedRenders;
+  private final Map<S, RenderedMenu> renders;
+
+  MenuEngine(Menu menu, Function<S, RenderedMenu> renderer, BiFunction<S, MenuInput, Transition<S>> handler,
+             boolean reactionInput, boolean textInput, Consumer<IMessage> timeoutAction,
+             Consumer<MenuSession<S>> endAction, int maxCachedRenders) {
+    this.menu = menu;
+    this.renderer = renderer;
+    this.handler = handler;
+    this.reactionInput = reactionInput;
+    this.textInput = textInput;
+    this.timeoutAction = timeoutAction;
+    this.endAction = endAction;
+    this.maxCachedRenders = maxCachedRenders;
+    this.renders = maxCachedRenders > 0 ? new ConcurrentHashMap<>() : null;
+  }
+
+  /**
+   * Starts a session on a message that has just been sent or edited to show a state.
+   * <br>The session is listening for input before this returns, and the reactions are being added.
+   *
+   * @param message   The IMessage the Menu is displayed as
+   * @param state     The state the message is showing
+   * @param reactions The reactions to add, as passed to {@link Menu#begin(IMessage, List)}
+   *
+   * @return The started MenuSession
+   */
+  public MenuSession<S> start(IMessage message, S state, List<ReactionEmoji> reactions) {
+    MenuSession<S> session = new MenuSession<>(this, message, state);
+    session.listen();
+    menu.startReactions(message, reactions);
+    return session;
+  }
+
+  /**
+   * Renders a state, reusing an earlier render of an equal state if renders are cached.
+   *
+   * @param state The state to render
+   *
+   * @return The render
+   */
+  public RenderedMenu render(S state) {
+    if (renders == null || state == null) {
+      return renderer.apply(state);
+    }
+    if (renders.size() >= maxCachedRenders) {
+      renders.clear();
+    }
+    return renders.computeIfAbsent(state, renderer);
+  }
+}
@@ -0,0 +1,144 @@
+package me.xaanit.d4jutilities.menu;
+
+import sx.blah.discord.handle.obj.IMessage;
+
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Builds the {@link MenuEngine} of a {@link Menu}.
+ * <p>
+ * <p>A Menu declares how its states are rendered through {@link #setRenderer(Function)}, and how it
+ * responds to input through {@link #setInputHandler(BiFunction)}. By default it takes reactions as input
+ * and does nothing when it times out.
+ *
+ * @param <S> The type of the states of the Menu
+ *
+ * @author Jacob (xaanit)
+ */
+public class MenuEngineBuilder<S> {
+  private final Menu menu;
+  private Function<S, RenderedMenu> renderer;
+  private BiFunction<S, MenuInput, Transition<S>> handler;
+  private boolean reactionInput = true;
+  private boolean textInput = false;
+  private Consumer<IMessage> timeoutAction = m -> {};
+  private Consumer<MenuSession<S>> endAction;
+  private int maxCachedRenders = 0;
+
+  /**
+   * Constructs a MenuEngineBuilder for a Menu.
+   *
+   * @param menu The Menu the engine runs the sessions of
+   */
+  public MenuEngineBuilder(Menu menu) {
+    this.menu = menu;
+  }
+
+  /**
+   * Builds the {@link MenuEngine}.
+   *
+   * @return The built MenuEngine
+   */
+  public MenuEngine<S> build() {
+    if (renderer == null) {
+      throw new IllegalArgumentException("Must set a renderer");
+    }
+    if (handler == null) {
+      throw new IllegalArgumentException("Must set an input handler");
+    }
+    if (!reactionInput && !textInput) {
+      throw new IllegalArgumentException("Must take either reactions or typed messages as input");
+    }
+    return new MenuEngine<>(menu, renderer, handler, reactionInput, textInput, timeoutAction, endAction,
+            maxCachedRenders);
+  }
+
+  /**
+   * Sets the function rendering each state of the Menu.
+   *
+   * @param renderer The Function rendering a state
+   *
+   * @return This builder
+   */
+  public MenuEngineBuilder<S> setRenderer(Function<S, RenderedMenu> renderer) {
+    this.renderer = renderer;
+    return this;
+  }
+
+  /**
+   * Sets the function deciding the {@link Transition} an input leads to in each state.
+   * <br>It must not have side effects: anything the Menu does in response belongs in the Transition, which
+   * is only carried out if the input is from someone allowed to use the Menu.
+   *
+   * @param handler The BiFunction receiving the current state and the input
+   *
+   * @return This builder
+   */
+  public MenuEngineBuilder<S> setInputHandler(BiFunction<S, MenuInput, Transition<S>> handler) {
+    this.handler = handler;
+    return this;
+  }
+
+  /**
+   * Sets whether reactions added to the message are taken as input.
+   *
+   * @param reactionInput {@code true} to take reactions
+   *
+   * @return This builder
+   */
+  public MenuEngineBuilder<S> setReactionInput(boolean reactionInput) {
+    this.reactionInput = reactionInput;
+    return this;
+  }
+
+  /**
+   * Sets whether messages typed in the channel are taken as input.
+   *
+   * @param textInput {@code true} to take typed messages
+   *
+   * @return This builder
+   */
+  public MenuEngineBuilder<S> setTextInput(boolean textInput) {
+    this.textInput = textInput;
+    return this;
+  }
+
+  /**
+   * Sets the action performed with the message when a session times out.
+   *
+   * @param timeoutAction The Consumer receiving the message
+   *
+   * @return This builder
+   */
+  public MenuEngineBuilder<S> setTimeoutAction(Consumer<IMessage> timeoutAction) {
+    this.timeoutAction = timeoutAction;
+    return this;
+  }
+
+  /**
+   * Sets an action performed once whenever a session ends, however it ends, before its teardown.
+   *
+   * @param endAction The Consumer receiving the session
+   *
+   * @return This builder
+   */
+  public MenuEngineBuilder<S> setEndAction(Consumer<MenuSession<S>> endAction) {
+    this.endAction = endAction;
+    return this;
+  }
+
+  /**
+   * Sets how many renders of states are kept to be reused, for Menus that switch between a small set of
+   * states. Renders are not kept by default.
+   *
+   * @param maxCachedRenders The most renders to keep, or {@code 0} to keep none
+   *
+   * @return This builder
+   */
+  public MenuEngineBuilder<S> setMaxCachedRenders(int maxCachedRenders) {
+    this.maxCachedRenders = maxCachedRenders;
+    return this;
+  }
+}
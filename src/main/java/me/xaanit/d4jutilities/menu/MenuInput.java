@@ -0,0 +1,81 @@
+package me.xaanit.d4jutilities.menu;
+
+import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
+import sx.blah.discord.handle.impl.events.guild.channel.message.reaction.ReactionAddEvent;
+import sx.blah.discord.handle.impl.obj.ReactionEmoji;
+import sx.blah.discord.handle.obj.IUser;
+
+/**
+ * A single input given to a {@link MenuSession}: either a reaction added to its message, or a message
+ * typed in its channel.
+ *
+ * @author Jacob (xaanit)
+ */
+public final class MenuInput {
+  private final ReactionAddEvent reaction;
+  private final MessageReceivedEvent typed;
+
+  MenuInput(ReactionAddEvent reaction) {
+    this.reaction = reaction;
+    this.typed = null;
+  }
+
+  MenuInput(MessageReceivedEvent typed) {
+    this.reaction = null;
+    this.typed = typed;
+  }
+
+  /**
+   * Checks whether this input is a reaction.
+   *
+   * @return {@code true} if this is a reaction, {@code false} if it is a typed message
+   */
+  public boolean isReaction() {
+    return reaction != null;
+  }
+
+  /**
+   * Gets the emoji of the reaction.
+   *
+   * @return The {@link ReactionEmoji ReactionEmoji}, or {@code null} if this is a typed message
+   */
+  public ReactionEmoji getEmoji() {
+    return reaction == null ? null : reaction.getReaction().getEmoji();
+  }
+
+  /**
+   * Gets the content of the typed message.
+   *
+   * @return The content, or {@code null} if this is a reaction
+   */
+  public String getText() {
+    return typed == null ? null : typed.getMessage().getContent();
+  }
+
+  /**
+   * Gets the {@link IUser} who gave this input.
+   *
+   * @return The IUser
+   */
+  public IUser getUser() {
+    return reaction == null ? typed.getAuthor() : reaction.getUser();
+  }
+
+  /**
+   * Gets the event of the reaction.
+   *
+   * @return The ReactionAddEvent, or {@code null} if this is a typed message
+   */
+  public ReactionAddEvent getReactionEvent() {
+    return reaction;
+  }
+
+  /**
+   * Gets the event of the typed message.
+   *
+   * @return The MessageReceivedEvent, or {@code null} if this is a reaction
+   */
+  public MessageReceivedEvent getMessageEvent() {
+    return typed;
+  }
+}
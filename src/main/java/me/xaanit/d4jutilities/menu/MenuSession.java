@@ -0,0 +1,286 @@
+package me.xaanit.d4jutilities.menu;
+
+import me.xaanit.d4jutilities.waiter.EventWaiter;
+import sx.blah.discord.api.events.Event;
+import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
+import sx.blah.discord.handle.impl.events.guild.channel.message.reaction.ReactionAddEvent;
+import sx.blah.discord.handle.obj.IMessage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A single displayed message of a {@link Menu} and the state it is showing, run by a {@link MenuEngine}.
+ * <p>
+ * <p>Inputs and updates are handled one at a time. Only the latest state is ever rendered, as edits that
+ * have not been sent yet are merged by the {@link RequestScheduler}.
+ * <br>Inputs are checked against {@link Menu#isValidUser} and handled without holding the lock, which is
+ * only taken to swap in the new state. If another input changed the state in the meantime, the input is
+ * handled again from the new state, so a handler may see the same input more than once.
+ * <p>
+ * <p>A message typed in a channel is only taken by one session: the most recent one in the channel that
+ * takes typed input and that its author may use. Opening a new Menu there therefore takes typed input
+ * away from the older ones for as long as it is open, and two Menus never both act on the same message.
+ *
+ * @param <S> The type of the states of the Menu
+ *
+ * @author Jacob (xaanit)
+ */
+public final class MenuSession<S> {
+  // The sessions taking typed input in each channel, oldest first.
+  private static final Map<Long, List<MenuSession<?>>> TYPING = new ConcurrentHashMap<>();
+
+  private final MenuEngine<S> engine;
+  private volatile IMessage message;
+  private S state;
+  private boolean ended = false;
+  private EventWaiter.Subscription subscription;
+
+  MenuSession(MenuEngine<S> engine, IMessage message, S state) {
+    this.engine = engine;
+    this.message = message;
+    this.state = state;
+  }
+
+  /**
+   * Gets the message this session is displayed as.
+   *
+   * @return The IMessage, as of its latest edit
+   */
+  public IMessage getMessage() {
+    return message;
+  }
+
+  /**
+   * Gets the state this session is in.
+   *
+   * @return The state
+   */
+  public synchronized S getState() {
+    return state;
+  }
+
+  /**
+   * Checks whether this session has ended.
+   *
+   * @return {@code true} if it has ended, and no longer takes input or updates
+   */
+  public synchronized boolean isEnded() {
+    return ended;
+  }
+
+  /**
+   * Updates this session from outside of its inputs, such as when what the Menu displays changes.
+   * <br>The function receives the current state and returns the Transition to carry out. Nothing happens
+   * if the session has already ended.
+   *
+   * @param update The function deciding the Transition
+   */
+  public void update(Function<S, Transition<S>> update) {
+    Consumer<IMessage> teardown;
+    synchronized (this) {
+      if (ended) {
+        return;
+      }
+      teardown = apply(update.apply(state), null);
+    }
+    if (teardown != null) {
+      finish(teardown);
+    }
+  }
+
+  /**
+   * Edits the message to show the current state again, even if it should already be showing it.
+   */
+  public synchronized void refresh() {
+    if (!ended) {
+      edit();
+    }
+  }
+
+  void listen() {
+    Menu menu = engine.menu;
+    EventWaiter.Subscription sub;
+    if (engine.reactionInput && engine.textInput) {
+      sub = menu.waiter.subscribe(Arrays.asList(ReactionAddEvent.class, MessageReceivedEvent.class),
+              this::onEvent, menu.timeout, menu.unit, this::onTimeout);
+    } else if (engine.reactionInput) {
+      sub = menu.waiter.subscribe(ReactionAddEvent.class, this::onEvent, menu.timeout, menu.unit,
+              this::onTimeout);
+    } else {
+      sub = menu.waiter.subscribe(MessageReceivedEvent.class, this::onEvent, menu.timeout, menu.unit,
+              this::onTimeout);
+    }
+    if (engine.textInput) {
+      TYPING.compute(message.getChannel().getLongID(), (channel, sessions) -> {
+        List<MenuSession<?>> updated = sessions == null ? new CopyOnWriteArrayList<>() : sessions;
+        updated.add(this);
+        return updated;
+      });
+    }
+    synchronized (this) {
+      subscription = sub;
+      if (ended) {
+        sub.cancel();
+        stopTyping();
+      }
+    }
+  }
+
+  /**
+   * Handles an event of the subscription.
+   *
+   * @return {@code true} if the event was an input this session took
+   */
+  private boolean onEvent(Event event) {
+    MenuInput input;
+    if (event instanceof ReactionAddEvent) {
+      ReactionAddEvent reaction = (ReactionAddEvent) event;
+      if (reaction.getMessage().getLongID() != message.getLongID()) {
+        return false;
+      }
+      input = new MenuInput(reaction);
+    } else if (event instanceof MessageReceivedEvent) {
+      MessageReceivedEvent typed = (MessageReceivedEvent) event;
+      if (typed.getChannel().getLongID() != message.getChannel().getLongID() || !isLatestFor(typed)) {
+        return false;
+      }
+      input = new MenuInput(typed);
+    } else {
+      return false;
+    }
+    if (!isValidUser(input)) {
+      return false;
+    }
+    Consumer<IMessage> teardown;
+    while (true) {
+      S current;
+      synchronized (this) {
+        if (ended) {
+          return false;
+        }
+        current = state;
+      }
+      Transition<S> transition = engine.handler.apply(current, input);
+      if (transition.kind == Transition.Kind.IGNORE) {
+        return false;
+      }
+      synchronized (this) {
+        if (ended) {
+          return false;
+        }
+        if (state == current) {
+          teardown = apply(transition, input.getReactionEvent());
+          break;
+        }
+      }
+    }
+    if (teardown != null) {
+      finish(teardown);
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether this is the most recent session in its channel taking typed input from the author of
+   * a message.
+   */
+  private boolean isLatestFor(MessageReceivedEvent typed) {
+    List<MenuSession<?>> sessions = TYPING.get(typed.getChannel().getLongID());
+    if (sessions == null) {
+      return false;
+    }
+    MenuSession<?>[] snapshot = sessions.toArray(new MenuSession<?>[0]);
+    for (int i = snapshot.length - 1; i >= 0; i--) {
+      MenuSession<?> session = snapshot[i];
+      if (session == this) {
+        return true;
+      }
+      if (!session.isEnded() && session.engine.menu.isValidUser(typed)) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private boolean isValidUser(MenuInput input) {
+    return input.isReaction() ? engine.menu.isValidUser(input.getReactionEvent())
+                   : engine.menu.isValidUser(input.getMessageEvent());
+  }
+
+  /**
+   * Carries out a Transition while holding the lock.
+   *
+   * @param reaction The reaction that caused it, or {@code null} if it was not caused by a reaction
+   *
+   * @return The teardown to run once the lock is released if the session ended, else {@code null}
+   */
+  private Consumer<IMessage> apply(Transition<S> transition, ReactionAddEvent reaction) {
+    if (reaction != null && transition.kind != Transition.Kind.END) {
+      engine.menu.removeReaction(reaction);
+    }
+    switch (transition.kind) {
+      case MOVE:
+        if (!Objects.equals(state, transition.state)) {
+          state = transition.state;
+          edit();
+        }
+        return null;
+      case REPLACE:
+        state = transition.state;
+        return null;
+      case END:
+      case HAND_OFF:
+        ended = true;
+        if (subscription != null) {
+          subscription.cancel();
+        }
+        stopTyping();
+        return transition.teardown;
+      default:
+        return null;
+    }
+  }
+
+  private void onTimeout() {
+    synchronized (this) {
+      if (ended) {
+        return;
+      }
+      ended = true;
+    }
+    stopTyping();
+    finish(engine.timeoutAction);
+  }
+
+  /**
+   * Stops taking typed input, handing it back to the previous session in the channel.
+   */
+  private void stopTyping() {
+    if (engine.textInput) {
+      TYPING.computeIfPresent(message.getChannel().getLongID(), (channel, sessions) -> {
+        sessions.remove(this);
+        return sessions.isEmpty() ? null : sessions;
+      });
+    }
+  }
+
+  private void finish(Consumer<IMessage> teardown) {
+    if (engine.endAction != null) {
+      engine.endAction.accept(this);
+    }
+    if (teardown != null) {
+      teardown.accept(message);
+    }
+  }
+
+  private void edit() {
+    RequestScheduler.edit(message, engine.render(state)).thenAccept(m -> message = m);
+  }
+}
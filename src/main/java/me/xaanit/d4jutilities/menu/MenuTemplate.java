@@ -0,0 +1,105 @@
+package me.xaanit.d4jutilities.menu;
+
+import me.xaanit.d4jutilities.menu.RequestScheduler.Priority;
+import sx.blah.discord.handle.impl.obj.ReactionEmoji;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An immutable, pre-rendered {@link Menu} that can be displayed in any number of
+ * {@link IChannel IChannel}s at once.
+ * <p>
+ * <p>The first state of the Menu is rendered and its reactions are resolved a single time, when the
+ * template is created through {@link Menu#toTemplate()}. Displaying the template only sends that
+ * render, so broadcasting to N channels costs one render and N requests, all of which are queued at
+ * once instead of one after another.
+ * <p>
+ * <p>Each displayed message runs its own independent session of the Menu.
+ *
+ * @author Jacob (xaanit)
+ */
+public final class MenuTemplate {
+  private final Menu menu;
+  private final RenderedMenu render;
+  private final List<ReactionEmoji> reactions;
+
+  MenuTemplate(Menu menu, RenderedMenu render, List<ReactionEmoji> reactions) {
+    this.menu = menu;
+    this.render = render;
+    this.reactions = Collections.unmodifiableList(new ArrayList<>(reactions));
+  }
+
+  /**
+   * Displays this template as a new {@link IMessage} in the provided {@link IChannel}.
+   *
+   * @param channel The IChannel to display the Menu in
+   *
+   * @return A future completing with the sent IMessage
+   */
+  public CompletableFuture<IMessage> displayAsync(IChannel channel) {
+    try {
+      menu.validate(channel);
+    } catch (RuntimeException e) {
+      CompletableFuture<IMessage> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+    return RequestScheduler.request(channel, Priority.INTERACTIVE, () -> {
+      return render.send(menu.client, channel);
+    }).thenApply(m -> menu.begin(m, reactions));
+  }
+
+  /**
+   * Displays this template in every provided {@link IChannel}.
+   * <br>All messages are queued immediately; this does not wait for any of them to be sent.
+   *
+   * @param channels The IChannels to display the Menu in
+   *
+   * @return One future per channel, in the same order, each completing with the IMessage sent to it
+   */
+  public List<CompletableFuture<IMessage>> broadcast(Collection<? extends IChannel> channels) {
+    List<CompletableFuture<IMessage>> futures = new ArrayList<>(channels.size());
+    for (IChannel channel : channels) {
+      futures.add(displayAsync(channel));
+    }
+    return futures;
+  }
+
+  /**
+   * Displays this template in every provided {@link IChannel}.
+   *
+   * @param channels The IChannels to display the Menu in
+   *
+   * @return One future per channel, in the same order, each completing with the IMessage sent to it
+   *
+   * @see #broadcast(Collection)
+   */
+  public List<CompletableFuture<IMessage>> broadcast(IChannel... channels) {
+    return broadcast(Arrays.asList(channels));
+  }
+
+  /**
+   * Gets the {@link Menu} this template displays.
+   *
+   * @return The Menu
+   */
+  public Menu getMenu() {
+    return menu;
+  }
+
+  /**
+   * Gets the shared render that is sent to every channel.
+   *
+   * @return The render
+   */
+  public RenderedMenu getRender() {
+    return render;
+  }
+}
@@ -0,0 +1,322 @@
+package me.xaanit.d4jutilities.menu;
+
+import me.xaanit.d4jutilities.menu.RequestScheduler.Priority;
+import sx.blah.discord.handle.impl.obj.ReactionEmoji;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.handle.obj.IReaction;
+import sx.blah.discord.handle.obj.IUser;
+import sx.blah.discord.handle.obj.Permissions;
+import sx.blah.discord.util.RateLimitException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adds a series of {@link ReactionEmoji ReactionEmoji}s to an {@link IMessage} in order, without
+ * blocking the thread that started it.
+ * <p>
+ * <p>Each reaction is only requested once the one before it has been added, so the reactions always
+ * appear in the order they were given. Progress can be followed through {@link #whenAdded(int)}, and
+ * {@link #getCompletion()} completes once every reaction is on the message.
+ * <p>
+ * <p>Menus should register their {@link me.xaanit.d4jutilities.waiter.EventWaiter EventWaiter} before
+ * starting a pipeline, so they are interactive while the reactions are still being added.
+ * Reactions are requested through the {@link RequestScheduler} as {@link Priority#SETUP SETUP}, so
+ * edits made in the meantime are not held up behind them.
+ * <p>
+ * <p>A pipeline created through {@link #reconcile(IMessage, List, IUser)} works on a message that
+ * already has reactions, such as one handed over by a previous Menu. Reactions that are already in
+ * place are kept, and only the ones that differ are removed and added.
+ * <p>
+ * <p>Only one pipeline adds reactions to a message at a time. Starting a pipeline cancels any other that
+ * is still running on the same message, so their reactions never end up mixed.
+ *
+ * @author Jacob (xaanit)
+ */
+public class ReactionPipeline {
+  private static final Map<Long, ReactionPipeline> RUNNING = new ConcurrentHashMap<>();
+
+  private final IMessage message;
+  private final List<ReactionEmoji> reactions;
+  private final List<CompletableFuture<IMessage>> progress;
+  private final int kept;
+  private final IUser self;
+  private final List<ReactionEmoji> stale;
+  private final boolean clear;
+  private final AtomicInteger added = new AtomicInteger();
+  private volatile boolean cancelled = false;
+
+  /**
+   * Constructs a new ReactionPipeline for the provided {@link IMessage}.
+   * <br>Nothing is requested until {@link #start()} is called.
+   *
+   * @param message   The IMessage to add the reactions to
+   * @param reactions The reactions to add, in order
+   */
+  public ReactionPipeline(IMessage message, List<ReactionEmoji> reactions) {
+    this(message, reactions, 0, null, Collections.emptyList(), false);
+  }
+
+  /**
+   * Constructs a new ReactionPipeline for the provided {@link IMessage}.
+   *
+   * @param message   The IMessage to add the reactions to
+   * @param reactions The reactions to add, in order
+   */
+  public ReactionPipeline(IMessage message, ReactionEmoji... reactions) {
+    this(message, Arrays.asList(reactions));
+  }
+
+  private ReactionPipeline(IMessage message, List<ReactionEmoji> reactions, int kept, IUser self,
+                           List<ReactionEmoji> stale, boolean clear) {
+    this.message = message;
+    this.reactions = Collections.unmodifiableList(new ArrayList<>(reactions));
+    this.kept = kept;
+    this.self = self;
+    this.stale = stale;
+    this.clear = clear;
+    this.progress = new ArrayList<>(this.reactions.size() + 1);
+    for (int i = 0; i <= this.reactions.size(); i++) {
+      progress.add(new CompletableFuture<>());
+    }
+  }
+
+  /**
+   * Creates a ReactionPipeline that brings the reactions already on an {@link IMessage} in line with
+   * the provided ones.
+   * <p>
+   * <p>The longest run of reactions at the start of the message that the bot added and that match the
+   * start of the new reactions is kept as it is. The bot's own reactions after it are removed one by
+   * one, apart from those the new reactions use again, and the rest of the new reactions are added,
+   * unless clearing every reaction and adding all of them again takes fewer requests.
+   * <br>A reaction that is used again stays where it is on the message, so it may end up before reactions
+   * that come earlier in the new list. Every reaction is also cleared if any after the kept run were added
+   * by other {@link IUser}s, as long as the bot is allowed to.
+   * <br>On a message without reactions, this is the same as a regular pipeline.
+   * <br>Nothing is requested until {@link #start()} is called.
+   *
+   * @param message   The IMessage to add the reactions to
+   * @param reactions The reactions the message should end up with, in order
+   * @param self      The IUser of the bot
+   *
+   * @return The pipeline
+   */
+  public static ReactionPipeline reconcile(IMessage message, List<ReactionEmoji> reactions, IUser self) {
+    return reconcile(message, message.getReactions(), reactions, self);
+  }
+
+  /**
+   * Creates a ReactionPipeline that adds reactions back to an {@link IMessage} whose reactions were all
+   * just cleared.
+   * <br>The message is reconciled as if it had no reactions, since the cached ones may not have caught up
+   * with the clear yet.
+   *
+   * @param message   The IMessage to add the reactions to
+   * @param reactions The reactions the message should end up with, in order
+   * @param self      The IUser of the bot
+   *
+   * @return The pipeline
+   */
+  static ReactionPipeline afterClear(IMessage message, List<ReactionEmoji> reactions, IUser self) {
+    return reconcile(message, Collections.emptyList(), reactions, self);
+  }
+
+  static ReactionPipeline reconcile(IMessage message, List<IReaction> existing, List<ReactionEmoji> reactions,
+                                    IUser self) {
+    int kept = 0;
+    while (kept < existing.size() && kept < reactions.size()
+                   && existing.get(kept).getUserReacted(self)
+                   && isSame(existing.get(kept).getEmoji(), reactions.get(kept))) {
+      kept++;
+    }
+
+    List<ReactionEmoji> stale = new ArrayList<>();
+    boolean shared = false;
+    for (IReaction reaction : existing.subList(kept, existing.size())) {
+      if (reaction.getUserReacted(self)) {
+        // Removals are CLEANUP requests, which run after the adds, so they would take away a reaction
+        // that is added back.
+        if (!isUsed(reaction.getEmoji(), reactions)) {
+          stale.add(reaction.getEmoji());
+        }
+        shared |= reaction.getCount() > 1;
+      } else {
+        shared = true;
+      }
+    }
+    // Removing one by one costs a request per stale reaction, while clearing costs one request plus
+    // adding back the kept ones.
+    if (shared || stale.size() > kept + 1) {
+      IChannel channel = message.getChannel();
+      if (!channel.isPrivate() && channel.getModifiedPermissions(self).contains(Permissions.MANAGE_MESSAGES)) {
+        return new ReactionPipeline(message, reactions, 0, self, Collections.emptyList(), true);
+      }
+    }
+    return new ReactionPipeline(message, reactions, kept, self, stale, false);
+  }
+
+  /**
+   * Starts adding the reactions. This returns immediately.
+   *
+   * @return This pipeline
+   */
+  public ReactionPipeline start() {
+    ReactionPipeline previous = RUNNING.put(message.getLongID(), this);
+    if (previous != null && previous != this) {
+      previous.cancel();
+    }
+    added.set(kept);
+    for (int i = 0; i <= kept; i++) {
+      progress.get(i).complete(message);
+    }
+    if (clear) {
+      RequestScheduler.request(message, Priority.SETUP, () -> {
+        if (cancelled) {
+          return;
+        }
+        try {
+          message.removeAllReactions();
+        } catch (RateLimitException e) {
+          throw e;
+        } catch (RuntimeException e) {
+          // The old reactions stay, but the new ones can still be added after them.
+        }
+      }).whenComplete((v, e) -> {
+        if (e != null) {
+          fail(0, e);
+        } else {
+          next(0);
+        }
+      });
+      return this;
+    }
+    for (ReactionEmoji reaction : stale) {
+      RequestScheduler.request(message, Priority.CLEANUP, () -> {
+        try {
+          message.removeReaction(self, reaction);
+        } catch (RateLimitException e) {
+          throw e;
+        } catch (RuntimeException e) {
+          // A leftover reaction is only cosmetic, as it is not one the Menu listens for.
+        }
+      });
+    }
+    next(kept);
+    return this;
+  }
+
+  /**
+   * Stops the pipeline before its next reaction is requested.
+   * <br>Any reaction that has not been added yet will never be added, and its future is cancelled.
+   */
+  public void cancel() {
+    cancelled = true;
+    progress.forEach(f -> f.cancel(false));
+    RUNNING.remove(message.getLongID(), this);
+  }
+
+  /**
+   * Gets a future that completes once the first {@code count} reactions have been added.
+   * <br>If adding any of them fails, the future completes exceptionally with the same cause.
+   *
+   * @param count The number of reactions to wait for
+   *
+   * @return The future, completing with the {@link IMessage} the reactions were added to
+   */
+  public CompletableFuture<IMessage> whenAdded(int count) {
+    if (count < 0 || count > reactions.size()) {
+      throw new IllegalArgumentException("Count must be between 0 and " + reactions.size());
+    }
+    return progress.get(count);
+  }
+
+  /**
+   * Gets a future that completes once every reaction has been added.
+   *
+   * @return The future, completing with the {@link IMessage} the reactions were added to
+   */
+  public CompletableFuture<IMessage> getCompletion() {
+    return progress.get(reactions.size());
+  }
+
+  /**
+   * Gets the number of reactions that have been added so far.
+   *
+   * @return The number of added reactions
+   */
+  public int getAdded() {
+    return added.get();
+  }
+
+  /**
+   * Gets the reactions this pipeline adds, in order.
+   *
+   * @return An unmodifiable list of the reactions
+   */
+  public List<ReactionEmoji> getReactions() {
+    return reactions;
+  }
+
+  /**
+   * Gets the bot's own reactions this pipeline removes one by one, which is none if it clears every
+   * reaction instead.
+   *
+   * @return An unmodifiable list of the reactions
+   */
+  List<ReactionEmoji> getStale() {
+    return Collections.unmodifiableList(stale);
+  }
+
+  private static boolean isUsed(ReactionEmoji emoji, List<ReactionEmoji> reactions) {
+    for (ReactionEmoji reaction : reactions) {
+      if (isSame(emoji, reaction)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isSame(ReactionEmoji a, ReactionEmoji b) {
+    if (a.isUnicode()) {
+      return b.isUnicode() && a.getName().equals(b.getName());
+    }
+    return !b.isUnicode() && a.getLongID() == b.getLongID();
+  }
+
+  private void next(int index) {
+    if (index >= reactions.size() || cancelled) {
+      RUNNING.remove(message.getLongID(), this);
+      return;
+    }
+    ReactionEmoji reaction = reactions.get(index);
+    RequestScheduler.request(message, Priority.SETUP, () -> {
+      if (!cancelled) {
+        message.addReaction(reaction);
+      }
+    }).whenComplete((v, e) -> {
+      if (e != null) {
+        fail(index, e);
+      } else if (!cancelled) {
+        progress.get(added.incrementAndGet()).complete(message);
+        next(index + 1);
+      }
+    });
+  }
+
+  /**
+   * Fails the futures of every reaction from {@code index} on, none of which will be added.
+   */
+  private void fail(int index, Throwable cause) {
+    RUNNING.remove(message.getLongID(), this);
+    for (int i = index + 1; i < progress.size(); i++) {
+      progress.get(i).completeExceptionally(cause);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package me.xaanit.d4jutilities.menu;
+
+import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.api.internal.json.objects.EmbedObject;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.util.MessageBuilder;
+
+/**
+ * The rendered content and {@link EmbedObject} of a single state of a {@link Menu}.
+ * <p>
+ * <p>A RenderedMenu is immutable and holds no reference to any {@link IChannel}, so a single
+ * render can be sent to as many channels as needed.
+ *
+ * @author Jacob (xaanit)
+ */
+public final class RenderedMenu {
+  private final String content;
+  private final EmbedObject embed;
+
+  /**
+   * Constructs a new RenderedMenu.
+   *
+   * @param content The text content of the message, or {@code null} for none
+   * @param embed   The embed of the message, or {@code null} for none
+   */
+  public RenderedMenu(String content, EmbedObject embed) {
+    this.content = content;
+    this.embed = embed;
+  }
+
+  /**
+   * Gets the text content of the message.
+   *
+   * @return The content, or {@code null} if there is none
+   */
+  public String getContent() {
+    return content;
+  }
+
+  /**
+   * Gets the embed of the message.
+   *
+   * @return The embed, or {@code null} if there is none
+   */
+  public EmbedObject getEmbed() {
+    return embed;
+  }
+
+  /**
+   * Sends this render as a new {@link IMessage}.
+   * <br>This performs a request and should be run through a request buffer.
+   *
+   * @param client  The client to send with
+   * @param channel The channel to send to
+   *
+   * @return The sent IMessage
+   */
+  public IMessage send(IDiscordClient client, IChannel channel) {
+    MessageBuilder builder = new MessageBuilder(client).withChannel(channel);
+    if (content != null) {
+      builder.withContent(content);
+    }
+    if (embed != null) {
+      builder.withEmbed(embed);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Edits the provided {@link IMessage} to show this render.
+   * <br>This performs a request and should be run through a request buffer.
+   *
+   * @param message The IMessage to edit
+   *
+   * @return The edited IMessage
+   */
+  public IMessage edit(IMessage message) {
+    return message.edit(content == null ? "" : content, embed);
+  }
+}
@@ -0,0 +1,529 @@
+package me.xaanit.d4jutilities.menu;
+
+import sx.blah.discord.handle.impl.obj.ReactionEmoji;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.handle.obj.IUser;
+import sx.blah.discord.handle.obj.Permissions;
+import sx.blah.discord.util.RateLimitException;
+import sx.blah.discord.util.RequestBuffer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Schedules the requests made by {@link Menu}s, so the ones users are waiting to see go first.
+ * <p>
+ * <p>Requests are queued per {@link IChannel}, which is the rate limit bucket of nearly every request a
+ * Menu makes, and only one request per channel is handed to the {@link RequestBuffer} at a time. Whenever
+ * a channel is free, its waiting request with the highest {@link Priority} is sent next. Requests of the
+ * same priority keep their order.
+ * <br>So a busy channel can not hold back lower priorities forever, a priority that has been passed over
+ * {@value #MAX_SKIPS} times in a row while it had requests waiting goes next.
+ * <p>
+ * <p>Waiting requests are also reduced where possible:
+ * <ul>
+ * <li>Edits of a message that have not been sent yet are merged, so only the latest one is sent.</li>
+ * <li>Deleting a message drops every request for it that has not been sent yet.</li>
+ * <li>Reaction removals from a message are batched. Once there are more of them than it takes to clear
+ * every reaction and add back the Menu's own, they are replaced by exactly that. The Menu's reactions
+ * are added back by a {@link ReactionPipeline}, which takes over from any other pipeline still adding
+ * reactions to the message.</li>
+ * </ul>
+ * <p>
+ * <p>Requests that return a value should use a block body ({@code () -> {return ...;}}) so they are not
+ * mistaken for an {@link RequestBuffer.IVoidRequest IVoidRequest}.
+ *
+ * @author Jacob (xaanit)
+ */
+public final class RequestScheduler {
+  private static final Map<Long, Bucket> BUCKETS = new ConcurrentHashMap<>();
+  private static final int MAX_SKIPS = 4;
+
+  private RequestScheduler() {
+  }
+
+  /**
+   * How soon a request is sent compared to the others waiting in its channel.
+   */
+  public enum Priority {
+    /**
+     * Requests a user is waiting to see, like sending a Menu or turning a page.
+     */
+    INTERACTIVE,
+    /**
+     * Requests that make a Menu usable, like adding its reactions.
+     */
+    SETUP,
+    /**
+     * Requests nobody is waiting on, like deleting a finished Menu or removing a user's reaction.
+     */
+    CLEANUP
+  }
+
+  /**
+   * Queues a request that returns a value in a channel.
+   *
+   * @param channel  The IChannel the request is made in
+   * @param priority The Priority of the request
+   * @param request  The request to queue
+   * @param <T>      The type the request returns
+   *
+   * @return A future that completes with the request's result, or exceptionally with any non-rate-limit
+   * exception it throws
+   */
+  public static <T> CompletableFuture<T> request(IChannel channel, Priority priority,
+                                                 RequestBuffer.IRequest<T> request) {
+    Request<T> task = new Request<>(0, priority, request);
+    submit(channel.getLongID(), task);
+    return task.future;
+  }
+
+  /**
+   * Queues a request that does not return a value in a channel.
+   *
+   * @param channel  The IChannel the request is made in
+   * @param priority The Priority of the request
+   * @param request  The request to queue
+   *
+   * @return A future that completes once the request is done, or exceptionally with any non-rate-limit
+   * exception it throws
+   */
+  public static CompletableFuture<Void> request(IChannel channel, Priority priority,
+                                                RequestBuffer.IVoidRequest request) {
+    return request(channel, priority, () -> {
+      request.doRequest();
+      return (Void) null;
+    });
+  }
+
+  /**
+   * Queues a request that returns a value about a message.
+   * <br>If the message is deleted through {@link #delete(IMessage)} before the request is sent, it is
+   * dropped and the future is cancelled.
+   *
+   * @param message  The IMessage the request is about
+   * @param priority The Priority of the request
+   * @param request  The request to queue
+   * @param <T>      The type the request returns
+   *
+   * @return A future that completes with the request's result, or exceptionally with any non-rate-limit
+   * exception it throws
+   */
+  public static <T> CompletableFuture<T> request(IMessage message, Priority priority,
+                                                 RequestBuffer.IRequest<T> request) {
+    Request<T> task = new Request<>(message.getLongID(), priority, request);
+    submit(message.getChannel().getLongID(), task);
+    return task.future;
+  }
+
+  /**
+   * Queues a request that does not return a value about a message.
+   * <br>If the message is deleted through {@link #delete(IMessage)} before the request is sent, it is
+   * dropped and the future is cancelled.
+   *
+   * @param message  The IMessage the request is about
+   * @param priority The Priority of the request
+   * @param request  The request to queue
+   *
+   * @return A future that completes once the request is done, or exceptionally with any non-rate-limit
+   * exception it throws
+   */
+  public static CompletableFuture<Void> request(IMessage message, Priority priority,
+                                                RequestBuffer.IVoidRequest request) {
+    return request(message, priority, () -> {
+      request.doRequest();
+      return (Void) null;
+    });
+  }
+
+  /**
+   * Queues an {@link Priority#INTERACTIVE INTERACTIVE} edit of a message to show a render.
+   * <br>If an earlier edit of the same message is still waiting, it shows this render instead, and both
+   * share the same future.
+   *
+   * @param message The IMessage to edit
+   * @param render  The render to show
+   *
+   * @return A future that completes with the edited IMessage
+   */
+  public static CompletableFuture<IMessage> edit(IMessage message, RenderedMenu render) {
+    long id = message.getLongID();
+    Edit[] edit = new Edit[1];
+    boolean[] start = new boolean[1];
+    BUCKETS.compute(message.getChannel().getLongID(), (k, bucket) -> {
+      if (bucket == null) {
+        bucket = new Bucket();
+        start[0] = true;
+      }
+      edit[0] = bucket.edits.get(id);
+      if (edit[0] == null) {
+        edit[0] = new Edit(message, render);
+        bucket.edits.put(id, edit[0]);
+        bucket.add(edit[0]);
+      } else {
+        edit[0].render = render;
+      }
+      return bucket;
+    });
+    if (start[0]) {
+      advance(message.getChannel().getLongID());
+    }
+    return edit[0].future;
+  }
+
+  /**
+   * Queues a {@link Priority#CLEANUP CLEANUP} delete of a message, dropping every request about it that
+   * has not been sent yet.
+   *
+   * @param message The IMessage to delete
+   *
+   * @return A future that completes once the message is deleted
+   */
+  public static CompletableFuture<Void> delete(IMessage message) {
+    long id = message.getLongID();
+    List<Task> dropped = new ArrayList<>();
+    BUCKETS.computeIfPresent(message.getChannel().getLongID(), (k, bucket) -> {
+      bucket.removeAll(id, dropped);
+      return bucket;
+    });
+    dropped.forEach(Task::drop);
+    return request(message, Priority.CLEANUP, () -> message.delete());
+  }
+
+  /**
+   * Queues a {@link Priority#CLEANUP CLEANUP} removal of a user's reaction from a message.
+   * <br>Nothing is queued if the bot is not allowed to remove it, or if the same removal is already waiting.
+   *
+   * @param message  The IMessage to remove the reaction from
+   * @param user     The IUser whose reaction to remove
+   * @param emoji    The emoji of the reaction
+   * @param controls The reactions the message should keep, which are added back if every reaction is cleared
+   */
+  public static void removeReaction(IMessage message, IUser user, ReactionEmoji emoji,
+                                    List<ReactionEmoji> controls) {
+    IChannel channel = message.getChannel();
+    IUser self = message.getClient().getOurUser();
+    boolean own = user.getLongID() == self.getLongID();
+    boolean manage = !channel.isPrivate()
+                             && channel.getModifiedPermissions(self).contains(Permissions.MANAGE_MESSAGES);
+    if (!own && !manage) {
+      return;
+    }
+    long id = message.getLongID();
+    boolean[] start = new boolean[1];
+    BUCKETS.compute(channel.getLongID(), (k, bucket) -> {
+      if (bucket == null) {
+        bucket = new Bucket();
+        start[0] = true;
+      }
+      Removals removals = bucket.removals.get(id);
+      if (removals == null) {
+        removals = new Removals(message);
+        bucket.removals.put(id, removals);
+        bucket.add(removals);
+      }
+      removals.add(user, emoji, controls, manage);
+      return bucket;
+    });
+    if (start[0]) {
+      advance(channel.getLongID());
+    }
+  }
+
+  private static void submit(long channel, Task task) {
+    boolean[] start = new boolean[1];
+    BUCKETS.compute(channel, (k, bucket) -> {
+      if (bucket == null) {
+        bucket = new Bucket();
+        start[0] = true;
+      }
+      bucket.add(task);
+      return bucket;
+    });
+    if (start[0]) {
+      advance(channel);
+    }
+  }
+
+  /**
+   * Sends the next request of a channel, or forgets the channel if nothing is waiting.
+   * <br>A channel is in {@link #BUCKETS} exactly while one of its requests is in flight, which is what
+   * keeps it to one at a time.
+   */
+  private static void advance(long channel) {
+    Task[] next = new Task[1];
+    BUCKETS.computeIfPresent(channel, (k, bucket) -> {
+      next[0] = bucket.poll();
+      return next[0] == null ? null : bucket;
+    });
+    if (next[0] == null) {
+      return;
+    }
+    Task task = next[0];
+    RequestBuffer.request(() -> {
+      boolean retry = false;
+      try {
+        task.run();
+      } catch (RateLimitException e) {
+        // The RequestBuffer runs this again, so the channel stays in flight.
+        retry = true;
+        throw e;
+      } finally {
+        if (!retry) {
+          BUCKETS.computeIfPresent(channel, (k, bucket) -> {
+            bucket.finished(task);
+            return bucket;
+          });
+          advance(channel);
+        }
+      }
+    });
+  }
+
+  /**
+   * The waiting requests of a single channel. Only ever touched from inside {@link #BUCKETS}' compute
+   * methods, which are what keep it consistent.
+   */
+  private static final class Bucket {
+    private final List<Deque<Task>> lanes = new ArrayList<>(Priority.values().length);
+    private final int[] skipped = new int[Priority.values().length];
+    private final Map<Long, Edit> edits = new HashMap<>();
+    private final Map<Long, Removals> removals = new HashMap<>();
+
+    Bucket() {
+      for (int i = 0; i < Priority.values().length; i++) {
+        lanes.add(new ArrayDeque<>());
+      }
+    }
+
+    void add(Task task) {
+      lanes.get(task.priority.ordinal()).addLast(task);
+    }
+
+    /**
+     * Takes the next task, from the highest priority lane with any waiting, unless a lower lane has been
+     * passed over too often.
+     */
+    Task poll() {
+      int chosen = -1;
+      for (int i = 0; i < lanes.size(); i++) {
+        if (!lanes.get(i).isEmpty() && (chosen == -1 || skipped[i] >= MAX_SKIPS)) {
+          chosen = i;
+        }
+      }
+      if (chosen == -1) {
+        return null;
+      }
+      for (int i = 0; i < lanes.size(); i++) {
+        skipped[i] = i == chosen || lanes.get(i).isEmpty() ? 0 : skipped[i] + 1;
+      }
+      Task task = lanes.get(chosen).pollFirst();
+      if (task instanceof Edit) {
+        edits.remove(task.message);
+      }
+      return task;
+    }
+
+    void finished(Task task) {
+      if (task.hasMore()) {
+        lanes.get(task.priority.ordinal()).addFirst(task);
+      } else if (task instanceof Removals) {
+        removals.remove(task.message, task);
+      }
+    }
+
+    void removeAll(long message, List<Task> dropped) {
+      for (Deque<Task> lane : lanes) {
+        for (Iterator<Task> it = lane.iterator(); it.hasNext(); ) {
+          Task task = it.next();
+          if (task.message == message) {
+            it.remove();
+            dropped.add(task);
+          }
+        }
+      }
+      edits.remove(message);
+      removals.remove(message);
+    }
+  }
+
+  private abstract static class Task {
+    final long message;
+    final Priority priority;
+
+    Task(long message, Priority priority) {
+      this.message = message;
+      this.priority = priority;
+    }
+
+    /**
+     * Makes a single request, letting any {@link RateLimitException} through so it is retried.
+     */
+    abstract void run();
+
+    /**
+     * Checks whether this task has more requests to make, in which case it goes back to the front of its lane.
+     */
+    boolean hasMore() {
+      return false;
+    }
+
+    /**
+     * Gives up on this task before it was sent.
+     */
+    abstract void drop();
+  }
+
+  private static class Request<T> extends Task {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    private final RequestBuffer.IRequest<T> request;
+
+    Request(long message, Priority priority, RequestBuffer.IRequest<T> request) {
+      super(message, priority);
+      this.request = request;
+    }
+
+    @Override
+    void run() {
+      T result;
+      try {
+        result = request.request();
+      } catch (RateLimitException e) {
+        throw e;
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+        return;
+      }
+      future.complete(result);
+    }
+
+    @Override
+    void drop() {
+      future.cancel(false);
+    }
+  }
+
+  private static final class Edit extends Task {
+    final CompletableFuture<IMessage> future = new CompletableFuture<>();
+    private final IMessage target;
+    private volatile RenderedMenu render;
+
+    Edit(IMessage target, RenderedMenu render) {
+      super(target.getLongID(), Priority.INTERACTIVE);
+      this.target = target;
+      this.render = render;
+    }
+
+    @Override
+    void run() {
+      IMessage result;
+      try {
+        result = render.edit(target);
+      } catch (RateLimitException e) {
+        throw e;
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+        return;
+      }
+      future.complete(result);
+    }
+
+    @Override
+    void drop() {
+      future.cancel(false);
+    }
+  }
+
+  /**
+   * Every waiting reaction removal from a single message, made one request at a time.
+   */
+  private static final class Removals extends Task {
+    private final IMessage target;
+    private final Map<String, Removal> pending = new LinkedHashMap<>();
+    private List<ReactionEmoji> controls;
+    private boolean manage;
+
+    Removals(IMessage target) {
+      super(target.getLongID(), Priority.CLEANUP);
+      this.target = target;
+    }
+
+    synchronized void add(IUser user, ReactionEmoji emoji, List<ReactionEmoji> controls, boolean manage) {
+      Removal removal = new Removal(user, emoji);
+      pending.putIfAbsent(removal.key, removal);
+      this.controls = controls;
+      this.manage = manage;
+    }
+
+    @Override
+    void run() {
+      Removal removal;
+      List<ReactionEmoji> readd;
+      synchronized (this) {
+        if (pending.isEmpty()) {
+          return;
+        }
+        boolean clear = manage && pending.size() > controls.size() + 1;
+        removal = clear ? null : pending.values().iterator().next();
+        readd = clear ? controls : null;
+      }
+      boolean retry = false;
+      try {
+        if (removal == null) {
+          target.removeAllReactions();
+        } else {
+          target.removeReaction(removal.user, removal.emoji);
+        }
+      } catch (RateLimitException e) {
+        retry = true;
+        throw e;
+      } catch (RuntimeException e) {
+        // Leaving a reaction behind is only cosmetic.
+      } finally {
+        // Anything but a rate limit drops the removal, so it is not tried again forever.
+        if (!retry) {
+          synchronized (this) {
+            if (removal == null) {
+              pending.clear();
+            } else {
+              pending.remove(removal.key);
+            }
+          }
+        }
+      }
+      if (readd != null) {
+        ReactionPipeline.afterClear(target, readd, target.getClient().getOurUser()).start();
+      }
+    }
+
+    @Override
+    synchronized boolean hasMore() {
+      return !pending.isEmpty();
+    }
+
+    @Override
+    void drop() {
+    }
+  }
+
+  private static final class Removal {
+    final IUser user;
+    final ReactionEmoji emoji;
+    final String key;
+
+    Removal(IUser user, ReactionEmoji emoji) {
+      this.user = user;
+      this.emoji = emoji;
+      this.key = user.getLongID() + ":" + (emoji.isUnicode() ? emoji.getName() : emoji.getLongID());
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package me.xaanit.d4jutilities.menu;
+
+import sx.blah.discord.handle.obj.IMessage;
+
+import java.util.function.Consumer;
+
+/**
+ * What a {@link MenuSession} does in response to an input or update, as declared by the input handler of
+ * a {@link MenuEngine}.
+ * <p>
+ * <p>Transitions are plain values. Creating one does nothing by itself, so an input handler can decide
+ * what an input means without any side effects, and the engine only carries it out once it knows the
+ * input is from someone allowed to use the Menu.
+ *
+ * @param <S> The type of the states of the Menu
+ *
+ * @author Jacob (xaanit)
+ */
+public final class Transition<S> {
+  private static final Transition<?> IGNORE = new Transition<>(Kind.IGNORE, null, null);
+  private static final Transition<?> STAY = new Transition<>(Kind.STAY, null, null);
+
+  final Kind kind;
+  final S state;
+  final Consumer<IMessage> teardown;
+
+  private Transition(Kind kind, S state, Consumer<IMessage> teardown) {
+    this.kind = kind;
+    this.state = state;
+    this.teardown = teardown;
+  }
+
+  /**
+   * The input is not one the Menu takes in its current state. It does not count as activity, so it does
+   * not hold off the timeout.
+   *
+   * @param <S> The type of the states of the Menu
+   *
+   * @return The Transition
+   */
+  @SuppressWarnings("unchecked")
+  public static <S> Transition<S> ignore() {
+    return (Transition<S>) IGNORE;
+  }
+
+  /**
+   * The input is taken, but the Menu stays in the state it is in.
+   *
+   * @param <S> The type of the states of the Menu
+   *
+   * @return The Transition
+   */
+  @SuppressWarnings("unchecked")
+  public static <S> Transition<S> stay() {
+    return (Transition<S>) STAY;
+  }
+
+  /**
+   * The Menu moves to a new state. The message is only edited if the new state is not
+   * {@link Object#equals(Object) equal} to the current one.
+   *
+   * @param state The new state
+   * @param <S>   The type of the states of the Menu
+   *
+   * @return The Transition
+   */
+  public static <S> Transition<S> to(S state) {
+    return new Transition<>(Kind.MOVE, state, null);
+  }
+
+  /**
+   * The Menu moves to a new state that looks the same as the current one, so the message is not edited.
+   *
+   * @param state The new state
+   * @param <S>   The type of the states of the Menu
+   *
+   * @return The Transition
+   */
+  public static <S> Transition<S> replace(S state) {
+    return new Transition<>(Kind.REPLACE, state, null);
+  }
+
+  /**
+   * The Menu is done, and the message is left to the provided teardown, which may for example delete it.
+   *
+   * @param teardown The Consumer receiving the message once the session has ended
+   * @param <S>      The type of the states of the Menu
+   *
+   * @return The Transition
+   */
+  public static <S> Transition<S> end(Consumer<IMessage> teardown) {
+    return new Transition<>(Kind.END, null, teardown);
+  }
+
+  /**
+   * The Menu is done, and the message is handed on to be used by something else, such as another Menu.
+   * <br>Unlike {@link #end(Consumer)}, the reaction that was used is removed first, so it can be used again.
+   *
+   * @param next The Consumer receiving the message once the session has ended
+   * @param <S>  The type of the states of the Menu
+   *
+   * @return The Transition
+   */
+  public static <S> Transition<S> handOff(Consumer<IMessage> next) {
+    return new Transition<>(Kind.HAND_OFF, null, next);
+  }
+
+  enum Kind {
+    IGNORE, STAY, MOVE, REPLACE, END, HAND_OFF
+  }
+}
@@ -3,18 +3,22 @@ package me.xaanit.d4jutilities.menu.buttonmenu;
 import me.xaanit.d4jutilities.menu.*;
 import me.xaanit.d4jutilities.waiter.EventWaiter;
 import sx.blah.discord.api.IDiscordClient;
-import sx.blah.discord.handle.impl.events.guild.channel.message.reaction.ReactionAddEvent;
 import sx.blah.discord.handle.impl.obj.ReactionEmoji;
 import sx.blah.discord.handle.obj.*;
 import sx.blah.discord.util.EmbedBuilder;
-import sx.blah.discord.util.MessageBuilder;
-import sx.blah.discord.util.RequestBuffer;
 
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 
 /**
@@ -25,92 +29,96 @@ public class ButtonMenu extends Menu {
   private final Color color;
   private final String text;
   private final String description;
-  private final List<String> choices;
+  private final List<ReactionEmoji> choices;
+  private final Map<String, ReactionEmoji> unicodeChoices = new HashMap<>();
+  private final Map<Long, ReactionEmoji> customChoices = new HashMap<>();
   private final Consumer<ReactionEmoji> action;
+  private final BiConsumer<IMessage, ReactionEmoji> chainedAction;
   private final Runnable cancel;
+  private final MenuEngine<Void> engine;
+
+  private static final Pattern CUSTOM_EMOJI = Pattern.compile("<a?:\\w+:(\\d{1,19})>");
 
   protected ButtonMenu(EventWaiter waiter, Set<IUser> users, Set<IRole> roles, long timeout, TimeUnit unit,
-                       Color color, String text, String description, List<String> choices, Consumer<ReactionEmoji>
-                                                                                                   action, Runnable cancel, IDiscordClient client) {
-    super(waiter, users, roles, timeout, unit, client);
+                       Color color, String text, String description, List<ReactionEmoji> choices, Consumer<ReactionEmoji>
+                                                                                                   action,
+                       BiConsumer<IMessage, ReactionEmoji> chainedAction, Runnable cancel, boolean useReactions,
+                       IDiscordClient client) {
+    super(waiter, users, roles, timeout, unit, useReactions, client);
     this.color = color;
     this.text = text;
     this.description = description;
-    this.choices = choices;
+    this.choices = Collections.unmodifiableList(new ArrayList<>(choices));
+    for (ReactionEmoji choice : this.choices) {
+      if (choice.isUnicode()) {
+        unicodeChoices.put(choice.getName(), choice);
+      } else {
+        customChoices.put(choice.getLongID(), choice);
+      }
+    }
     this.action = action;
+    this.chainedAction = chainedAction;
     this.cancel = cancel;
+    this.engine = new MenuEngineBuilder<Void>(this)
+            .setRenderer(state -> render())
+            .setInputHandler(this::onInput)
+            .setReactionInput(useReactions)
+            .setTextInput(!useReactions)
+            .setTimeoutAction(m -> cancel.run())
+            .build();
   }
 
-  /**
-   * Shows the ButtonMenu as a new {@link IMessage}
-   * in the provided {@link IChannel}.
-   *
-   * @param channel The IChannel to send the new IMessage to
-   */
   @Override
-  public void display(IChannel channel) {
-    initialize(RequestBuffer.request(() -> {return getMessage(channel).build();}).get());
+  protected RenderedMenu render() {
+    return new RenderedMenu(text,
+            description == null ? null : new EmbedBuilder().withColor(color).withDesc(description).build());
   }
 
-  /**
-   * Displays this ButtonMenu by editing the provided {@link IMessage}.
-   *
-   * @param message The IMessage to display the Menu in
-   */
   @Override
-  public void display(IMessage message) {
-    MessageBuilder builder = getMessage(message.getChannel());
-    initialize(message.edit(builder.getContent(), builder.getEmbedObject()));
+  protected List<ReactionEmoji> getReactions() {
+    return choices;
   }
 
-  private void initialize(IMessage m) {
-    for (int i = 0; i < choices.size(); i++) {
-      IEmoji emote;
-      try {
-        emote = null;
-        for (IGuild guild : m.getClient().getGuilds()) {
-          emote = emote == null ? guild.getEmojiByID(Long.parseLong((choices.get(i)))) : emote;
-        }
-      } catch (Exception e) {
-        emote = null;
-      }
-      ReactionEmoji reaction = emote == null ? ReactionEmoji.of(choices.get(i)) : ReactionEmoji.of(emote);
-      if (i + 1 < choices.size()) {
-        RequestBuffer.request(() -> m.addReaction(reaction));
-      } else {
-        RequestBuffer.request(() -> m.addReaction(reaction)).get();
-        waiter.waitForEvent(ReactionAddEvent.class, e -> {
-          ReactionAddEvent event = (ReactionAddEvent) e;
-
-          if (!event.getMessage().getStringID().equals(m.getStringID())) {
-            return false;
-          }
-          String re = !event.getReaction().getEmoji().isUnicode()
-                              ? event.getReaction().getEmoji().getStringID()
-                              : event.getReaction().getEmoji().getName();
-          if (!choices.contains(re)) {
-            return false;
-          }
-          return isValidUser(event);
-        }, (ReactionAddEvent event) -> {
-          RequestBuffer.request(() -> m.delete());
-          action.accept(event.getReaction().getEmoji());
-        }, timeout, unit, cancel);
+  @Override
+  protected IMessage begin(IMessage m, List<ReactionEmoji> reactions) {
+    engine.start(m, null, reactions);
+    return m;
+  }
 
-      }
+  /**
+   * Chooses whatever the input stands for, either handing the message on to the chained action or
+   * deleting it.
+   */
+  private Transition<Void> onInput(Void state, MenuInput input) {
+    ReactionEmoji choice = input.isReaction() ? getChoice(input.getEmoji()) : getTypedChoice(input.getText());
+    if (choice == null) {
+      return Transition.ignore();
     }
+    if (chainedAction != null) {
+      return Transition.handOff(m -> chainedAction.accept(m, choice));
+    }
+    return Transition.end(m -> {
+      RequestScheduler.delete(m);
+      action.accept(choice);
+    });
   }
 
-  private MessageBuilder getMessage(IChannel channel) {
-    MessageBuilder builder = new MessageBuilder(client);
-    builder.withChannel(channel);
-    if (text != null) {
-      builder.withContent(text);
-    }
-    if (description != null) {
-      builder.withEmbed(new EmbedBuilder().withColor(color).withDesc(description).build());
+  /**
+   * Gets the choice typed in a message, which is either a unicode emoji or a custom emoji in its
+   * {@code <:name:id>} form.
+   *
+   * @return The chosen emoji, or {@code null} if the message is not exactly one of the choices
+   */
+  private ReactionEmoji getTypedChoice(String content) {
+    String trimmed = content.trim();
+    Matcher matcher = CUSTOM_EMOJI.matcher(trimmed);
+    if (matcher.matches()) {
+      return customChoices.get(Long.parseUnsignedLong(matcher.group(1)));
     }
-    return builder;
+    return unicodeChoices.get(trimmed);
   }
 
-}
\ No newline at end of file
+  private ReactionEmoji getChoice(ReactionEmoji emoji) {
+    return emoji.isUnicode() ? unicodeChoices.get(emoji.getName()) : customChoices.get(emoji.getLongID());
+  }
+}
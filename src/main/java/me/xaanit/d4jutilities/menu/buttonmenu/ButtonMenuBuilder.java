@@ -1,15 +1,19 @@
 package me.xaanit.d4jutilities.menu.buttonmenu;
 
+import me.xaanit.d4jutilities.entities.EmojiIndex;
 import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.handle.impl.obj.ReactionEmoji;
 import sx.blah.discord.handle.obj.IEmoji;
+import sx.blah.discord.handle.obj.IMessage;
 import me.xaanit.d4jutilities.menu.*;
 
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 
@@ -24,6 +28,7 @@ public class ButtonMenuBuilder extends MenuBuilder<ButtonMenuBuilder, ButtonMenu
   private String description;
   private final List<String> choices = new LinkedList<>();
   private Consumer<ReactionEmoji> action;
+  private BiConsumer<IMessage, ReactionEmoji> chainedAction;
   private Runnable cancel = () -> {};
   private IDiscordClient client;
 
@@ -35,7 +40,7 @@ public class ButtonMenuBuilder extends MenuBuilder<ButtonMenuBuilder, ButtonMenu
     if (choices.isEmpty()) {
       throw new IllegalArgumentException("Must have at least one choice");
     }
-    if (action == null) {
+    if (action == null && chainedAction == null) {
       throw new IllegalArgumentException("Must provide an action consumer");
     }
     if (text == null && description == null) {
@@ -44,8 +49,13 @@ public class ButtonMenuBuilder extends MenuBuilder<ButtonMenuBuilder, ButtonMenu
     if (client == null) {
       throw new IllegalArgumentException("Client can not be null");
     }
-    return new ButtonMenu(waiter, users, roles, timeout, unit, color, text, description, choices, action, cancel,
-                                 client);
+    EmojiIndex index = EmojiIndex.of(client);
+    List<ReactionEmoji> resolved = new ArrayList<>(choices.size());
+    for (String choice : choices) {
+      resolved.add(index.resolve(choice));
+    }
+    return new ButtonMenu(waiter, users, roles, timeout, unit, color, text, description, resolved, action,
+                                 chainedAction, cancel, useReactions, client);
   }
 
   /**
@@ -99,6 +109,27 @@ public class ButtonMenuBuilder extends MenuBuilder<ButtonMenuBuilder, ButtonMenu
    */
   public ButtonMenuBuilder setAction(Consumer<ReactionEmoji> action) {
     this.action = action;
+    this.chainedAction = null;
+    return this;
+  }
+
+  /**
+   * Sets the {@link BiConsumer BiConsumer} action to perform upon selecting a button, in place of
+   * {@link #setAction(Consumer)}.
+   * <p>
+   * <p>Unlike a regular action, the {@link ButtonMenu}'s {@link IMessage} is not deleted. It is passed to
+   * the action instead, so the next {@link Menu} can be displayed on it with {@link Menu#display(IMessage)}.
+   * Only the content and the reactions that differ are changed, which takes far fewer requests than
+   * sending a new message.
+   * <br>The reaction used to select the button is removed, so the next Menu can use it again.
+   *
+   * @param action The BiConsumer action to perform upon selecting a button
+   *
+   * @return This builder
+   */
+  public ButtonMenuBuilder setChainedAction(BiConsumer<IMessage, ReactionEmoji> action) {
+    this.chainedAction = action;
+    this.action = null;
     return this;
   }
 
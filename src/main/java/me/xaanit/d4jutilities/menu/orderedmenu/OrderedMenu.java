@@ -1,26 +1,38 @@
 package me.xaanit.d4jutilities.menu.orderedmenu;
 
 import me.xaanit.d4jutilities.menu.Menu;
+import me.xaanit.d4jutilities.menu.MenuEngine;
+import me.xaanit.d4jutilities.menu.MenuEngineBuilder;
+import me.xaanit.d4jutilities.menu.MenuInput;
+import me.xaanit.d4jutilities.menu.RenderedMenu;
+import me.xaanit.d4jutilities.menu.RequestScheduler;
+import me.xaanit.d4jutilities.menu.Transition;
 import me.xaanit.d4jutilities.waiter.EventWaiter;
 import sx.blah.discord.api.IDiscordClient;
-import sx.blah.discord.api.events.Event;
-import sx.blah.discord.handle.impl.events.guild.channel.message.MessageReceivedEvent;
-import sx.blah.discord.handle.impl.events.guild.channel.message.reaction.ReactionAddEvent;
 import sx.blah.discord.handle.impl.obj.ReactionEmoji;
 import sx.blah.discord.handle.obj.*;
 import sx.blah.discord.util.EmbedBuilder;
-import sx.blah.discord.util.MessageBuilder;
 import sx.blah.discord.util.MissingPermissionsException;
-import sx.blah.discord.util.RequestBuffer;
 
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
+ * A {@link Menu} of numbered or lettered choices, selected by reaction or by typing.
+ * <p>
+ * <p>Choices are shown ten at a time. With more than ten, the Menu gets buttons to turn the page, and the
+ * reactions always stand for the positions on the current page.
+ *
  * @author John Grosh
  * @editor Jacob (xaanit)
  */
@@ -30,6 +42,7 @@ public class OrderedMenu extends Menu {
   private final String description;
   private final List<String> choices;
   private final Consumer<Integer> action;
+  private final BiConsumer<IMessage, Integer> chainedAction;
   private final Runnable cancel;
   private final boolean useLetters;
   private final boolean allowTypedInput;
@@ -41,166 +54,184 @@ public class OrderedMenu extends Menu {
           "\uD83C\uDDE9", "\uD83C\uDDEA", "\uD83C\uDDEB", "\uD83C\uDDEC", "\uD83C\uDDED", "\uD83C\uDDEE",
           "\uD83C\uDDEF" };
   public final static String CANCEL = "\u274C";
+  public final static String LEFT = "\u25C0";
+  public final static String RIGHT = "\u25B6";
+
+  /**
+   * The number of choices shown on each page.
+   */
+  public final static int PAGE_SIZE = 10;
+
+  private static final Map<String, Integer> NUMBER_SLOTS = slots(NUMBERS);
+  private static final Map<String, Integer> LETTER_SLOTS = slots(LETTERS);
+
+  private static final int MAX_CACHED_PAGES = 64;
+
+  private final int pages;
+  private final MenuEngine<Integer> engine;
 
   protected OrderedMenu(EventWaiter waiter, Set<IUser> users, Set<IRole> roles, long timeout, TimeUnit unit,
                         Color color, String text, String description, List<String> choices, Consumer<Integer> action,
-                        Runnable cancel,
-                        boolean useLetters, boolean allowTypedInput, boolean useCancel, IDiscordClient client) {
-    super(waiter, users, roles, timeout, unit, client);
+                        BiConsumer<IMessage, Integer> chainedAction, Runnable cancel,
+                        boolean useLetters, boolean allowTypedInput, boolean useCancel, boolean useReactions,
+                        IDiscordClient client) {
+    super(waiter, users, roles, timeout, unit, useReactions, client);
     this.color = color;
     this.text = text;
     this.description = description;
-    this.choices = choices;
+    this.choices = Collections.unmodifiableList(new ArrayList<>(choices));
     this.action = action;
+    this.chainedAction = chainedAction;
     this.cancel = cancel;
     this.useLetters = useLetters;
     this.allowTypedInput = allowTypedInput;
     this.useCancel = useCancel;
+    this.pages = Math.max(1, (this.choices.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+    this.engine = new MenuEngineBuilder<Integer>(this)
+            .setRenderer(this::render)
+            .setInputHandler(this::onInput)
+            .setReactionInput(useReactions)
+            .setTextInput(allowTypedInput || !useReactions)
+            .setTimeoutAction(m -> cancel.run())
+            .setMaxCachedRenders(MAX_CACHED_PAGES)
+            .build();
   }
 
-  /**
-   * Shows the OrderedMenu as a new {@link IMessage}
-   * in the provided {@link IChannel}.
-   *
-   * @param channel The IChannel to send the new IMessage to
-   */
   @Override
-  public void display(IChannel channel) {
+  protected void validate(IChannel channel) {
     if (!channel.isPrivate()
+                && useReactions
                 && !allowTypedInput
                 && !channel.getModifiedPermissions(client.getOurUser()).contains(Permissions.ADD_REACTIONS)) {
       throw new MissingPermissionsException("Must be able to add reactions if not allowing typed input!", EnumSet.of(Permissions.ADD_REACTIONS));
     }
-    initialize(RequestBuffer.request(() -> {return getMessage(channel).build();}).get());
   }
 
-  /**
-   * Displays this OrderedMenu by editing the provided
-   * {@link IMessage}.
-   *
-   * @param message The IMessage to display the Menu in
-   */
   @Override
-  public void display(IMessage message) {
-    if (!message.getChannel().isPrivate()
-                && !allowTypedInput
-                && !message.getChannel().getModifiedPermissions(client.getOurUser()).contains(Permissions
-                                                                                                      .ADD_REACTIONS)) {
-      throw new MissingPermissionsException("Must be able to add reactions if not allowing typed input!", EnumSet.of(Permissions.ADD_REACTIONS));
-    }
-    MessageBuilder builder = getMessage(message.getChannel());
-    initialize(RequestBuffer.request(() -> {
-      return message.edit(builder.getContent(), builder.getEmbedObject());
-    }).get());
-  }
-
-  private void initialize(IMessage m) {
-    try {
-      for (int i = 1; i <= choices.size(); i++) {
-        if (i < choices.size()) {
-          ReactionEmoji reaction = ReactionEmoji.of(getEmoji(i));
-          RequestBuffer.request(() -> m.addReaction(reaction));
-        } else {
-          ReactionEmoji reaction = ReactionEmoji.of(getEmoji(i));
-          RequestBuffer.IVoidRequest request = () -> m.addReaction(reaction);
-          if (useCancel) {
-            RequestBuffer.request(request);
-            request = () -> m.addReaction(ReactionEmoji.of(CANCEL));
-          }
-          RequestBuffer.request(request).get();
-          if (allowTypedInput) {
-            waitGeneric(m);
-          } else {
-            waitReactionOnly(m);
-          }
-        }
-      }
-    } catch (MissingPermissionsException ex) {
-      if (allowTypedInput) {
-        waitGeneric(m);
-      } else {
-        waitReactionOnly(m);
+  protected RenderedMenu render() {
+    return render(1);
+  }
+
+  private RenderedMenu render(int page) {
+    StringBuilder sb = new StringBuilder();
+    int start = (page - 1) * PAGE_SIZE;
+    for (int i = start; i < Math.min(choices.size(), start + PAGE_SIZE); i++) {
+      sb.append("\n").append(getEmoji(i - start + 1)).append(" ");
+      if (pages > 1 && !useLetters) {
+        sb.append("`").append(i + 1).append(".` ");
       }
+      sb.append(choices.get(i));
     }
+    EmbedBuilder ebuilder = new EmbedBuilder().withColor(color).withDesc(description == null ? sb.toString() :
+                                                                                 description + sb.toString());
+    if (pages > 1) {
+      ebuilder.withFooterText("Page " + page + "/" + pages);
+    }
+    return new RenderedMenu(text, ebuilder.build());
   }
 
-  private void waitGeneric(IMessage m) {
-    waiter.waitForEvent(Event.class, e -> {
-      if (e instanceof ReactionAddEvent) {
-        return isValidReaction(m, (ReactionAddEvent) e);
-      }
-      if (e instanceof MessageReceivedEvent) {
-        return isValidIMessage(m, (MessageReceivedEvent) e);
-      }
-      return false;
-    }, e -> {
-      RequestBuffer.request(() -> m.delete());
-      if (e instanceof ReactionAddEvent) {
-        ReactionAddEvent event = (ReactionAddEvent) e;
-        if (event.getReaction().getEmoji().getName().equals(CANCEL)) {
-          cancel.run();
-        } else {
-          action.accept(getNumber(event.getReaction().getEmoji().getName()));
-        }
-      } else if (e instanceof MessageReceivedEvent) {
-        MessageReceivedEvent event = (MessageReceivedEvent) e;
-        int num = getIMessageNumber(event.getMessage().getContent());
-        if (num < 0 || num > choices.size()) {
-          cancel.run();
-        } else {
-          action.accept(num);
-        }
-      }
-    }, timeout, unit, cancel);
-  }
-
-  private void waitReactionOnly(IMessage m) {
-    waiter.waitForEvent(ReactionAddEvent.class, e -> {
-      return isValidReaction(m, e);
-    }, e -> {
-      RequestBuffer.request(() -> m.delete());
-      if (e.getReaction().getEmoji().getName().equals(CANCEL)) {
-        cancel.run();
-      } else {
-        action.accept(getNumber(e.getReaction().getEmoji().getName()));
-      }
-    }, timeout, unit, cancel);
+  @Override
+  protected List<ReactionEmoji> getReactions() {
+    List<ReactionEmoji> reactions = new ArrayList<>(PAGE_SIZE + 3);
+    if (pages > 1) {
+      reactions.add(ReactionEmoji.of(LEFT));
+    }
+    for (int i = 1; i <= Math.min(choices.size(), PAGE_SIZE); i++) {
+      reactions.add(ReactionEmoji.of(getEmoji(i)));
+    }
+    if (pages > 1) {
+      reactions.add(ReactionEmoji.of(RIGHT));
+    }
+    if (useCancel) {
+      reactions.add(ReactionEmoji.of(CANCEL));
+    }
+    return reactions;
+  }
+
+  @Override
+  protected IMessage begin(IMessage m, List<ReactionEmoji> reactions) {
+    engine.start(m, 1, reactions);
+    return m;
+  }
+
+  private Transition<Integer> onInput(Integer page, MenuInput input) {
+    return input.isReaction() ? onReaction(page, input.getEmoji().getName()) : onTyped(page, input.getText());
   }
 
-  private MessageBuilder getMessage(IChannel channel) {
-    MessageBuilder mbuilder = new MessageBuilder(client);
-    if (text != null) {
-      mbuilder.withContent(text);
+  private Transition<Integer> onReaction(int page, String emoji) {
+    if (emoji.equals(CANCEL)) {
+      return cancel();
     }
-    StringBuilder sb = new StringBuilder();
-    for (int i = 0; i < choices.size(); i++) {
-      sb.append("\n").append(getEmoji(i + 1)).append(" ").append(choices.get(i));
+    if (emoji.equals(LEFT) || emoji.equals(RIGHT)) {
+      return pages > 1 ? turn(emoji.equals(LEFT) ? page - 1 : page + 1) : Transition.ignore();
     }
-    mbuilder.withEmbed(new EmbedBuilder().withColor(color).withDesc(description == null ? sb.toString() :
-                                                                            description + sb.toString()).build());
-    mbuilder.withChannel(channel);
-    return mbuilder;
+    int slot = getSlot(emoji);
+    int num = (page - 1) * PAGE_SIZE + slot;
+    return slot > 0 && num <= choices.size() ? select(num) : Transition.ignore();
   }
 
-  private boolean isValidReaction(IMessage m, ReactionAddEvent e) {
-    if (!e.getMessage().getStringID().equals(m.getStringID())) {
-      return false;
+  private Transition<Integer> onTyped(int page, String typed) {
+    String content = typed.trim().toLowerCase(Locale.ROOT);
+    if (pages > 1 && (content.equals("n") || content.equals("next"))) {
+      return turn(page + 1);
+    }
+    if (pages > 1 && (content.equals("p") || content.equals("prev"))) {
+      return turn(page - 1);
+    }
+    if (content.equals("cancel")) {
+      return cancel();
+    }
+    // Anything else typed in the channel is most likely chatter, so it leaves the menu open.
+    int num = getTypedNumber(page, content);
+    return num < 1 || num > choices.size() ? Transition.ignore() : select(num);
+  }
+
+  /**
+   * Gets the choice typed in a message, which is its number when using numbers, or the letter of its
+   * position on the current page when using letters.
+   *
+   * @return The number of the choice, or {@code -1} if the message is not a number or letter
+   */
+  private int getTypedNumber(int page, String content) {
+    if (useLetters) {
+      if (content.length() != 1 || content.charAt(0) < 'a' || content.charAt(0) >= 'a' + PAGE_SIZE) {
+        return -1;
+      }
+      return (page - 1) * PAGE_SIZE + content.charAt(0) - 'a' + 1;
     }
-    if (!isValidUser(e)) {
-      return false;
+    if (content.isEmpty() || content.length() > 9) {
+      return -1;
     }
-    if (e.getReaction().getEmoji().getName().equals(CANCEL)) {
-      return true;
+    for (int i = 0; i < content.length(); i++) {
+      if (!Character.isDigit(content.charAt(i))) {
+        return -1;
+      }
     }
-    int num = getNumber(e.getReaction().getEmoji().getName());
-    return !(num < 0 || num > choices.size());
+    return Integer.parseInt(content);
   }
 
-  private boolean isValidIMessage(IMessage m, MessageReceivedEvent e) {
-    if (!e.getChannel().equals(m.getChannel())) {
-      return false;
+  /**
+   * Runs the action for a choice, either handing the message on to the chained action or deleting it.
+   */
+  private Transition<Integer> select(int num) {
+    if (chainedAction != null) {
+      return Transition.handOff(m -> chainedAction.accept(m, num));
     }
-    return isValidUser(e);
+    return Transition.end(m -> {
+      RequestScheduler.delete(m);
+      action.accept(num);
+    });
+  }
+
+  private Transition<Integer> cancel() {
+    return Transition.end(m -> {
+      RequestScheduler.delete(m);
+      cancel.run();
+    });
+  }
+
+  private Transition<Integer> turn(int newPage) {
+    return Transition.to(Math.max(1, Math.min(newPage, pages)));
   }
 
   private String getEmoji(int number) {
@@ -211,24 +242,20 @@ public class OrderedMenu extends Menu {
     }
   }
 
-  private int getNumber(String emoji) {
-    String[] array = useLetters ? LETTERS : NUMBERS;
-    for (int i = 0; i < array.length; i++) {
-      if (array[i].equals(emoji)) {
-        return i + 1;
-      }
-    }
-    return -1;
+  /**
+   * Gets the position on a page an emoji stands for.
+   *
+   * @return The position, from 1, or {@code -1} if the emoji is not one of the choices
+   */
+  private int getSlot(String emoji) {
+    return (useLetters ? LETTER_SLOTS : NUMBER_SLOTS).getOrDefault(emoji, -1);
   }
 
-  private int getIMessageNumber(String message) {
-    if (useLetters) {
-      return message.length() == 1 ? " abcdefghij".indexOf(message.toLowerCase()) : -1;
-    } else {
-      if (message.length() == 1) {
-        return " 123456789".indexOf(message);
-      }
-      return message.equals("10") ? 10 : -1;
+  private static Map<String, Integer> slots(String[] emojis) {
+    Map<String, Integer> slots = new HashMap<>();
+    for (int i = 0; i < emojis.length; i++) {
+      slots.put(emojis[i], i + 1);
     }
+    return Collections.unmodifiableMap(slots);
   }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package me.xaanit.d4jutilities.menu.orderedmenu;
 
 import sx.blah.discord.api.IDiscordClient;
+import sx.blah.discord.handle.obj.IMessage;
 import me.xaanit.d4jutilities.menu.*;
 
 
@@ -8,6 +9,7 @@ import java.awt.Color;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
@@ -20,6 +22,7 @@ public class OrderedMenuBuilder extends MenuBuilder<OrderedMenuBuilder, OrderedM
   private String description;
   private final List<String> choices = new LinkedList<>();
   private Consumer<Integer> action;
+  private BiConsumer<IMessage, Integer> chainedAction;
   private Runnable cancel = () -> {};
   private boolean useLetters = false;
   private boolean allowTypedInput = true;
@@ -34,10 +37,7 @@ public class OrderedMenuBuilder extends MenuBuilder<OrderedMenuBuilder, OrderedM
     if (choices.isEmpty()) {
       throw new IllegalArgumentException("Must have at least one choice");
     }
-    if (choices.size() > 10) {
-      throw new IllegalArgumentException("Must have no more than ten choices");
-    }
-    if (action == null) {
+    if (action == null && chainedAction == null) {
       throw new IllegalArgumentException("Must provide an action consumer");
     }
     if (text == null && description == null) {
@@ -47,7 +47,7 @@ public class OrderedMenuBuilder extends MenuBuilder<OrderedMenuBuilder, OrderedM
       throw new IllegalArgumentException("Client can not be null!");
     }
     return new OrderedMenu(waiter, users, roles, timeout, unit, color, text, description, choices,
-                                  action, cancel, useLetters, allowTypedInput, addCancel, client);
+                                  action, chainedAction, cancel, useLetters, allowTypedInput, addCancel, useReactions, client);
   }
 
   /**
@@ -90,6 +90,11 @@ public class OrderedMenuBuilder extends MenuBuilder<OrderedMenuBuilder, OrderedM
   /**
    * If {@code true}, {@link sx.blah.discord.handle.obj.IUser}s can type the number or
    * letter of the input to make their selection, in addition to the reaction option.
+   * <br>Numbers are those of the whole list, while letters are for the choices on the current page. With
+   * more than one page, {@code n} or {@code next} and {@code p} or {@code prev} turn the page, and
+   * {@code cancel} cancels the menu. Any other message is ignored.
+   * <br>Typed input only goes to the most recent open Menu in the channel that the author may use, so older
+   * Menus there stop taking it until the newer one closes.
    *
    * @param allow {@code true} if raw text input is allowed, {@code false} if it is not
    *
@@ -149,6 +154,25 @@ public class OrderedMenuBuilder extends MenuBuilder<OrderedMenuBuilder, OrderedM
    */
   public OrderedMenuBuilder setAction(Consumer<Integer> action) {
     this.action = action;
+    this.chainedAction = null;
+    return this;
+  }
+
+  /**
+   * Sets the {@link BiConsumer BiConsumer} action to perform upon selecting an option, in place of
+   * {@link #setAction(Consumer)}.
+   * <p>
+   * <p>Unlike a regular action, the {@link OrderedMenu}'s {@link IMessage} is not deleted. It is passed to
+   * the action instead, so the next {@link Menu} can be displayed on it with {@link Menu#display(IMessage)}.
+   * <br>The reaction used to select the option is removed, so the next Menu can use it again.
+   *
+   * @param action The BiConsumer action to perform upon selecting an option
+   *
+   * @return This builder
+   */
+  public OrderedMenuBuilder setChainedAction(BiConsumer<IMessage, Integer> action) {
+    this.chainedAction = action;
+    this.action = null;
     return this;
   }
 
@@ -168,6 +192,7 @@ public class OrderedMenuBuilder extends MenuBuilder<OrderedMenuBuilder, OrderedM
   /**
    * Adds the String choices.
    * <br>These correspond to the button in order of addition.
+   * <br>If there are more than ten choices, they are split into pages of ten.
    *
    * @param choices The String choices to add
    *
@@ -181,6 +206,7 @@ public class OrderedMenuBuilder extends MenuBuilder<OrderedMenuBuilder, OrderedM
   /**
    * Sets the String choices.
    * <br>These correspond to the button in the order they are set.
+   * <br>If there are more than ten choices, they are split into pages of ten.
    *
    * @param choices The String choices to set
    *
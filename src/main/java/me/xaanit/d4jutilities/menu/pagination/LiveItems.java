@@ -0,0 +1,211 @@
+package me.xaanit.d4jutilities.menu.pagination;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A thread-safe, mutable list of items that any number of {@link Paginator}s can display live.
+ * <p>
+ * <p>Changes are not pushed to Discord one by one. Instead, every change made within the coalescing
+ * delay is folded into a single update, which records the range of items that changed. Each open
+ * Paginator session then only edits its message if the page it is showing was affected, and every
+ * page is rendered once per update no matter how many sessions show it.
+ * <p>
+ * <p>All LiveItems share a single background thread for delivering updates.
+ *
+ * @author Jacob (xaanit)
+ */
+public class LiveItems {
+  private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "D4J-Utilities LiveItems");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final List<String> items;
+  private final long delay;
+  private final TimeUnit unit;
+  private final Set<Consumer<Snapshot>> listeners = new CopyOnWriteArraySet<>();
+  private volatile Snapshot current;
+  private int dirtyFrom = Integer.MAX_VALUE;
+  private int dirtyTo = -1;
+  private boolean scheduled = false;
+
+  /**
+   * Constructs an empty LiveItems that coalesces changes made within one second.
+   */
+  public LiveItems() {
+    this(1, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Constructs an empty LiveItems.
+   *
+   * @param delay How long to wait after a change for further changes before updating Paginators
+   * @param unit  The {@link TimeUnit TimeUnit} of the delay
+   */
+  public LiveItems(long delay, TimeUnit unit) {
+    this(delay, unit, Collections.emptyList());
+  }
+
+  /**
+   * Constructs a LiveItems holding the provided items.
+   *
+   * @param delay How long to wait after a change for further changes before updating Paginators
+   * @param unit  The {@link TimeUnit TimeUnit} of the delay
+   * @param items The items to start with
+   */
+  public LiveItems(long delay, TimeUnit unit, Collection<String> items) {
+    if (delay < 0) {
+      throw new IllegalArgumentException("Delay can not be negative");
+    }
+    this.delay = delay;
+    this.unit = unit;
+    this.items = new ArrayList<>(items);
+    this.current = new Snapshot(0, Collections.unmodifiableList(new ArrayList<>(items)), 0, 0);
+  }
+
+  /**
+   * Replaces the item at a position.
+   *
+   * @param index The position of the item
+   * @param item  The new item
+   *
+   * @return The item that was replaced
+   */
+  public synchronized String set(int index, String item) {
+    String old = items.set(index, item);
+    if (!old.equals(item)) {
+      changed(index, index + 1);
+    }
+    return old;
+  }
+
+  /**
+   * Adds an item to the end.
+   *
+   * @param item The item to add
+   */
+  public synchronized void add(String item) {
+    items.add(item);
+    changed(items.size() - 1, items.size());
+  }
+
+  /**
+   * Inserts an item at a position, shifting every following item.
+   *
+   * @param index The position to insert at
+   * @param item  The item to insert
+   */
+  public synchronized void add(int index, String item) {
+    items.add(index, item);
+    changed(index, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Removes the item at a position, shifting every following item.
+   *
+   * @param index The position of the item
+   *
+   * @return The removed item
+   */
+  public synchronized String remove(int index) {
+    String old = items.remove(index);
+    changed(index, Integer.MAX_VALUE);
+    return old;
+  }
+
+  /**
+   * Replaces every item.
+   *
+   * @param items The new items
+   */
+  public synchronized void setAll(Collection<String> items) {
+    this.items.clear();
+    this.items.addAll(items);
+    changed(0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Gets the current number of items, including changes that have not been delivered yet.
+   *
+   * @return The number of items
+   */
+  public synchronized int size() {
+    return items.size();
+  }
+
+  /**
+   * Gets the items as of the last delivered update.
+   *
+   * @return An unmodifiable list of the items
+   */
+  public List<String> getItems() {
+    return current.items;
+  }
+
+  Snapshot getSnapshot() {
+    return current;
+  }
+
+  void addListener(Consumer<Snapshot> listener) {
+    listeners.add(listener);
+  }
+
+  void removeListener(Consumer<Snapshot> listener) {
+    listeners.remove(listener);
+  }
+
+  private void changed(int from, int to) {
+    dirtyFrom = Math.min(dirtyFrom, from);
+    dirtyTo = Math.max(dirtyTo, to);
+    if (!scheduled) {
+      scheduled = true;
+      FLUSHER.schedule(this::flush, delay, unit);
+    }
+  }
+
+  private void flush() {
+    Snapshot snapshot;
+    synchronized (this) {
+      scheduled = false;
+      snapshot = new Snapshot(current.version + 1, Collections.unmodifiableList(new ArrayList<>(items)),
+              dirtyFrom, dirtyTo);
+      dirtyFrom = Integer.MAX_VALUE;
+      dirtyTo = -1;
+      current = snapshot;
+    }
+    for (Consumer<Snapshot> listener : listeners) {
+      listener.accept(snapshot);
+    }
+  }
+
+  /**
+   * An immutable copy of the items, with the range of positions that changed since the one before it.
+   */
+  static final class Snapshot {
+    final long version;
+    final List<String> items;
+    final int from;
+    final int to;
+
+    Snapshot(long version, List<String> items, int from, int to) {
+      this.version = version;
+      this.items = items;
+      this.from = from;
+      this.to = to;
+    }
+
+    boolean isDirty(int item) {
+      return item >= from && item < to;
+    }
+  }
+}
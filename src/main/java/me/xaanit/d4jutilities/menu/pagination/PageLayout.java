@@ -0,0 +1,240 @@
+package me.xaanit.d4jutilities.menu.pagination;
+
+import java.util.Arrays;
+
+/**
+ * Decides which items of a {@link Paginator} appear on which page, and in which column.
+ * <p>
+ * <p>Pages are numbered from 1, items from 0. All end indices are exclusive.
+ *
+ * @author Jacob (xaanit)
+ */
+abstract class PageLayout {
+
+  /**
+   * The maximum length of an embed description.
+   */
+  static final int DESCRIPTION_LIMIT = 2048;
+  /**
+   * The maximum length of an embed field value.
+   */
+  static final int FIELD_LIMIT = 1024;
+  /**
+   * The maximum combined length of every text in an embed.
+   */
+  static final int EMBED_LIMIT = 6000;
+
+  /**
+   * Gets the number of pages.
+   *
+   * @return The number of pages, always at least 1
+   */
+  abstract int getPages();
+
+  /**
+   * Gets the first item shown in a column of a page.
+   *
+   * @param page   The page, from 1
+   * @param column The column, from 0
+   *
+   * @return The index of the first item
+   */
+  abstract int getColumnStart(int page, int column);
+
+  /**
+   * Gets the item after the last one shown in a column of a page.
+   *
+   * @param page   The page, from 1
+   * @param column The column, from 0
+   *
+   * @return The exclusive end index
+   */
+  abstract int getColumnEnd(int page, int column);
+
+  /**
+   * Gets the page an item is shown on.
+   *
+   * @param item The index of the item
+   *
+   * @return The page, from 1
+   */
+  abstract int getPageOf(int item);
+
+  /**
+   * Gets the first item shown on a page.
+   *
+   * @param page The page, from 1
+   *
+   * @return The index of the first item
+   */
+  final int getStart(int page) {
+    return getColumnStart(page, 0);
+  }
+
+  /**
+   * Gets the item after the last one shown on a page.
+   *
+   * @param page The page, from 1
+   *
+   * @return The exclusive end index
+   */
+  abstract int getEnd(int page);
+
+  /**
+   * Creates a layout with the same number of items on every page, split evenly between the columns.
+   *
+   * @param items        The number of items
+   * @param itemsPerPage The number of items on each page
+   * @param columns      The number of columns
+   *
+   * @return The layout
+   */
+  static PageLayout fixed(int items, int itemsPerPage, int columns) {
+    return new Fixed(items, itemsPerPage, columns);
+  }
+
+  /**
+   * Creates a layout that fits as many items on each column and page as Discord's embed limits allow.
+   *
+   * @param lengths  The rendered length of every item, including its line break and number
+   * @param columns  The number of columns
+   * @param reserved The number of embed characters used by anything other than items, like the footer
+   *
+   * @return The layout
+   *
+   * @throws IllegalArgumentException If a single item is too long to fit in a column
+   */
+  static PageLayout packed(int[] lengths, int columns, int reserved) {
+    return new Packed(lengths, columns, columns == 1 ? DESCRIPTION_LIMIT : FIELD_LIMIT, EMBED_LIMIT - reserved);
+  }
+
+  private static final class Fixed extends PageLayout {
+    private final int items;
+    private final int itemsPerPage;
+    private final int columns;
+    private final int pages;
+
+    Fixed(int items, int itemsPerPage, int columns) {
+      this.items = items;
+      this.itemsPerPage = itemsPerPage;
+      this.columns = columns;
+      this.pages = Math.max(1, (int) Math.ceil((double) items / itemsPerPage));
+    }
+
+    @Override
+    int getPages() {
+      return pages;
+    }
+
+    @Override
+    int getColumnStart(int page, int column) {
+      int start = (page - 1) * itemsPerPage;
+      return Math.min(getEnd(page), start + column * perColumn(page));
+    }
+
+    @Override
+    int getColumnEnd(int page, int column) {
+      int start = (page - 1) * itemsPerPage;
+      return Math.min(getEnd(page), start + (column + 1) * perColumn(page));
+    }
+
+    @Override
+    int getEnd(int page) {
+      return Math.min(items, page * itemsPerPage);
+    }
+
+    @Override
+    int getPageOf(int item) {
+      return item / itemsPerPage + 1;
+    }
+
+    private int perColumn(int page) {
+      return (int) Math.ceil((double) (getEnd(page) - (page - 1) * itemsPerPage) / columns);
+    }
+  }
+
+  /**
+   * Packs items greedily using prefix sums of their lengths, so the end of every column is found with a
+   * binary search instead of by rendering.
+   */
+  private static final class Packed extends PageLayout {
+    private final int columns;
+    private final int[] segments;
+    private final int items;
+
+    Packed(int[] lengths, int columns, int columnLimit, int pageLimit) {
+      this.columns = columns;
+      this.items = lengths.length;
+      long[] prefix = new long[lengths.length + 1];
+      for (int i = 0; i < lengths.length; i++) {
+        if (lengths[i] > Math.min(columnLimit, pageLimit)) {
+          throw new IllegalArgumentException("Item " + (i + 1) + " is too long to fit on a page");
+        }
+        prefix[i + 1] = prefix[i] + lengths[i];
+      }
+
+      int[] starts = new int[columns];
+      int count = 0;
+      int start = 0;
+      do {
+        long remaining = pageLimit;
+        if (count + columns > starts.length) {
+          starts = Arrays.copyOf(starts, starts.length * 2);
+        }
+        for (int k = 0; k < columns; k++) {
+          starts[count++] = start;
+          int end = start < items ? findEnd(prefix, start, Math.min(columnLimit, remaining)) : start;
+          remaining -= prefix[end] - prefix[start];
+          start = end;
+        }
+      } while (start < items);
+      this.segments = Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Finds the largest end such that the items from start to end fit in the limit.
+     */
+    private static int findEnd(long[] prefix, int start, long limit) {
+      int index = Arrays.binarySearch(prefix, start + 1, prefix.length, prefix[start] + limit);
+      return index >= 0 ? index : -index - 2;
+    }
+
+    @Override
+    int getPages() {
+      return segments.length / columns;
+    }
+
+    @Override
+    int getColumnStart(int page, int column) {
+      return segments[(page - 1) * columns + column];
+    }
+
+    @Override
+    int getColumnEnd(int page, int column) {
+      int next = (page - 1) * columns + column + 1;
+      return next < segments.length ? segments[next] : items;
+    }
+
+    @Override
+    int getEnd(int page) {
+      return getColumnEnd(page, columns - 1);
+    }
+
+    @Override
+    int getPageOf(int item) {
+      // The last column starting at or before the item is the one containing it, as any empty
+      // column sharing its start comes before it.
+      int low = 0;
+      int high = segments.length - 1;
+      while (low < high) {
+        int mid = (low + high + 1) >>> 1;
+        if (segments[mid] <= item) {
+          low = mid;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return low / columns + 1;
+    }
+  }
+}
@@ -1,22 +1,35 @@
 package me.xaanit.d4jutilities.menu.pagination;
 
 import me.xaanit.d4jutilities.menu.Menu;
+import me.xaanit.d4jutilities.menu.MenuEngine;
+import me.xaanit.d4jutilities.menu.MenuEngineBuilder;
+import me.xaanit.d4jutilities.menu.MenuInput;
+import me.xaanit.d4jutilities.menu.MenuSession;
+import me.xaanit.d4jutilities.menu.RenderedMenu;
+import me.xaanit.d4jutilities.menu.RequestScheduler;
+import me.xaanit.d4jutilities.menu.RequestScheduler.Priority;
+import me.xaanit.d4jutilities.menu.Transition;
 import me.xaanit.d4jutilities.waiter.EventWaiter;
 import sx.blah.discord.api.IDiscordClient;
-import sx.blah.discord.handle.impl.events.guild.channel.message.reaction.ReactionAddEvent;
 import sx.blah.discord.handle.impl.obj.ReactionEmoji;
 import sx.blah.discord.handle.obj.IChannel;
 import sx.blah.discord.handle.obj.IMessage;
 import sx.blah.discord.handle.obj.IRole;
 import sx.blah.discord.handle.obj.IUser;
 import sx.blah.discord.util.EmbedBuilder;
-import sx.blah.discord.util.MessageBuilder;
-import sx.blah.discord.util.MissingPermissionsException;
-import sx.blah.discord.util.RequestBuffer;
 
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -30,35 +43,74 @@ public class Paginator extends Menu {
   private final BiFunction<Integer, Integer, Color> color;
   private final BiFunction<Integer, Integer, String> text;
   private final int columns;
-  private final int itemsPerPage;
   private final boolean showPageNumbers;
   private final boolean numberItems;
-  private final List<String> strings;
-  private final int pages;
   private final Consumer<IMessage> finalAction;
   private final boolean waitOnSinglePage;
+  private final int itemsPerPage;
+  private final boolean packPages;
+  private final SearchMode searchMode;
+  private final String searchPrefix;
+  private final int bulkSkipNumber;
+  private final boolean useFirstLast;
+  private final boolean allowTextInput;
 
+  public static final String FIRST = "\u23EE";
+  public static final String BIG_LEFT = "\u23EA";
   public static final String LEFT = "⬅";
   public static final String STOP = "\u23F9";
   public static final String RIGHT = "➡";
+  public static final String BIG_RIGHT = "\u23E9";
+  public static final String LAST = "\u23ED";
+
+  private static final int MAX_CACHED_PAGES = 64;
+
+  private final LiveItems source;
+  private final Set<MenuSession<View>> sessions = new HashSet<>();
+  private final Consumer<LiveItems.Snapshot> listener = this::onUpdate;
+  private volatile Contents contents;
+  private final MenuEngine<View> engine;
 
   protected Paginator(EventWaiter waiter, Set<IUser> users, Set<IRole> roles, long timeout, TimeUnit unit,
                       BiFunction<Integer, Integer, Color> color, BiFunction<Integer, Integer, String> text,
                       Consumer<IMessage> finalAction,
                       int columns, int itemsPerPage, boolean showPageNumbers, boolean numberItems, List<String>
                                                                                                            items,
-                      boolean waitOnSinglePage, IDiscordClient client) {
-    super(waiter, users, roles, timeout, unit, client);
+                      boolean waitOnSinglePage, boolean packPages, SearchMode searchMode, String searchPrefix,
+                      int bulkSkipNumber, boolean useFirstLast, boolean allowTextInput, LiveItems source,
+                      boolean useReactions, IDiscordClient client) {
+    super(waiter, users, roles, timeout, unit, useReactions, client);
     this.color = color;
     this.text = text;
     this.columns = columns;
-    this.itemsPerPage = itemsPerPage;
     this.showPageNumbers = showPageNumbers;
     this.numberItems = numberItems;
-    this.strings = items;
-    this.pages = (int) Math.ceil((double) strings.size() / itemsPerPage);
+    this.itemsPerPage = itemsPerPage;
+    this.packPages = packPages;
     this.finalAction = finalAction;
     this.waitOnSinglePage = waitOnSinglePage;
+    this.searchMode = searchMode;
+    this.searchPrefix = searchPrefix;
+    this.bulkSkipNumber = bulkSkipNumber;
+    this.useFirstLast = useFirstLast;
+    this.allowTextInput = allowTextInput || !useReactions;
+    this.source = source;
+    if (source == null) {
+      this.contents = new Contents(Collections.unmodifiableList(new ArrayList<>(items)));
+      if (searchMode != SearchMode.DISABLED) {
+        contents.getIndex();
+      }
+    } else {
+      this.contents = new Contents(source.getSnapshot().items);
+    }
+    this.engine = new MenuEngineBuilder<View>(this)
+            .setRenderer(View::render)
+            .setInputHandler(this::onInput)
+            .setReactionInput(useReactions)
+            .setTextInput(this.allowTextInput || searchMode != SearchMode.DISABLED)
+            .setTimeoutAction(finalAction)
+            .setEndAction(this::unregister)
+            .build();
   }
 
   /**
@@ -66,10 +118,12 @@ public class Paginator extends Menu {
    * in the provided {@link IChannel}.
    *
    * @param channel The IChannel to send the new IMessage to
+   *
+   * @return A future completing with the sent IMessage
    */
   @Override
-  public void display(IChannel channel) {
-    paginate(channel, 1);
+  public CompletableFuture<IMessage> displayAsync(IChannel channel) {
+    return paginateAsync(channel, 1);
   }
 
   /**
@@ -77,10 +131,12 @@ public class Paginator extends Menu {
    * {@link IMessage}.
    *
    * @param message The IMessage to display the Menu in
+   *
+   * @return A future completing with the edited IMessage
    */
   @Override
-  public void display(IMessage message) {
-    paginate(message, 1);
+  public CompletableFuture<IMessage> displayAsync(IMessage message) {
+    return paginateAsync(message, 1);
   }
 
   /**
@@ -92,15 +148,7 @@ public class Paginator extends Menu {
    * @param pageNum The page number to begin on
    */
   public void paginate(IChannel channel, int pageNum) {
-    if (pageNum < 1) {
-      pageNum = 1;
-    } else if (pageNum > pages) {
-      pageNum = pages;
-    }
-    MessageBuilder msg = renderPage(pageNum, channel);
-    initialize(RequestBuffer.request(() -> {
-      return msg.build();
-    }).get(), pageNum);
+    await(paginateAsync(channel, pageNum));
   }
 
   /**
@@ -112,93 +160,309 @@ public class Paginator extends Menu {
    * @param pageNum The page number to begin on
    */
   public void paginate(IMessage message, int pageNum) {
-    if (pageNum < 1) {
-      pageNum = 1;
-    } else if (pageNum > pages) {
-      pageNum = pages;
-    }
-    MessageBuilder msg = renderPage(pageNum, message.getChannel());
-    initialize(RequestBuffer.request(() -> {
-      return message.edit(msg.getContent(), msg.getEmbedObject());
-    }).get(), pageNum);
-  }
-
-  private void initialize(IMessage m, int pageNum) {
-    if (pages > 1) {
-      RequestBuffer.request(() -> m.addReaction(ReactionEmoji.of(LEFT))).get();
-      RequestBuffer.request(() -> m.addReaction(ReactionEmoji.of(STOP))).get();
-      RequestBuffer.request(() -> m.addReaction(ReactionEmoji.of(RIGHT))).get();
-      pagination(m, pageNum);
+    await(paginateAsync(message, pageNum));
+  }
+
+  /**
+   * Begins pagination as a new {@link IMessage} in the provided {@link IChannel}, starting
+   * on whatever page number is provided, without blocking.
+   *
+   * @param channel The IChannel to send the new IMessage to
+   * @param pageNum The page number to begin on
+   *
+   * @return A future completing with the sent IMessage
+   */
+  public CompletableFuture<IMessage> paginateAsync(IChannel channel, int pageNum) {
+    Contents contents = this.contents;
+    int page = Math.max(1, Math.min(pageNum, contents.layout.getPages()));
+    RenderedMenu render = contents.render(page);
+    return RequestScheduler.request(channel, Priority.INTERACTIVE, () -> {
+      return render.send(client, channel);
+    }).thenApply(m -> initialize(m, page, contents, resolveReactions()));
+  }
+
+  /**
+   * Begins pagination displaying this Pagination by editing the provided {@link IMessage},
+   * starting on whatever page number is provided, without blocking.
+   *
+   * @param message The IMessage to display the Menu in
+   * @param pageNum The page number to begin on
+   *
+   * @return A future completing with the edited IMessage
+   */
+  public CompletableFuture<IMessage> paginateAsync(IMessage message, int pageNum) {
+    Contents contents = this.contents;
+    int page = Math.max(1, Math.min(pageNum, contents.layout.getPages()));
+    RenderedMenu render = contents.render(page);
+    return RequestScheduler.edit(message, render).thenApply(m -> initialize(m, page, contents, resolveReactions()));
+  }
+
+  @Override
+  protected RenderedMenu render() {
+    return contents.render(1);
+  }
+
+  @Override
+  protected List<ReactionEmoji> getReactions() {
+    if (isMultiPage()) {
+      List<ReactionEmoji> reactions = new ArrayList<>(7);
+      if (useFirstLast) {
+        reactions.add(ReactionEmoji.of(FIRST));
+      }
+      if (bulkSkipNumber > 1) {
+        reactions.add(ReactionEmoji.of(BIG_LEFT));
+      }
+      reactions.add(ReactionEmoji.of(LEFT));
+      reactions.add(ReactionEmoji.of(STOP));
+      reactions.add(ReactionEmoji.of(RIGHT));
+      if (bulkSkipNumber > 1) {
+        reactions.add(ReactionEmoji.of(BIG_RIGHT));
+      }
+      if (useFirstLast) {
+        reactions.add(ReactionEmoji.of(LAST));
+      }
+      return reactions;
     } else if (waitOnSinglePage) {
-      RequestBuffer.request(() -> m.addReaction(ReactionEmoji.of(STOP))).get();
-      pagination(m, pageNum);
+      return Collections.singletonList(ReactionEmoji.of(STOP));
+    }
+    return Collections.emptyList();
+  }
+
+  @Override
+  protected IMessage begin(IMessage message, List<ReactionEmoji> reactions) {
+    return initialize(message, 1, null, reactions);
+  }
+
+  /**
+   * Starts a session on a message showing a page.
+   *
+   * @param rendered The Contents the page was rendered from, or {@code null} if unknown
+   */
+  private IMessage initialize(IMessage m, int pageNum, Contents rendered, List<ReactionEmoji> reactions) {
+    if (isMultiPage() || waitOnSinglePage) {
+      MenuSession<View> session = engine.start(m, new View(rendered == null ? contents : rendered, pageNum),
+              reactions);
+      if (source != null) {
+        register(session);
+        if (rendered == null) {
+          session.refresh();
+        }
+      }
     } else {
       finalAction.accept(m);
     }
+    return m;
   }
 
-  private void pagination(IMessage message, int pageNum) {
-    waiter.waitForEvent(ReactionAddEvent.class, (ReactionAddEvent event) -> {
-      if (!event.getMessage().getStringID().equals(message.getStringID())) {
-        return false;
+  /**
+   * Checks whether this Paginator needs its page controls, which live Paginators always do as their
+   * items may grow at any time.
+   */
+  private boolean isMultiPage() {
+    return source != null || contents.layout.getPages() > 1;
+  }
+
+  /**
+   * Starts passing updates of the {@link LiveItems} on to a session, first moving it to the latest items.
+   */
+  private void register(MenuSession<View> session) {
+    synchronized (sessions) {
+      if (sessions.isEmpty()) {
+        source.addListener(listener);
       }
-      if (!(LEFT.equals(event.getReaction().getEmoji().getName())
-                    || STOP.equals(event.getReaction().getEmoji().getName())
-                    || RIGHT.equals(event.getReaction().getEmoji().getName()))) {
+      sessions.add(session);
+      Contents latest = contents;
+      session.update(view -> Transition.to(view.withContents(latest)));
+    }
+    if (session.isEnded()) {
+      unregister(session);
+    }
+  }
+
+  private void unregister(MenuSession<View> session) {
+    if (source == null) {
+      return;
+    }
+    synchronized (sessions) {
+      if (sessions.remove(session) && sessions.isEmpty()) {
+        source.removeListener(listener);
+      }
+    }
+  }
+
+  /**
+   * Receives an update from the {@link LiveItems} this Paginator displays, renders it once and passes it
+   * on to every open session.
+   */
+  private void onUpdate(LiveItems.Snapshot snapshot) {
+    Contents next = new Contents(snapshot.items);
+    List<MenuSession<View>> open;
+    synchronized (sessions) {
+      contents = next;
+      open = new ArrayList<>(sessions);
+    }
+    for (MenuSession<View> session : open) {
+      session.update(view -> update(view, next, snapshot));
+    }
+  }
+
+  /**
+   * Moves a View to newer contents, only editing the message if the page it shows changed.
+   */
+  private Transition<View> update(View view, Contents next, LiveItems.Snapshot snapshot) {
+    View updated = view.withContents(next);
+    int[] before = view.itemsOnPage();
+    int[] after = updated.itemsOnPage();
+    boolean affected = view.layout.getPages() != updated.layout.getPages() || !Arrays.equals(before, after);
+    for (int i = 0; i < after.length && !affected; i++) {
+      affected = snapshot.isDirty(after[i]);
+    }
+    return affected ? Transition.to(updated) : Transition.replace(updated);
+  }
+
+  private Transition<View> onInput(View view, MenuInput input) {
+    if (input.isReaction()) {
+      String control = input.getEmoji().getName();
+      return isControl(control) ? navigate(view, control) : Transition.ignore();
+    }
+    String content = input.getText();
+    int typed = getTypedPage(view, content);
+    if (typed > 0) {
+      return Transition.to(view.withPage(typed));
+    }
+    String control = getTypedControl(content);
+    if (control != null) {
+      return navigate(view, control);
+    }
+    if (searchMode != SearchMode.DISABLED && content.startsWith(searchPrefix)) {
+      return onQuery(view, content.substring(searchPrefix.length()).trim());
+    }
+    return Transition.ignore();
+  }
+
+  private boolean isControl(String emoji) {
+    switch (emoji) {
+      case LEFT:
+      case STOP:
+      case RIGHT:
+        return true;
+      case FIRST:
+      case LAST:
+        return useFirstLast;
+      case BIG_LEFT:
+      case BIG_RIGHT:
+        return bulkSkipNumber > 1;
+      default:
         return false;
+    }
+  }
+
+  /**
+   * Gets the page number typed in a message, if text input is allowed.
+   *
+   * @return The page number, or {@code -1} if the message is not a valid page number
+   */
+  private int getTypedPage(View view, String content) {
+    String trimmed = content.trim();
+    if (!allowTextInput || trimmed.isEmpty() || trimmed.length() > 9) {
+      return -1;
+    }
+    for (int i = 0; i < trimmed.length(); i++) {
+      if (!Character.isDigit(trimmed.charAt(i))) {
+        return -1;
       }
-      return isValidUser(event);
-    }, event -> {
-      int newPageNum = pageNum;
-      switch (event.getReaction().getEmoji().getName()) {
-        case LEFT:
-          if (newPageNum > 1) {
-            newPageNum--;
-          }
-          break;
-        case RIGHT:
-          if (newPageNum < pages) {
-            newPageNum++;
-          }
-          break;
-        case STOP:
-          finalAction.accept(message);
-          return;
-      }
-      RequestBuffer.request(() -> {
-        try {
-          event.getMessage().removeReaction(event.getUser(), event.getReaction());
-        } catch (MissingPermissionsException e) {
+    }
+    int num = Integer.parseInt(trimmed);
+    return num >= 1 && num <= view.layout.getPages() ? num : -1;
+  }
+
+  /**
+   * Gets the button a typed command stands in for, if text input is allowed.
+   *
+   * @return The button, or {@code null} if the message is not a command
+   */
+  private String getTypedControl(String content) {
+    if (!allowTextInput) {
+      return null;
+    }
+    switch (content.trim().toLowerCase(Locale.ROOT)) {
+      case "n":
+      case "next":
+        return RIGHT;
+      case "p":
+      case "prev":
+        return LEFT;
+      case "first":
+        return FIRST;
+      case "last":
+        return LAST;
+      case "stop":
+        return STOP;
+      default:
+        return null;
+    }
+  }
+
+  private Transition<View> navigate(View view, String control) {
+    int page = view.page;
+    int pages = view.layout.getPages();
+    switch (control) {
+      case FIRST:
+        page = 1;
+        break;
+      case BIG_LEFT:
+        page = Math.max(1, page - bulkSkipNumber);
+        break;
+      case LEFT:
+        if (page > 1) {
+          page--;
+        }
+        break;
+      case RIGHT:
+        if (page < pages) {
+          page++;
         }
-      });
-      int n = newPageNum;
-      final int finalPageNum = newPageNum;
-      final MessageBuilder builder = renderPage(finalPageNum, message.getChannel());
-      IMessage m = RequestBuffer.request(() -> {
-        return message.edit(builder.getContent(), builder.getEmbedObject());
-      }).get();
-      pagination(m, n);
-    }, timeout, unit, () -> finalAction.accept(message));
-  }
-
-  private MessageBuilder renderPage(int pageNum, IChannel channel) {
-    MessageBuilder mbuilder = new MessageBuilder(client).withChannel(channel);
+        break;
+      case BIG_RIGHT:
+        page = Math.min(pages, page + bulkSkipNumber);
+        break;
+      case LAST:
+        page = pages;
+        break;
+      case STOP:
+        return Transition.end(finalAction);
+    }
+    return Transition.to(view.withPage(page));
+  }
+
+  private Transition<View> onQuery(View view, String query) {
+    if (searchMode == SearchMode.JUMP) {
+      int item = query.isEmpty() ? -1 : view.contents.getIndex().next(query, view.layout.getEnd(view.page));
+      return item < 0 ? Transition.stay() : Transition.to(view.withPage(view.layout.getPageOf(item)));
+    }
+    int[] matches = query.isEmpty() ? null : view.contents.getIndex().search(query);
+    if (matches != null && matches.length == 0) {
+      return Transition.stay();
+    }
+    return Transition.to(view.withQuery(query.isEmpty() ? null : query, matches));
+  }
+
+  private RenderedMenu renderPage(List<String> strings, PageLayout layout, int[] view, int pageNum) {
     EmbedBuilder ebuilder = new EmbedBuilder();
-    int start = (pageNum - 1) * itemsPerPage;
-    int end = strings.size() < pageNum * itemsPerPage ? strings.size() : pageNum * itemsPerPage;
     switch (columns) {
       case 1:
         StringBuilder sbuilder = new StringBuilder();
-        for (int i = start; i < end; i++) {
+        for (int k = layout.getStart(pageNum); k < layout.getEnd(pageNum); k++) {
+          int i = view == null ? k : view[k];
           sbuilder.append("\n").append(numberItems ? "`" + (i + 1) + ".` " : "").append(strings.get(i));
         }
         ebuilder.withDesc(sbuilder.toString());
         break;
       default:
-        int per = (int) Math.ceil((double) (end - start) / columns);
-        for (int k = 0; k < columns; k++) {
+        for (int c = 0; c < columns; c++) {
           StringBuilder strbuilder = new StringBuilder();
-          for (int i = start + k * per; i < end && i < start + (k + 1) * per; i++) {
+          for (int k = layout.getColumnStart(pageNum, c); k < layout.getColumnEnd(pageNum, c); k++) {
+            int i = view == null ? k : view[k];
             strbuilder.append("\n").append(numberItems ? (i + 1) + ". " : "").append(strings.get(i));
           }
           String str = strbuilder.toString();
@@ -206,14 +470,208 @@ public class Paginator extends Menu {
         }
     }
 
-    ebuilder.withColor(color.apply(pageNum, pages));
+    int pageCount = layout.getPages();
+    ebuilder.withColor(color.apply(pageNum, pageCount));
+    if (showPageNumbers) {
+      ebuilder.withFooterText("Page " + pageNum + "/" + pageCount);
+    }
+    return new RenderedMenu(text == null ? null : text.apply(pageNum, pageCount), ebuilder.build());
+  }
+
+  /**
+   * Measures the rendered length of every item, including its line break and number.
+   */
+  private static int[] measure(List<String> items, boolean numberItems, int columns) {
+    int[] lengths = new int[items.size()];
+    for (int i = 0; i < lengths.length; i++) {
+      lengths[i] = 1 + items.get(i).length();
+      if (numberItems) {
+        lengths[i] += String.valueOf(i + 1).length() + (columns == 1 ? 4 : 2);
+      }
+    }
+    return lengths;
+  }
+
+  /**
+   * Gets the most embed characters a page may use on anything other than its items.
+   * <br>Every column is a field named {@code "\u200B"}, and an empty one also has it as its value.
+   *
+   * @param pageDigits The number of digits of the page count, or of anything at least as large
+   */
+  private static int reservedLength(int columns, boolean showPageNumbers, int pageDigits) {
+    int reserved = columns == 1 ? 0 : 2 * columns;
     if (showPageNumbers) {
-      ebuilder.withFooterText("Page " + pageNum + "/" + pages);
+      reserved += "Page /".length() + 2 * pageDigits;
+    }
+    return reserved;
+  }
+
+  /**
+   * How typed queries are handled by a {@link Paginator}.
+   */
+  public enum SearchMode {
+    /**
+     * Typed queries are ignored.
+     */
+    DISABLED,
+    /**
+     * Each query jumps to the next page after the current one with a matching item, wrapping around to
+     * the first page.
+     */
+    JUMP,
+    /**
+     * Each query limits the pages to only the matching items. An empty query shows every item again.
+     */
+    FILTER
+  }
+
+  /**
+   * A fixed version of the items of this Paginator, with everything derived from them.
+   * <br>Pages of every item are rendered at most once per Contents, however many sessions show them.
+   */
+  private final class Contents {
+    private final List<String> items;
+    private final int[] lengths;
+    private final PageLayout layout;
+    private final Map<Integer, RenderedMenu> renders = new ConcurrentHashMap<>();
+    private volatile SearchIndex index;
+
+    Contents(List<String> items) {
+      this.items = items;
+      this.lengths = packPages ? measure(items, numberItems, columns) : null;
+      this.layout = layoutOf(null);
+    }
+
+    /**
+     * Creates the layout for either every item, or only the items in a search result.
+     *
+     * @param view The indices of the items to show, or {@code null} for every item
+     */
+    PageLayout layoutOf(int[] view) {
+      int size = view == null ? items.size() : view.length;
+      if (lengths == null) {
+        return PageLayout.fixed(size, itemsPerPage, columns);
+      }
+      int[] viewLengths = lengths;
+      if (view != null) {
+        viewLengths = new int[view.length];
+        for (int i = 0; i < view.length; i++) {
+          viewLengths[i] = lengths[view[i]];
+        }
+      }
+      // Every page holds at least one item, so the item count bounds the page count.
+      int digits = String.valueOf(Math.max(1, size)).length();
+      PageLayout layout = PageLayout.packed(viewLengths, columns,
+              reservedLength(columns, showPageNumbers, digits));
+      int pageDigits = String.valueOf(layout.getPages()).length();
+      if (showPageNumbers && pageDigits < digits) {
+        // Reserving less never adds pages, so the page count just found still bounds the new one.
+        layout = PageLayout.packed(viewLengths, columns, reservedLength(columns, true, pageDigits));
+      }
+      return layout;
     }
-    mbuilder.withEmbed(ebuilder.build());
-    if (text != null) {
-      mbuilder.withContent(text.apply(pageNum, pages));
+
+    SearchIndex getIndex() {
+      SearchIndex result = index;
+      if (result == null) {
+        synchronized (this) {
+          result = index;
+          if (result == null) {
+            result = index = new SearchIndex(items);
+          }
+        }
+      }
+      return result;
+    }
+
+    RenderedMenu render(int pageNum) {
+      if (renders.size() >= MAX_CACHED_PAGES) {
+        renders.clear();
+      }
+      return renders.computeIfAbsent(pageNum, p -> renderPage(items, layout, null, p));
+    }
+
+    RenderedMenu render(PageLayout layout, int[] view, int pageNum) {
+      return view == null ? render(pageNum) : renderPage(items, layout, view, pageNum);
+    }
+  }
+
+  /**
+   * What a session shows: a page of either every item of some Contents, or only the items matching a
+   * search query.
+   * <br>Two Views are equal when they show the same page of the same items, so they render the same.
+   */
+  private final class View {
+    private final Contents contents;
+    private final String query;
+    private final int[] matches;
+    private final PageLayout layout;
+    private final int page;
+
+    View(Contents contents, int page) {
+      this(contents, null, null, contents.layout, page);
+    }
+
+    private View(Contents contents, String query, int[] matches, PageLayout layout, int page) {
+      this.contents = contents;
+      this.query = query;
+      this.matches = matches;
+      this.layout = layout;
+      this.page = page;
+    }
+
+    View withPage(int page) {
+      return new View(contents, query, matches, layout, page);
+    }
+
+    /**
+     * Limits this View to the items matching a query, starting over on page 1.
+     *
+     * @param query   The query, or {@code null} to show every item again
+     * @param matches The indices of the matching items, or {@code null} to show every item again
+     */
+    View withQuery(String query, int[] matches) {
+      return new View(contents, query, matches, contents.layoutOf(matches), 1);
+    }
+
+    /**
+     * Moves this View to newer contents, running its query again and staying on the same page if it
+     * still exists.
+     */
+    View withContents(Contents next) {
+      if (next == contents) {
+        return this;
+      }
+      int[] nextMatches = query == null ? null : next.getIndex().search(query);
+      PageLayout nextLayout = next.layoutOf(nextMatches);
+      return new View(next, query, nextMatches, nextLayout, Math.min(page, nextLayout.getPages()));
+    }
+
+    RenderedMenu render() {
+      return contents.render(layout, matches, page);
+    }
+
+    int[] itemsOnPage() {
+      int start = layout.getStart(page);
+      int[] items = new int[layout.getEnd(page) - start];
+      for (int k = 0; k < items.length; k++) {
+        items[k] = matches == null ? start + k : matches[start + k];
+      }
+      return items;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof View)) {
+        return false;
+      }
+      View other = (View) o;
+      return contents == other.contents && page == other.page && Objects.equals(query, other.query);
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(contents) * 31 + page;
     }
-    return mbuilder;
   }
-}
\ No newline at end of file
+}
@@ -1,9 +1,9 @@
 package me.xaanit.d4jutilities.menu.pagination;
 
 import me.xaanit.d4jutilities.menu.MenuBuilder;
+import me.xaanit.d4jutilities.menu.RequestScheduler;
 import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.handle.obj.IMessage;
-import sx.blah.discord.util.RequestBuffer;
 
 import java.awt.Color;
 import java.util.Arrays;
@@ -20,12 +20,19 @@ public class PaginatorBuilder extends MenuBuilder<PaginatorBuilder, Paginator> {
 
   private BiFunction<Integer, Integer, Color> color = (page, pages) -> null;
   private BiFunction<Integer, Integer, String> text = (page, pages) -> "";
-  private Consumer<IMessage> finalAction = m -> RequestBuffer.request(() -> m.delete());
+  private Consumer<IMessage> finalAction = RequestScheduler::delete;
   private int columns = 1;
   private int itemsPerPage = 12;
   private boolean showPageNumbers = true;
   private boolean numberItems = false;
   private boolean waitOnSinglePage = false;
+  private boolean packPages = false;
+  private Paginator.SearchMode searchMode = Paginator.SearchMode.DISABLED;
+  private String searchPrefix = "?";
+  private int bulkSkipNumber = 1;
+  private boolean useFirstLast = false;
+  private boolean allowTextInput = false;
+  private LiveItems source = null;
   private IDiscordClient client;
 
   private final List<String> strings = new LinkedList<>();
@@ -35,14 +42,16 @@ public class PaginatorBuilder extends MenuBuilder<PaginatorBuilder, Paginator> {
     if (waiter == null) {
       throw new IllegalArgumentException("Must set an EventWaiter");
     }
-    if (strings.isEmpty()) {
+    if (strings.isEmpty() && source == null) {
       throw new IllegalArgumentException("Must include at least one item to paginate");
     }
     if (client == null) {
       throw new IllegalArgumentException("Client can not be null");
     }
     return new Paginator(waiter, users, roles, timeout, unit, color, text, finalAction,
-                                columns, itemsPerPage, showPageNumbers, numberItems, strings, waitOnSinglePage, client);
+                                columns, itemsPerPage, showPageNumbers, numberItems, strings, waitOnSinglePage, packPages,
+                                searchMode, searchPrefix, bulkSkipNumber, useFirstLast, allowTextInput, source, useReactions,
+                                client);
   }
 
   /**
@@ -153,6 +162,109 @@ public class PaginatorBuilder extends MenuBuilder<PaginatorBuilder, Paginator> {
     return this;
   }
 
+  /**
+   * Sets whether or not pages will be packed with as many items as fit.
+   * <br>By default this is {@code false}.
+   * <p>
+   * <p>When packing, each page is filled up to Discord's embed description, field and total length
+   * limits instead of holding a fixed number of items, and {@link #setItemsPerPage(int)} is ignored.
+   * This keeps pages of variable length items from overflowing the embed or wasting space.
+   * <br>Building will fail if a single item is too long to fit on a page.
+   *
+   * @param pack {@code true} if pages should be packed, {@code false} if they should not
+   *
+   * @return This builder
+   */
+  public PaginatorBuilder usePackedPages(boolean pack) {
+    this.packPages = pack;
+    return this;
+  }
+
+  /**
+   * Sets how the {@link Paginator} handles queries typed in the channel it is displayed in.
+   * <br>By default this is {@link Paginator.SearchMode#DISABLED}.
+   * <p>
+   * <p>When enabled, an index of every item is built once when the Paginator is built, so queries are
+   * answered without scanning every item. Searches ignore case and match anywhere in an item.
+   *
+   * @param mode The SearchMode to use
+   *
+   * @return This builder
+   */
+  public PaginatorBuilder setSearchMode(Paginator.SearchMode mode) {
+    if (mode == null) {
+      throw new IllegalArgumentException("Search mode can not be null");
+    }
+    this.searchMode = mode;
+    return this;
+  }
+
+  /**
+   * Sets the prefix a message must start with to be treated as a search query.
+   * <br>By default this is {@code ?}, so typing {@code ?dragon} searches for "dragon".
+   *
+   * @param prefix The prefix of search queries
+   *
+   * @return This builder
+   */
+  public PaginatorBuilder setSearchPrefix(String prefix) {
+    if (prefix == null) {
+      throw new IllegalArgumentException("Search prefix can not be null");
+    }
+    this.searchPrefix = prefix;
+    return this;
+  }
+
+  /**
+   * Sets the number of pages the {@link Paginator#BIG_LEFT} and {@link Paginator#BIG_RIGHT} buttons skip.
+   * <br>By default this is 1, which does not add the buttons at all.
+   *
+   * @param bulkSkipNumber The number of pages to skip, at least 1
+   *
+   * @return This builder
+   *
+   * @throws IllegalArgumentException If the provided number is less than 1
+   */
+  public PaginatorBuilder setBulkSkipNumber(int bulkSkipNumber) {
+    if (bulkSkipNumber < 1) {
+      throw new IllegalArgumentException("The bulk skip number must be at least 1");
+    }
+    this.bulkSkipNumber = bulkSkipNumber;
+    return this;
+  }
+
+  /**
+   * Sets whether or not {@link Paginator#FIRST} and {@link Paginator#LAST} buttons will be added to jump
+   * straight to the first and last page.
+   *
+   * @param use {@code true} if the buttons should be added, {@code false} if they should not
+   *
+   * @return This builder
+   */
+  public PaginatorBuilder useFirstLastButtons(boolean use) {
+    this.useFirstLast = use;
+    return this;
+  }
+
+  /**
+   * If {@code true}, {@link sx.blah.discord.handle.obj.IUser}s can type a page number in the channel to
+   * go straight to that page.
+   * <br>They can also type {@code n} or {@code next}, {@code p} or {@code prev}, {@code first},
+   * {@code last} and {@code stop} in place of the buttons.
+   * <p>
+   * <p>This is always allowed if the Paginator does not {@link #useReactions(boolean) use reactions}.
+   * <br>Typed input only goes to the most recent open Menu in the channel that the author may use, so older
+   * Menus there stop taking it until the newer one closes.
+   *
+   * @param allow {@code true} if page numbers can be typed, {@code false} if they can not
+   *
+   * @return This builder
+   */
+  public PaginatorBuilder allowTextInput(boolean allow) {
+    this.allowTextInput = allow;
+    return this;
+  }
+
   /**
    * Sets whether or not the page number will be shown.
    *
@@ -222,11 +334,29 @@ public class PaginatorBuilder extends MenuBuilder<PaginatorBuilder, Paginator> {
    * @return This builder
    */
   public PaginatorBuilder setItems(String... items) {
+    source = null;
     strings.clear();
     strings.addAll(Arrays.asList(items));
     return this;
   }
 
+  /**
+   * Sets a {@link LiveItems} as the items to paginate.
+   * <br>This replaces any String items that have been added.
+   * <p>
+   * <p>Every displayed page of the built {@link Paginator} is kept up to date as the LiveItems change.
+   * Only messages showing a page that actually changed are edited.
+   *
+   * @param items The LiveItems to paginate, or {@code null} to go back to String items
+   *
+   * @return This builder
+   */
+  public PaginatorBuilder setItems(LiveItems items) {
+    strings.clear();
+    this.source = items;
+    return this;
+  }
+
   /**
    * Sets the {@link IDiscordClient} for message builders.
    *
@@ -0,0 +1,182 @@
+package me.xaanit.d4jutilities.menu.pagination;
+
+import me.xaanit.d4jutilities.entities.LongHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A case-insensitive substring index over the items of a {@link Paginator}.
+ * <p>
+ * <p>Every distinct 1, 2 and 3 character gram of every item is mapped to the sorted indices of the items
+ * containing it. A query of up to three characters is answered straight from its gram's list. Longer
+ * queries intersect the lists of their trigrams, smallest first, and only the few remaining candidates
+ * are checked with a real substring search. No query scans the whole item list.
+ * <br>Grams are packed into {@code long} keys of a {@link LongHashMap}, so looking one up boxes nothing.
+ *
+ * @author Jacob (xaanit)
+ */
+final class SearchIndex {
+  private static final int[] NONE = new int[0];
+
+  private final String[] lowered;
+  private final LongHashMap<Postings> postings = new LongHashMap<>();
+
+  /**
+   * Builds an index over the provided items.
+   *
+   * @param items The items to index
+   */
+  SearchIndex(List<String> items) {
+    this.lowered = new String[items.size()];
+    List<Postings> all = new ArrayList<>();
+    for (int i = 0; i < lowered.length; i++) {
+      String item = items.get(i).toLowerCase(Locale.ROOT);
+      lowered[i] = item;
+      for (int n = 1; n <= 3; n++) {
+        for (int start = 0; start + n <= item.length(); start++) {
+          long gram = gram(item, start, n);
+          Postings list = postings.get(gram);
+          if (list == null) {
+            list = new Postings();
+            postings.put(gram, list);
+            all.add(list);
+          }
+          list.add(i);
+        }
+      }
+    }
+    all.forEach(Postings::trim);
+  }
+
+  /**
+   * Finds every item containing the query, ignoring case.
+   *
+   * @param query The text to search for
+   *
+   * @return The sorted indices of every matching item, which may be shared and must not be modified
+   */
+  int[] search(String query) {
+    String q = query.toLowerCase(Locale.ROOT);
+    if (q.isEmpty()) {
+      int[] all = new int[lowered.length];
+      Arrays.setAll(all, i -> i);
+      return all;
+    }
+    if (q.length() <= 3) {
+      return items(gram(q, 0, q.length()));
+    }
+
+    int[][] lists = new int[q.length() - 2][];
+    for (int start = 0; start + 3 <= q.length(); start++) {
+      int[] list = items(gram(q, start, 3));
+      if (list.length == 0) {
+        return NONE;
+      }
+      lists[start] = list;
+    }
+    Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+    int[] candidates = lists[0];
+    for (int k = 1; k < lists.length && candidates.length > 0; k++) {
+      candidates = intersect(candidates, lists[k]);
+    }
+
+    int[] matches = new int[candidates.length];
+    int count = 0;
+    for (int i : candidates) {
+      if (lowered[i].contains(q)) {
+        matches[count++] = i;
+      }
+    }
+    return Arrays.copyOf(matches, count);
+  }
+
+  /**
+   * Finds the first item at or after {@code from} containing the query, wrapping around to the start.
+   *
+   * @param query The text to search for
+   * @param from  The index to start searching at
+   *
+   * @return The index of the item, or {@code -1} if no item matches
+   */
+  int next(String query, int from) {
+    int[] matches = search(query);
+    if (matches.length == 0) {
+      return -1;
+    }
+    int index = Arrays.binarySearch(matches, from);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return matches[index < matches.length ? index : 0];
+  }
+
+  /**
+   * Gets the shared list of the items containing a gram.
+   */
+  private int[] items(long gram) {
+    Postings list = postings.get(gram);
+    return list == null ? NONE : list.items;
+  }
+
+  /**
+   * Intersects two sorted lists, walking the shorter one and galloping through the longer one.
+   */
+  private static int[] intersect(int[] small, int[] large) {
+    int[] out = new int[small.length];
+    int count = 0;
+    int from = 0;
+    for (int value : small) {
+      int bound = 1;
+      while (from + bound < large.length && large[from + bound] < value) {
+        bound <<= 1;
+      }
+      int index = Arrays.binarySearch(large, from, Math.min(from + bound + 1, large.length), value);
+      if (index >= 0) {
+        out[count++] = value;
+        from = index + 1;
+      } else {
+        from = -index - 1;
+      }
+      if (from >= large.length) {
+        break;
+      }
+    }
+    return Arrays.copyOf(out, count);
+  }
+
+  /**
+   * Packs a gram of up to three characters and its length into a single key.
+   */
+  private static long gram(String s, int start, int length) {
+    long key = length;
+    for (int i = 0; i < length; i++) {
+      key = (key << 16) | s.charAt(start + i);
+    }
+    return key;
+  }
+
+  /**
+   * A growable, sorted, duplicate-free list of item indices, trimmed to its size once the index is built.
+   */
+  private static final class Postings {
+    private int[] items = new int[4];
+    private int size = 0;
+
+    void add(int item) {
+      if (size > 0 && items[size - 1] == item) {
+        return;
+      }
+      if (size == items.length) {
+        items = Arrays.copyOf(items, size * 2);
+      }
+      items[size++] = item;
+    }
+
+    void trim() {
+      items = Arrays.copyOf(items, size);
+    }
+  }
+}
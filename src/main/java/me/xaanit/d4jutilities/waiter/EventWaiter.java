@@ -5,12 +5,15 @@ import sx.blah.discord.api.events.Event;
 import sx.blah.discord.api.events.EventSubscriber;
 import sx.blah.discord.api.events.IListener;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -24,12 +27,15 @@ import java.util.stream.Collectors;
  * <p>
  * <p>If you intend to use the EventWaiter, it is highly recommended you <b>DO NOT create multiple EventWaiters</b>!
  * Doing this will cause unnecessary increases in memory usage.
+ * <p>
+ * <p>Events may be waited for from any thread, including from inside the action of another waiting event.
+ * Each waiting event runs either its action or its timeout action, never both.
  *
  * @author John Grosh (jagrosh)
  * @editor Jacob (xaanit)
  */
 public class EventWaiter implements IListener<Event> {
-  private final HashMap<Class<?>, List<WaitingEvent>> waitingEvents;
+  private final Map<Class<?>, List<WaitingEvent>> waitingEvents;
   private final ScheduledExecutorService threadpool;
   private final IDiscordClient client;
 
@@ -39,7 +45,7 @@ public class EventWaiter implements IListener<Event> {
   public EventWaiter(IDiscordClient client) {
     this.client = client;
     this.client.getDispatcher().registerListener(this);
-    waitingEvents = new HashMap<>();
+    waitingEvents = new ConcurrentHashMap<>();
     threadpool = Executors.newSingleThreadScheduledExecutor();
   }
 
@@ -80,54 +86,181 @@ public class EventWaiter implements IListener<Event> {
    * @param timeoutAction The Runnable to run if the time runs out before a correct Event is thrown
    */
   public <T extends Event> void waitForEvent(Class<T> classType, Predicate<T> condition, Consumer<T> action, long timeout, TimeUnit unit, Runnable timeoutAction) {
-    List<WaitingEvent> list;
-    if (waitingEvents.containsKey(classType)) {
-      list = waitingEvents.get(classType);
-    } else {
-      list = new ArrayList<>();
-      waitingEvents.put(classType, list);
+    register(Collections.singletonList(classType), new WaitingEvent<>(condition, action), timeout, unit, timeoutAction);
+  }
+
+  /**
+   * Subscribes to every {@link sx.blah.discord.api.events.Event Event} of a type until the subscription is
+   * cancelled or times out.
+   * <p>
+   * <p>Unlike {@link #waitForEvent(Class, Predicate, Consumer, long, TimeUnit, Runnable)}, the subscription
+   * stays registered after handling an Event, so something that handles many Events in a row only
+   * registers once. The provided {@link Predicate Predicate} both handles each Event and reports whether
+   * it was used.
+   * <br>The timeout is an idle timeout: it starts over every time the handler returns {@code true}, and
+   * the provided {@link Runnable} is executed once the subscription goes that long without using an Event.
+   *
+   * @param <T>           The type of Event to subscribe to
+   * @param classType     The {@link Class} of the Event to subscribe to
+   * @param handler       The Predicate handling each Event, returning {@code true} if the Event was used
+   * @param timeout       The longest time to go without using an Event, or {@code 0} to never time out
+   * @param unit          The {@link TimeUnit TimeUnit} measurement of the timeout
+   * @param timeoutAction The Runnable to run if the subscription times out
+   *
+   * @return The {@link Subscription}, which can be cancelled
+   */
+  public <T extends Event> Subscription subscribe(Class<T> classType, Predicate<T> handler, long timeout, TimeUnit unit, Runnable timeoutAction) {
+    WaitingEvent<T> we = new WaitingEvent<>(handler, null);
+    register(Collections.singletonList(classType), we, timeout, unit, timeoutAction);
+    return we;
+  }
+
+  /**
+   * Subscribes to every {@link sx.blah.discord.api.events.Event Event} of several types under a single
+   * subscription, the same as {@link #subscribe(Class, Predicate, long, TimeUnit, Runnable)}.
+   * <br>Using an Event of any of the types starts the idle timeout over, so the subscription only times
+   * out once none of them have been used for that long. Only Events of the provided types are handled, unlike
+   * when subscribing to a common supertype such as Event itself.
+   *
+   * @param classTypes    The {@link Class}es of the Events to subscribe to, none of which extend another
+   * @param handler       The Predicate handling each Event, returning {@code true} if the Event was used
+   * @param timeout       The longest time to go without using an Event, or {@code 0} to never time out
+   * @param unit          The {@link TimeUnit TimeUnit} measurement of the timeout
+   * @param timeoutAction The Runnable to run if the subscription times out
+   *
+   * @return The {@link Subscription}, which can be cancelled
+   */
+  public Subscription subscribe(List<Class<? extends Event>> classTypes, Predicate<Event> handler, long timeout, TimeUnit unit, Runnable timeoutAction) {
+    WaitingEvent<Event> we = new WaitingEvent<>(handler, null);
+    register(classTypes, we, timeout, unit, timeoutAction);
+    return we;
+  }
+
+  private void register(List<? extends Class<?>> classTypes, WaitingEvent<?> we, long timeout, TimeUnit unit, Runnable timeoutAction) {
+    for (Class<?> classType : classTypes) {
+      List<WaitingEvent> list = waitingEvents.computeIfAbsent(classType, c -> new CopyOnWriteArrayList<>());
+      we.lists.add(list);
+      list.add(we);
     }
-    WaitingEvent we = new WaitingEvent<>(condition, action);
-    list.add(we);
     if (timeout > 0 && unit != null) {
-      threadpool.schedule(() -> {
-        if (list.remove(we) && timeoutAction != null) {
-          timeoutAction.run();
-        }
-      }, timeout, unit);
+      we.idle = unit.toNanos(timeout);
+      we.deadline = System.nanoTime() + we.idle;
+      expireLater(we, we.idle, timeoutAction);
     }
   }
 
+  /**
+   * Times out a WaitingEvent once its deadline has passed, checking again later if it was pushed back.
+   */
+  private void expireLater(WaitingEvent<?> we, long delay, Runnable timeoutAction) {
+    threadpool.schedule(() -> {
+      long remaining = we.deadline - System.nanoTime();
+      if (remaining > 0 && !we.finished.get()) {
+        expireLater(we, remaining, timeoutAction);
+      } else if (we.unregister() && we.finish() && timeoutAction != null) {
+        timeoutAction.run();
+      }
+    }, delay, TimeUnit.NANOSECONDS);
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   @EventSubscriber
   public final void handle(Event event) {
     Class c = event.getClass();
     while (c.getSuperclass() != null) {
-      if (waitingEvents.containsKey(c)) {
-        List<WaitingEvent> list = waitingEvents.get(c);
-        List<WaitingEvent> ulist = new ArrayList<>(list);
-        list.removeAll(ulist.stream().filter(i -> i.attempt(event)).collect(Collectors.toList()));
+      List<WaitingEvent> list = waitingEvents.get(c);
+      if (list != null) {
+        list.removeAll(list.stream().filter(i -> i.attempt(event)).collect(Collectors.toList()));
       }
       c = c.getSuperclass();
     }
   }
 
-  private class WaitingEvent<T extends Event> {
+  /**
+   * A registration made through {@link #subscribe(Class, Predicate, long, TimeUnit, Runnable)}.
+   */
+  public interface Subscription {
+    /**
+     * Cancels the subscription, so it neither handles another Event nor times out.
+     *
+     * @return {@code true} if this call cancelled it, {@code false} if it had already ended
+     */
+    boolean cancel();
+
+    /**
+     * Checks whether the subscription is still handling Events.
+     *
+     * @return {@code true} if it has neither been cancelled nor timed out
+     */
+    boolean isActive();
+  }
+
+  private class WaitingEvent<T extends Event> implements Subscription {
     final Predicate<T> condition;
     final Consumer<T> action;
+    final AtomicBoolean finished = new AtomicBoolean();
+    final List<List<WaitingEvent>> lists = new CopyOnWriteArrayList<>();
+    long idle;
+    volatile long deadline;
 
+    /**
+     * @param action The action to run once, or {@code null} if this is a subscription whose condition
+     *               handles every Event itself
+     */
     WaitingEvent(Predicate<T> condition, Consumer<T> action) {
       this.condition = condition;
       this.action = action;
     }
 
     boolean attempt(T event) {
-      if (condition.test(event)) {
+      if (finished.get()) {
+        return true;
+      }
+      if (action == null) {
+        if (condition.test(event)) {
+          deadline = System.nanoTime() + idle;
+        }
+        return finished.get();
+      }
+      if (condition.test(event) && finish()) {
         action.accept(event);
         return true;
       }
       return false;
     }
+
+    @Override
+    public boolean cancel() {
+      unregister();
+      return finish();
+    }
+
+    @Override
+    public boolean isActive() {
+      return !finished.get();
+    }
+
+    /**
+     * Removes this WaitingEvent from the list of every type it was registered for.
+     *
+     * @return {@code true} if it was still in any of them
+     */
+    boolean unregister() {
+      boolean removed = false;
+      for (List<WaitingEvent> list : lists) {
+        removed |= list.remove(this);
+      }
+      return removed;
+    }
+
+    /**
+     * Marks this WaitingEvent as finished, so it can neither run its action nor time out afterwards.
+     *
+     * @return {@code true} if this call finished it, {@code false} if it was already finished
+     */
+    boolean finish() {
+      return finished.compareAndSet(false, true);
+    }
   }
 }
\ No newline at end of file
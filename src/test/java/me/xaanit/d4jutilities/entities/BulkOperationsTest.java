@@ -0,0 +1,143 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BulkOperationsTest {
+
+  @Test
+  public void getsTheKeysThatAreHeldAndCountsEachLookup() {
+    FixedSizeCache<Integer, String> cache = recording().setSize(10).build();
+    cache.add(1, "1");
+    cache.add(2, "2");
+
+    Map<Integer, String> found = cache.getAll(Arrays.asList(1, 2, 3));
+
+    Map<Integer, String> expected = new HashMap<>();
+    expected.put(1, "1");
+    expected.put(2, "2");
+    assertEquals(expected, found);
+    assertEquals(2, cache.getStats().getHitCount());
+    assertEquals(1, cache.getStats().getMissCount());
+  }
+
+  @Test
+  public void addsInTheOrderOfTheMap() {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCache<>(3);
+    Map<Integer, String> entries = new LinkedHashMap<>();
+    for (int i = 0; i < 5; i++) {
+      entries.put(i, "v" + i);
+    }
+
+    cache.addAll(entries);
+
+    assertEquals(3, cache.size());
+    assertFalse(cache.contains(0));
+    assertFalse(cache.contains(1));
+    assertEquals("v4", cache.get(4));
+  }
+
+  @Test
+  public void expiresRatherThanRemovesDeadEntries() throws Exception {
+    FixedSizeCache<Integer, String> cache = recording().setSize(10).build();
+    cache.add(1, "1", 1, TimeUnit.MILLISECONDS);
+    cache.add(2, "2", 1, TimeUnit.MILLISECONDS);
+    cache.add(3, "3");
+    cache.add(4, "4");
+    Thread.sleep(20);
+
+    assertEquals(1, cache.removeAll(Arrays.asList(1, 3, 5)));
+    assertEquals(1, cache.removeIf((key, value) -> true));
+
+    CacheStats stats = cache.getStats();
+    assertEquals(2, stats.getExpirationCount());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void neverOffersExpiredEntriesToTheFilter() throws Exception {
+    ConcurrentFixedSizeCache<Integer, String> cache = recording().setSize(10).buildConcurrent();
+    cache.add(1, "1", 1, TimeUnit.MILLISECONDS);
+    cache.add(2, "2");
+    cache.add(3, "3");
+    Thread.sleep(20);
+
+    assertEquals(1, cache.removeAll(Arrays.asList(1, 2)));
+    assertEquals(1, cache.removeIf((key, value) -> {
+      assertTrue("Offered expired key " + key, key != 1);
+      return true;
+    }));
+    assertEquals(1, cache.getStats().getExpirationCount());
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void iteratesOverLiveEntriesOnly() throws Exception {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCache<>(10);
+    cache.add(1, "1", 1, TimeUnit.MILLISECONDS);
+    cache.add(2, "2");
+    cache.add(3, "3");
+    Thread.sleep(20);
+
+    Map<Integer, String> seen = new HashMap<>();
+    cache.forEach(seen::put);
+
+    assertEquals(2, seen.size());
+    assertFalse(seen.containsKey(1));
+  }
+
+  @Test
+  public void removesThroughTheIterator() {
+    for (EvictionPolicy policy : EvictionPolicy.values()) {
+      FixedSizeCache<Integer, String> cache = new FixedSizeCache<>(10, policy);
+      ConcurrentFixedSizeCache<Integer, String> concurrent = new ConcurrentFixedSizeCache<>(10, policy);
+      for (int i = 0; i < 5; i++) {
+        cache.add(i, "v" + i);
+        concurrent.add(i, "v" + i);
+      }
+
+      for (Iterable<Map.Entry<Integer, String>> entries : Arrays.<Iterable<Map.Entry<Integer, String>>>asList(
+              cache, concurrent)) {
+        Iterator<Map.Entry<Integer, String>> it = entries.iterator();
+        while (it.hasNext()) {
+          if (it.next().getKey() % 2 == 0) {
+            it.remove();
+          }
+        }
+      }
+
+      assertEquals(2, cache.size());
+      assertEquals(2, concurrent.size());
+      assertTrue(cache.contains(1) && cache.contains(3));
+      assertTrue(concurrent.contains(1) && concurrent.contains(3));
+    }
+  }
+
+  @Test
+  public void keepsKeysAddedAgainSinceTheIteratorStarted() {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCache<>(10);
+    cache.add(1, "1");
+    Iterator<Map.Entry<Integer, String>> it = cache.iterator();
+    it.next();
+    cache.remove(1);
+    cache.add(1, "again");
+
+    it.remove();
+
+    assertEquals("again", cache.get(1));
+  }
+
+  private static FixedSizeCacheBuilder<Integer, String> recording() {
+    return new FixedSizeCacheBuilder<Integer, String>().setRecordStats(true);
+  }
+}
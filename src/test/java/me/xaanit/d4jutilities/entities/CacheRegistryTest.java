@@ -0,0 +1,121 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CacheRegistryTest {
+  private static final MBeanServer SERVER = ManagementFactory.getPlatformMBeanServer();
+
+  @Test
+  public void registersNamedCachesOverJmx() throws Exception {
+    FixedSizeCache<Integer, String> cache = named("CacheRegistryTest-users").setSize(4).build();
+    cache.add(1, "1");
+    cache.get(1);
+    cache.get(2);
+
+    ObjectName name = new ObjectName("me.xaanit.d4jutilities:type=Cache,name=CacheRegistryTest-users");
+    assertTrue(SERVER.isRegistered(name));
+    assertEquals(1L, SERVER.getAttribute(name, "HitCount"));
+    assertEquals(1L, SERVER.getAttribute(name, "MissCount"));
+    assertEquals(0.5, (Double) SERVER.getAttribute(name, "HitRate"), 1e-9);
+    assertEquals(1, SERVER.getAttribute(name, "Size"));
+    assertEquals(4L, SERVER.getAttribute(name, "Capacity"));
+
+    CacheStats stats = CacheRegistry.snapshot("CacheRegistryTest-users");
+    assertNotNull(stats);
+    assertEquals(1, stats.getHitCount());
+    assertTrue(CacheRegistry.snapshot().containsKey("CacheRegistryTest-users"));
+  }
+
+  @Test
+  public void quotesNamesThatAreNotValidObjectNames() throws Exception {
+    ConcurrentFixedSizeCache<Integer, String> cache = named("CacheRegistryTest, embeds").setSize(4)
+            .buildConcurrent();
+    cache.add(1, "1");
+
+    ObjectName name = new ObjectName("me.xaanit.d4jutilities:type=Cache,name="
+            + ObjectName.quote("CacheRegistryTest, embeds"));
+    assertTrue(SERVER.isRegistered(name));
+    assertEquals(1, SERVER.getAttribute(name, "Size"));
+  }
+
+  @Test
+  public void replacesACacheRegisteredUnderTheSameName() throws Exception {
+    FixedSizeCache<Integer, String> first = named("CacheRegistryTest-replaced").setSize(4).build();
+    first.add(1, "1");
+    FixedSizeCache<Integer, String> second = named("CacheRegistryTest-replaced").setSize(8).build();
+
+    ObjectName name = new ObjectName("me.xaanit.d4jutilities:type=Cache,name=CacheRegistryTest-replaced");
+    assertTrue(SERVER.isRegistered(name));
+    assertEquals(8L, SERVER.getAttribute(name, "Capacity"));
+    assertEquals(0, SERVER.getAttribute(name, "Size"));
+    CacheStats stats = CacheRegistry.snapshot("CacheRegistryTest-replaced");
+    assertEquals(second.getStats().getCapacity(), stats.getCapacity());
+  }
+
+  @Test
+  public void unregistersCachesOnceTheyAreCollected() throws Exception {
+    ObjectName name = new ObjectName("me.xaanit.d4jutilities:type=Cache,name=CacheRegistryTest-collected");
+    WeakReference<FixedSizeCache<Integer, String>> reference = registerAndForget("CacheRegistryTest-collected");
+    assertTrue(SERVER.isRegistered(name));
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (reference.get() != null && System.nanoTime() < deadline) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull("The cache was never collected", reference.get());
+
+    // Noticed the next time the cache is looked at.
+    assertNull(CacheRegistry.snapshot("CacheRegistryTest-collected"));
+    assertFalse(SERVER.isRegistered(name));
+    assertFalse(CacheRegistry.snapshot().containsKey("CacheRegistryTest-collected"));
+  }
+
+  @Test
+  public void registersLongAndOffHeapCachesByName() throws Exception {
+    LongFixedSizeCache<String> longs = new LongFixedSizeCache<>(4, "CacheRegistryTest-longs");
+    longs.add(1, "1");
+    longs.get(2);
+    OffHeapFixedSizeCache<Integer> offHeap = new OffHeapFixedSizeCache<>(1, EvictionPolicy.LRU,
+            "CacheRegistryTest-offHeap");
+    offHeap.add(1, new byte[10]);
+    offHeap.get(1);
+
+    ObjectName name = new ObjectName("me.xaanit.d4jutilities:type=Cache,name=CacheRegistryTest-longs");
+    assertEquals(1L, SERVER.getAttribute(name, "MissCount"));
+    assertEquals(1, SERVER.getAttribute(name, "Size"));
+    assertEquals(1, CacheRegistry.snapshot("CacheRegistryTest-offHeap").getHitCount());
+    assertEquals(10, CacheRegistry.snapshot("CacheRegistryTest-offHeap").getWeight());
+    // Keeps both caches reachable, so neither is collected and unregistered before the lookups above.
+    assertEquals(longs.size(), offHeap.size());
+  }
+
+  @Test
+  public void ignoresCachesThatWereNeverNamed() {
+    new FixedSizeCacheBuilder<Integer, String>().setSize(4).setRecordStats(true).build();
+
+    assertNull(CacheRegistry.snapshot("CacheRegistryTest-unnamed"));
+  }
+
+  private static WeakReference<FixedSizeCache<Integer, String>> registerAndForget(String name) {
+    FixedSizeCache<Integer, String> cache = named(name).setSize(4).build();
+    cache.add(1, "1");
+    return new WeakReference<>(cache);
+  }
+
+  private static FixedSizeCacheBuilder<Integer, String> named(String name) {
+    return new FixedSizeCacheBuilder<Integer, String>().setName(name);
+  }
+}
@@ -0,0 +1,170 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CacheStatsTest {
+  private static final double DELTA = 1e-9;
+
+  @Test
+  public void countsHitsMissesAndEvictions() {
+    FixedSizeCache<Integer, String> cache = recording().setSize(3).build();
+    for (int i = 0; i < 5; i++) {
+      cache.add(i, "v" + i);
+    }
+    cache.get(4);
+    cache.get(3);
+    cache.get(0);
+
+    CacheStats stats = cache.getStats();
+    assertEquals(2, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(2.0 / 3, stats.getHitRate(), DELTA);
+    assertEquals(2, stats.getEvictionCount());
+    assertEquals(3, stats.getSize());
+    assertEquals(3, stats.getWeight());
+    assertEquals(3, stats.getCapacity());
+    assertEquals(1, stats.getOccupancy(), DELTA);
+  }
+
+  @Test
+  public void countsLoadsAndTheirFailures() {
+    FixedSizeCache<Integer, String> cache = recording().setSize(10).build();
+    assertEquals("loaded", cache.get(1, key -> "loaded"));
+    assertEquals("loaded", cache.get(1, key -> "again"));
+    try {
+      cache.get(2, key -> {
+        throw new IllegalStateException("boom");
+      });
+      fail("The load should have failed");
+    } catch (IllegalStateException e) {
+      assertEquals("boom", e.getMessage());
+    }
+
+    CacheStats stats = cache.getStats();
+    assertEquals(1, stats.getLoadSuccessCount());
+    assertEquals(1, stats.getLoadFailureCount());
+    assertEquals(1, stats.getHitCount());
+    assertEquals(2, stats.getMissCount());
+    assertTrue(stats.getTotalLoadTime() > 0);
+    assertEquals(stats.getTotalLoadTime() / 2.0, stats.getAverageLoadPenalty(), DELTA);
+  }
+
+  @Test
+  public void countsExpirations() throws Exception {
+    FixedSizeCache<Integer, String> cache = recording().setSize(10).build();
+    cache.add(1, "1", 1, TimeUnit.MILLISECONDS);
+    cache.add(2, "2");
+    Thread.sleep(20);
+
+    cache.get(1);
+
+    CacheStats stats = cache.getStats();
+    assertEquals(1, stats.getExpirationCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(0, stats.getEvictionCount());
+    assertEquals(1, stats.getSize());
+  }
+
+  @Test
+  public void countsTheSameForAConcurrentCache() {
+    ConcurrentFixedSizeCache<Integer, String> cache = recording().setSize(3)
+            .setConcurrencyLevel(1)
+            .buildConcurrent();
+    for (int i = 0; i < 5; i++) {
+      cache.add(i, "v" + i);
+    }
+    cache.get(4);
+    cache.get(0);
+    cache.get(5, key -> "v5");
+
+    CacheStats stats = cache.getStats();
+    assertEquals(1, stats.getHitCount());
+    assertEquals(2, stats.getMissCount());
+    assertEquals(1, stats.getLoadSuccessCount());
+    assertEquals(3, stats.getEvictionCount());
+    assertEquals(3, stats.getSize());
+  }
+
+  @Test
+  public void onlyFillsInTheSizeWhenNotRecording() {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCache<>(4);
+    for (int i = 0; i < 6; i++) {
+      cache.add(i, "v" + i);
+      cache.get(i);
+    }
+
+    CacheStats stats = cache.getStats();
+    assertEquals(0, stats.getHitCount());
+    assertEquals(0, stats.getMissCount());
+    assertEquals(0, stats.getEvictionCount());
+    assertEquals(1, stats.getHitRate(), DELTA);
+    assertEquals(4, stats.getSize());
+    assertEquals(4, stats.getWeight());
+    assertEquals(4, stats.getCapacity());
+  }
+
+  @Test
+  public void countsTheSameForALongKeyedCache() {
+    LongFixedSizeCache<String> cache = new LongFixedSizeCache<>(3, "CacheStatsTest-long");
+    for (long i = 0; i < 5; i++) {
+      cache.add(i, "v" + i);
+    }
+    cache.get(4);
+    cache.get(0);
+    cache.add(5, null);
+    cache.get(5);
+
+    CacheStats stats = cache.getStats();
+    assertEquals(2, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(3, stats.getEvictionCount());
+    assertEquals(3, stats.getSize());
+    assertEquals(3, stats.getCapacity());
+  }
+
+  @Test
+  public void countsTheSameForAnOffHeapCache() {
+    OffHeapFixedSizeCache<Integer> cache = new OffHeapFixedSizeCache<>(1, EvictionPolicy.FIFO,
+            "CacheStatsTest-offHeap");
+    // Each value takes a whole slab, so every add after the first evicts.
+    byte[] value = new byte[1 << 20];
+    for (int i = 0; i < 3; i++) {
+      cache.add(i, value);
+    }
+    cache.get(2);
+    cache.read(0, buffer -> buffer);
+
+    CacheStats stats = cache.getStats();
+    assertEquals(1, stats.getHitCount());
+    assertEquals(1, stats.getMissCount());
+    assertEquals(2, stats.getEvictionCount());
+    assertEquals(1, stats.getSize());
+    assertEquals(1 << 20, stats.getWeight());
+    assertEquals(1 << 20, stats.getCapacity());
+  }
+
+  @Test
+  public void onlyFillsInTheSizeOfUnnamedLongAndOffHeapCaches() {
+    LongFixedSizeCache<String> longs = new LongFixedSizeCache<>(4);
+    longs.add(1, "1");
+    longs.get(1);
+    OffHeapFixedSizeCache<Integer> offHeap = new OffHeapFixedSizeCache<>(1);
+    offHeap.add(1, new byte[10]);
+    offHeap.get(1);
+
+    assertEquals(0, longs.getStats().getHitCount());
+    assertEquals(1, longs.getStats().getSize());
+    assertEquals(0, offHeap.getStats().getHitCount());
+    assertEquals(10, offHeap.getStats().getWeight());
+  }
+
+  private static FixedSizeCacheBuilder<Integer, String> recording() {
+    return new FixedSizeCacheBuilder<Integer, String>().setRecordStats(true);
+  }
+}
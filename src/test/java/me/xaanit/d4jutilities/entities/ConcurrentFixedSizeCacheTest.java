@@ -0,0 +1,164 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentFixedSizeCacheTest {
+  private static final int THREADS = 8;
+  private static final int OPERATIONS = 50_000;
+
+  @Test
+  public void neverHoldsMoreThanItsCapacity() throws Exception {
+    for (EvictionPolicy policy : EvictionPolicy.values()) {
+      ConcurrentFixedSizeCache<Integer, String> cache = new ConcurrentFixedSizeCache<>(500, THREADS, policy);
+      hammer(cache, 2_000, () -> assertTrue(policy + " grew past its capacity", cache.size() <= 500));
+
+      assertTrue(cache.size() <= 500);
+      assertConsistent(cache);
+    }
+  }
+
+  @Test
+  public void neverHoldsMoreThanItsMaximumWeight() throws Exception {
+    for (EvictionPolicy policy : EvictionPolicy.values()) {
+      ConcurrentFixedSizeCache<Integer, String> cache = new FixedSizeCacheBuilder<Integer, String>()
+              .setMaximumWeight(20_000, (key, value) -> value.length())
+              .setConcurrencyLevel(THREADS)
+              .setPolicy(policy)
+              .buildConcurrent();
+      // Each thread may briefly run the total over by at most one entry while it evicts from other stripes.
+      hammer(cache, 2_000, () -> assertTrue(cache.getStats().getWeight() <= 20_000 + THREADS * 30));
+
+      long weight = 0;
+      for (Map.Entry<Integer, String> entry : cache) {
+        weight += entry.getValue().length();
+      }
+      assertEquals(policy.toString(), weight, cache.getStats().getWeight());
+      assertTrue(weight <= 20_000);
+      assertConsistent(cache);
+    }
+  }
+
+  @Test
+  public void replacesValuesInPlace() {
+    ConcurrentFixedSizeCache<Integer, String> cache = new ConcurrentFixedSizeCache<>(4, 1);
+    cache.add(1, "a");
+    cache.add(1, "b");
+
+    assertEquals("b", cache.get(1));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void evictsByPolicyWithinAStripe() {
+    ConcurrentFixedSizeCache<Integer, String> cache = new ConcurrentFixedSizeCache<>(3, 1, EvictionPolicy.LRU);
+    cache.add(1, "1");
+    cache.add(2, "2");
+    cache.add(3, "3");
+    cache.get(1);
+    cache.add(4, "4");
+
+    assertTrue(cache.contains(1));
+    assertFalse(cache.contains(2));
+    assertEquals(3, cache.size());
+  }
+
+  @Test
+  public void sweepsExpiredEntries() throws Exception {
+    ConcurrentFixedSizeCache<Integer, String> cache = new FixedSizeCacheBuilder<Integer, String>()
+            .setSize(100)
+            .setRecordStats(true)
+            .buildConcurrent();
+    cache.add(1, "1", 50, TimeUnit.MILLISECONDS);
+    cache.add(2, "2");
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (cache.size() > 1 && System.nanoTime() < deadline) {
+      Thread.sleep(50);
+    }
+    // Removed by the background thread, as nothing looked the key up.
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.getStats().getExpirationCount());
+    assertNull(cache.get(1));
+    assertEquals("2", cache.get(2));
+  }
+
+  /**
+   * Adds, reads and removes random keys from several threads at once, checking an invariant as it goes.
+   * <br>Every value is the key it is paired with, so any entry paired with the wrong value shows up.
+   */
+  private static void hammer(ConcurrentFixedSizeCache<Integer, String> cache, int keys, Runnable invariant)
+          throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      int seed = t;
+      Thread thread = new Thread(() -> {
+        Random random = new Random(seed);
+        try {
+          start.await();
+          for (int i = 0; i < OPERATIONS; i++) {
+            int key = random.nextInt(keys);
+            int operation = random.nextInt(10);
+            if (operation < 4) {
+              cache.add(key, valueOf(key, random));
+            } else if (operation < 9) {
+              String value = cache.get(key);
+              if (value != null && !value.startsWith(key + ":")) {
+                throw new AssertionError("Key " + key + " was paired with " + value);
+              }
+            } else {
+              cache.remove(key);
+            }
+            if (i % 1_000 == 0) {
+              invariant.run();
+            }
+          }
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+  }
+
+  private static String valueOf(int key, Random random) {
+    StringBuilder value = new StringBuilder().append(key).append(':');
+    for (int i = random.nextInt(20); i > 0; i--) {
+      value.append('x');
+    }
+    return value.toString();
+  }
+
+  private static void assertConsistent(ConcurrentFixedSizeCache<Integer, String> cache) {
+    int iterated = 0;
+    for (Map.Entry<Integer, String> entry : cache) {
+      assertTrue(entry.getValue().startsWith(entry.getKey() + ":"));
+      assertEquals(entry.getValue(), cache.get(entry.getKey()));
+      iterated++;
+    }
+    assertEquals(cache.size(), iterated);
+    assertEquals(cache.size(), cache.getStats().getSize());
+  }
+}
@@ -0,0 +1,79 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FixedSizeCacheTest {
+
+  @Test
+  public void holdsEachKeyOnceHoweverOftenItIsAdded() {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCache<>(3);
+    for (int i = 0; i < 10; i++) {
+      cache.add(1, "v" + i);
+    }
+    cache.add(2, "2");
+    cache.add(3, "3");
+
+    // Re-adding a key used to take a slot each time, pushing out keys that were never evicted.
+    assertEquals(3, cache.size());
+    assertEquals("v9", cache.get(1));
+    assertTrue(cache.contains(2));
+    assertTrue(cache.contains(3));
+  }
+
+  @Test
+  public void keepsTheFirstInLineWhenItIsReplaced() {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCache<>(3);
+    cache.add(1, "1");
+    cache.add(2, "2");
+    cache.add(3, "3");
+    cache.add(1, "one");
+    cache.add(4, "4");
+
+    // Replacing a value keeps its key's place in line, so it is still the first out.
+    assertFalse(cache.contains(1));
+    assertTrue(cache.contains(2));
+    assertTrue(cache.contains(3));
+    assertTrue(cache.contains(4));
+  }
+
+  @Test
+  public void neverEvictsARefreshedKeyThroughAnOldSlot() {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCache<>(2);
+    cache.add(1, "1");
+    cache.add(2, "2");
+    cache.add(2, "two");
+    cache.add(3, "3");
+    cache.add(4, "4");
+
+    // Evicting 1 and then 2 must each remove exactly one key, leaving the two newest.
+    assertEquals(2, cache.size());
+    assertTrue(cache.contains(3));
+    assertTrue(cache.contains(4));
+    cache.add(3, "three");
+    cache.add(5, "5");
+    assertEquals(2, cache.size());
+    assertTrue(cache.contains(4));
+    assertTrue(cache.contains(5));
+  }
+
+  @Test
+  public void evictsInTheOrderKeysWereFirstAdded() {
+    FixedSizeCache<Integer, Integer> cache = new FixedSizeCache<>(100);
+    for (int i = 0; i < 1_000; i++) {
+      cache.add(i, i);
+      // Refreshing keys that are still held never changes the order they leave in.
+      if (i >= 50) {
+        cache.add(i - 50, i);
+      }
+    }
+
+    assertEquals(100, cache.size());
+    for (int i = 900; i < 1_000; i++) {
+      assertTrue(cache.contains(i));
+    }
+  }
+}
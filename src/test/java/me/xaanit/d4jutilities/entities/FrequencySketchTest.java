@@ -0,0 +1,74 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrequencySketchTest {
+
+  @Test
+  public void countsUsesUpToFifteen() {
+    FrequencySketch sketch = new FrequencySketch(1_024);
+    int key = hash(42);
+    assertEquals(0, sketch.frequency(key));
+
+    for (int i = 1; i <= 20; i++) {
+      sketch.increment(key);
+      assertEquals(Math.min(i, 15), sketch.frequency(key));
+    }
+  }
+
+  @Test
+  public void neverUnderestimates() {
+    FrequencySketch sketch = new FrequencySketch(1_024);
+    for (int key = 0; key < 500; key++) {
+      for (int i = 0; i < key % 16; i++) {
+        sketch.increment(hash(key));
+      }
+    }
+
+    for (int key = 0; key < 500; key++) {
+      assertTrue(sketch.frequency(hash(key)) >= key % 16);
+    }
+  }
+
+  @Test
+  public void halvesEveryCountOnceEnoughUsesWereCounted() {
+    FrequencySketch sketch = new FrequencySketch(1_024);
+    int hot = hash(-1);
+    for (int i = 0; i < 12; i++) {
+      sketch.increment(hot);
+    }
+    // The sketch ages after ten uses per entry it was sized for, so the next use after these resets it.
+    int sampleSize = 10 * 1_024;
+    for (int key = 0; key < sampleSize - 13; key++) {
+      sketch.increment(hash(key));
+    }
+    int before = sketch.frequency(hot);
+    assertTrue(before >= 12);
+
+    sketch.increment(hash(sampleSize));
+
+    int after = sketch.frequency(hot);
+    assertTrue("Expected about " + before / 2 + " but was " + after, after == before / 2);
+  }
+
+  @Test
+  public void startsOverWhenGrown() {
+    FrequencySketch sketch = new FrequencySketch(16);
+    int key = hash(7);
+    for (int i = 0; i < 5; i++) {
+      sketch.increment(key);
+    }
+
+    sketch.ensureCapacity(8);
+    assertEquals(5, sketch.frequency(key));
+    sketch.ensureCapacity(4_096);
+    assertEquals(0, sketch.frequency(key));
+  }
+
+  private static int hash(int key) {
+    return EvictionQueue.hash(key);
+  }
+}
@@ -0,0 +1,103 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LinearProbingTest {
+  private static final int MASK = 7;
+
+  @Test
+  public void shiftsKeysBackAcrossTheWrapAround() {
+    long[] table = new long[MASK + 1];
+    long[] keys = keysHomedAt(7, 3);
+    for (long key : keys) {
+      table[LinearProbing.indexOf(table, key)] = key;
+    }
+    assertEquals(keys[1], table[0]);
+    assertEquals(keys[2], table[1]);
+
+    LinearProbing.removeAt(slots(table), 7, MASK);
+
+    assertEquals(keys[1], table[7]);
+    assertEquals(keys[2], table[0]);
+    assertEquals(0, table[1]);
+    assertEquals(7, LinearProbing.indexOf(table, keys[1]));
+    assertEquals(0, LinearProbing.indexOf(table, keys[2]));
+  }
+
+  @Test
+  public void onlyShiftsKeysThatWouldBeLostInAClusteredChain() {
+    long[] table = new long[MASK + 1];
+    long[] sixes = keysHomedAt(6, 2);
+    long seven = keysHomedAt(7, 1)[0];
+    long zero = keysHomedAt(0, 1)[0];
+    for (long key : new long[]{sixes[0], seven, sixes[1], zero}) {
+      table[LinearProbing.indexOf(table, key)] = key;
+    }
+
+    LinearProbing.removeAt(slots(table), 6, MASK);
+
+    // The key in its home slot stays, while those that probed past the gap move back into it.
+    assertEquals(sixes[1], table[6]);
+    assertEquals(seven, table[7]);
+    assertEquals(zero, table[0]);
+    assertEquals(0, table[1]);
+    for (long key : new long[]{sixes[1], seven, zero}) {
+      assertEquals(key, table[LinearProbing.indexOf(table, key)]);
+    }
+  }
+
+  @Test
+  public void emptiesTheSlotOfTheLastKeyInAChain() {
+    long[] table = new long[MASK + 1];
+    long[] keys = keysHomedAt(3, 3);
+    for (long key : keys) {
+      table[LinearProbing.indexOf(table, key)] = key;
+    }
+
+    LinearProbing.removeAt(slots(table), 5, MASK);
+
+    assertEquals(keys[0], table[3]);
+    assertEquals(keys[1], table[4]);
+    assertEquals(0, table[5]);
+  }
+
+  /**
+   * Finds non-zero keys whose home slot in a table of eight is the one given.
+   */
+  private static long[] keysHomedAt(int home, int count) {
+    long[] keys = new long[count];
+    int found = 0;
+    for (long key = 1; found < count; key++) {
+      if ((LinearProbing.hash(key) & MASK) == home) {
+        keys[found++] = key;
+      }
+    }
+    return keys;
+  }
+
+  private static LinearProbing.Slots slots(long[] table) {
+    return new LinearProbing.Slots() {
+      @Override
+      public boolean isFree(int slot) {
+        return table[slot] == 0;
+      }
+
+      @Override
+      public int hash(int slot) {
+        return LinearProbing.hash(table[slot]);
+      }
+
+      @Override
+      public void move(int from, int to) {
+        table[to] = table[from];
+      }
+
+      @Override
+      public void free(int slot) {
+        table[slot] = 0;
+      }
+    };
+  }
+}
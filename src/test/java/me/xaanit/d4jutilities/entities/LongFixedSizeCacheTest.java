@@ -0,0 +1,87 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LongFixedSizeCacheTest {
+
+  @Test
+  public void evictsInTheOrderKeysWereAdded() {
+    LongFixedSizeCache<String> cache = new LongFixedSizeCache<>(3);
+    for (long key = 1; key <= 5; key++) {
+      cache.add(key, "v" + key);
+    }
+
+    assertFalse(cache.contains(1));
+    assertFalse(cache.contains(2));
+    for (long key = 3; key <= 5; key++) {
+      assertEquals("v" + key, cache.get(key));
+    }
+  }
+
+  @Test
+  public void keepsTheKeysPlaceInLineWhenReplaced() {
+    LongFixedSizeCache<String> cache = new LongFixedSizeCache<>(3);
+    cache.add(1, "a");
+    cache.add(2, "b");
+    cache.add(3, "c");
+    cache.add(1, "again");
+
+    cache.add(4, "d");
+
+    assertFalse(cache.contains(1));
+    assertNull(cache.get(1));
+    assertEquals("b", cache.get(2));
+  }
+
+  @Test
+  public void evictsZeroInTurn() {
+    LongFixedSizeCache<String> cache = new LongFixedSizeCache<>(2);
+    cache.add(0, "zero");
+    cache.add(1, "one");
+    cache.add(0, "again");
+    assertEquals("again", cache.get(0));
+
+    cache.add(2, "two");
+
+    assertFalse(cache.contains(0));
+    assertNull(cache.get(0));
+    assertTrue(cache.contains(1));
+    assertTrue(cache.contains(2));
+  }
+
+  @Test
+  public void matchesAQueueOverManyEvictions() {
+    Random random = new Random(42);
+    LongFixedSizeCache<String> cache = new LongFixedSizeCache<>(50);
+    Deque<Long> order = new ArrayDeque<>();
+    Map<Long, String> expected = new HashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      long key = random.nextInt(200);
+      String value = key + ":" + i;
+      if (!expected.containsKey(key)) {
+        if (order.size() == 50) {
+          expected.remove(order.removeFirst());
+        }
+        order.addLast(key);
+      }
+      expected.put(key, value);
+      cache.add(key, value);
+    }
+
+    for (long key = 0; key < 200; key++) {
+      assertEquals(expected.get(key), cache.get(key));
+      assertEquals(expected.containsKey(key), cache.contains(key));
+    }
+  }
+}
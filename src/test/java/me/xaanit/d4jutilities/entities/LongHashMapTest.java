@@ -0,0 +1,56 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LongHashMapTest {
+
+  @Test
+  public void pairsZeroLikeAnyOtherKey() {
+    LongHashMap<String> map = new LongHashMap<>();
+    assertNull(map.put(0, "a"));
+    assertEquals("a", map.put(0, "b"));
+    map.put(1, "c");
+
+    assertEquals("b", map.get(0));
+    assertTrue(map.containsKey(0));
+    assertEquals(2, map.size());
+    assertEquals("b", map.remove(0));
+    assertNull(map.remove(0));
+    assertFalse(map.containsKey(0));
+    assertNull(map.get(0));
+    assertEquals("c", map.get(1));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public void keepsValuesWithTheirKeysAfterRemovals() {
+    // A narrow range of keys keeps the table crowded, so removals keep shifting keys and values back.
+    Random random = new Random(42);
+    LongHashMap<String> map = new LongHashMap<>();
+    Map<Long, String> expected = new HashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      long key = random.nextInt(64);
+      if (random.nextBoolean()) {
+        String value = key + ":" + i;
+        assertEquals(expected.put(key, value), map.put(key, value));
+      } else {
+        assertEquals(expected.remove(key), map.remove(key));
+      }
+    }
+
+    assertEquals(expected.size(), map.size());
+    for (long key = 0; key < 64; key++) {
+      assertEquals(expected.get(key), map.get(key));
+      assertEquals(expected.containsKey(key), map.containsKey(key));
+    }
+  }
+}
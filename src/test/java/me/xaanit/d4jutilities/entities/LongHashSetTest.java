@@ -0,0 +1,67 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongHashSetTest {
+
+  @Test
+  public void holdsZeroAlongsideTheOtherValues() {
+    LongHashSet set = new LongHashSet();
+    assertFalse(set.contains(0));
+    assertTrue(set.add(0));
+    assertFalse(set.add(0));
+    set.add(1);
+
+    assertTrue(set.contains(0));
+    assertEquals(2, set.size());
+    assertTrue(set.remove(0));
+    assertFalse(set.remove(0));
+    assertFalse(set.contains(0));
+    assertTrue(set.contains(1));
+    assertEquals(1, set.size());
+  }
+
+  @Test
+  public void findsEveryValueLeftAfterRemovals() {
+    // A narrow range of values keeps the table crowded, so removals keep landing inside chains.
+    Random random = new Random(42);
+    LongHashSet set = new LongHashSet();
+    Set<Long> expected = new HashSet<>();
+    for (int i = 0; i < 100_000; i++) {
+      long value = random.nextInt(64);
+      if (random.nextBoolean()) {
+        assertEquals(expected.add(value), set.add(value));
+      } else {
+        assertEquals(expected.remove(value), set.remove(value));
+      }
+    }
+
+    assertEquals(expected.size(), set.size());
+    for (long value = 0; value < 64; value++) {
+      assertEquals(expected.contains(value), set.contains(value));
+    }
+  }
+
+  @Test
+  public void copiesAreIndependent() {
+    LongHashSet set = new LongHashSet();
+    set.add(0);
+    set.add(1);
+    LongHashSet copy = new LongHashSet(set);
+
+    set.remove(0);
+    set.remove(1);
+
+    assertTrue(copy.contains(0));
+    assertTrue(copy.contains(1));
+    assertEquals(2, copy.size());
+  }
+}
@@ -0,0 +1,171 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapFixedSizeCacheTest {
+  private static final int SLAB = 1 << 20;
+  // The smallest slots are 64 bytes, so a slab of them holds this many.
+  private static final int SMALL_SLOTS = SLAB / 64;
+
+  @Test
+  public void readsBackValuesOfEverySizeClass() {
+    OffHeapFixedSizeCache<Integer> cache = new OffHeapFixedSizeCache<>(20L * SLAB);
+    int[] lengths = {0, 1, 64, 65, 1000, 4096, 4097, SLAB / 2 + 1, SLAB};
+    Random random = new Random(42);
+    byte[][] values = new byte[lengths.length][];
+    for (int i = 0; i < lengths.length; i++) {
+      values[i] = new byte[lengths[i]];
+      random.nextBytes(values[i]);
+      cache.add(i, values[i]);
+    }
+
+    long total = 0;
+    for (int i = 0; i < lengths.length; i++) {
+      assertArrayEquals(values[i], cache.get(i));
+      byte[] read = cache.read(i, buffer -> {
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.get(copy);
+        return copy;
+      });
+      assertArrayEquals(values[i], read);
+      total += lengths[i];
+    }
+    assertEquals(lengths.length, cache.size());
+    assertEquals(total, cache.getValueBytes());
+  }
+
+  @Test
+  public void reusesTheSlotOfARemovedValue() {
+    OffHeapFixedSizeCache<Integer> cache = new OffHeapFixedSizeCache<>(SLAB);
+    for (int i = 0; i < SMALL_SLOTS; i++) {
+      cache.add(i, new byte[10]);
+    }
+    cache.remove(5);
+
+    cache.add(-1, new byte[10]);
+
+    assertEquals(SMALL_SLOTS, cache.size());
+    assertTrue(cache.contains(0));
+    assertTrue(cache.contains(-1));
+    assertFalse(cache.contains(5));
+  }
+
+  @Test
+  public void evictsTheOldestValueOfItsSizeClass() {
+    OffHeapFixedSizeCache<Integer> cache = new OffHeapFixedSizeCache<>(SLAB);
+    for (int i = 0; i <= SMALL_SLOTS; i++) {
+      cache.add(i, new byte[10]);
+    }
+
+    assertEquals(SMALL_SLOTS, cache.size());
+    assertFalse(cache.contains(0));
+    assertTrue(cache.contains(1));
+    assertTrue(cache.contains(SMALL_SLOTS));
+  }
+
+  @Test
+  public void evictsTheLeastRecentlyUsedValueUnderLru() {
+    // Values of just over half a slab take a whole slab each.
+    OffHeapFixedSizeCache<String> cache = new OffHeapFixedSizeCache<>(2L * SLAB, EvictionPolicy.LRU);
+    cache.add("a", new byte[SLAB / 2 + 1]);
+    cache.add("b", new byte[SLAB / 2 + 1]);
+    cache.get("a");
+
+    cache.add("c", new byte[SLAB / 2 + 1]);
+
+    assertTrue(cache.contains("a"));
+    assertFalse(cache.contains("b"));
+    assertTrue(cache.contains("c"));
+  }
+
+  @Test
+  public void keepsTheKeysPlaceInLineWhenReplacedInPlace() {
+    OffHeapFixedSizeCache<String> cache = new OffHeapFixedSizeCache<>(2L * SLAB);
+    cache.add("a", new byte[SLAB / 2 + 1]);
+    cache.add("b", new byte[SLAB / 2 + 1]);
+    cache.add("a", new byte[SLAB / 2 + 2]);
+
+    cache.add("c", new byte[SLAB / 2 + 1]);
+
+    assertFalse(cache.contains("a"));
+    assertTrue(cache.contains("b"));
+    assertEquals(2L * (SLAB / 2 + 1), cache.getValueBytes());
+  }
+
+  @Test
+  public void movesAValueReplacedByOneOfAnotherSize() {
+    OffHeapFixedSizeCache<String> cache = new OffHeapFixedSizeCache<>(2L * SLAB);
+    cache.add("a", new byte[10]);
+    byte[] larger = new byte[1000];
+    larger[999] = 7;
+
+    cache.add("a", larger);
+
+    assertArrayEquals(larger, cache.get("a"));
+    assertEquals(1, cache.size());
+    assertEquals(1000, cache.getValueBytes());
+  }
+
+  @Test
+  public void takesOverTheSlabOfAnotherSizeClass() {
+    OffHeapFixedSizeCache<Integer> cache = new OffHeapFixedSizeCache<>(SLAB);
+    for (int i = 0; i < 100; i++) {
+      cache.add(i, new byte[10]);
+    }
+
+    cache.add(-1, new byte[SLAB]);
+
+    assertEquals(1, cache.size());
+    assertTrue(cache.contains(-1));
+    assertEquals(SLAB, cache.getValueBytes());
+
+    cache.add(1, new byte[10]);
+
+    assertEquals(1, cache.size());
+    assertFalse(cache.contains(-1));
+    assertEquals(10, cache.getValueBytes());
+  }
+
+  @Test
+  public void matchesWhatWasLastAddedUnderChurn() {
+    OffHeapFixedSizeCache<Integer> cache = new OffHeapFixedSizeCache<>(2L * SLAB);
+    byte[][] last = new byte[500][];
+    Random random = new Random(42);
+    for (int i = 0; i < 50_000; i++) {
+      int key = random.nextInt(last.length);
+      if (random.nextInt(5) == 0) {
+        cache.remove(key);
+        last[key] = null;
+      } else {
+        byte[] value = new byte[random.nextInt(10) == 0 ? random.nextInt(SLAB / 4) : random.nextInt(2000)];
+        random.nextBytes(value);
+        cache.add(key, ByteBuffer.wrap(value));
+        last[key] = value;
+      }
+    }
+
+    int held = 0;
+    long bytes = 0;
+    for (int key = 0; key < last.length; key++) {
+      byte[] value = cache.get(key);
+      if (last[key] == null) {
+        assertNull(value);
+      } else if (value != null) {
+        assertArrayEquals(last[key], value);
+        held++;
+        bytes += value.length;
+      }
+    }
+    assertEquals(held, cache.size());
+    assertEquals(bytes, cache.getValueBytes());
+  }
+}
@@ -0,0 +1,164 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+  @Test
+  public void loadsAKeyOnceHoweverManyMissIt() throws Exception {
+    ConcurrentFixedSizeCache<Integer, String> cache = new ConcurrentFixedSizeCache<>(100);
+    CompletableFuture<String> request = new CompletableFuture<>();
+    AtomicInteger loads = new AtomicInteger();
+    ExecutorService threads = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    List<CompletableFuture<CompletableFuture<String>>> results = new ArrayList<>();
+    for (int i = 0; i < 32; i++) {
+      results.add(CompletableFuture.supplyAsync(() -> {
+        await(start);
+        return cache.getAsync(1, key -> {
+          loads.incrementAndGet();
+          return request;
+        });
+      }, threads));
+    }
+    start.countDown();
+    List<CompletableFuture<String>> values = new ArrayList<>();
+    for (CompletableFuture<CompletableFuture<String>> result : results) {
+      values.add(result.get(5, TimeUnit.SECONDS));
+    }
+
+    request.complete("loaded");
+    for (CompletableFuture<String> value : values) {
+      assertEquals("loaded", value.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, loads.get());
+    assertEquals("loaded", cache.get(1));
+    threads.shutdown();
+  }
+
+  @Test
+  public void forgetsALoaderThatThrows() {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCache<>(10);
+    try {
+      cache.get(1, key -> {
+        throw new IllegalStateException("boom");
+      });
+      fail("The load should have failed");
+    } catch (IllegalStateException e) {
+      assertEquals("boom", e.getMessage());
+    }
+
+    assertEquals("loaded", cache.get(1, key -> "loaded"));
+    assertEquals("loaded", cache.get(1));
+  }
+
+  @Test
+  public void forgetsALoadThatFails() throws Exception {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCache<>(10);
+    CompletableFuture<String> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException("boom"));
+    try {
+      cache.getAsync(1, key -> failed).get(5, TimeUnit.SECONDS);
+      fail("The load should have failed");
+    } catch (ExecutionException e) {
+      assertEquals("boom", e.getCause().getMessage());
+    }
+
+    assertEquals("loaded", cache.getAsync(1, key -> CompletableFuture.completedFuture("loaded"))
+            .get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void forgetsALoadWhoseValueCanNotBeAdded() throws Exception {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCacheBuilder<Integer, String>()
+            .setMaximumWeight(100, (key, value) -> {
+              if (value.equals("bad")) {
+                throw new IllegalStateException("weigh");
+              }
+              return 1;
+            })
+            .build();
+    try {
+      cache.getAsync(1, key -> CompletableFuture.completedFuture("bad")).get(5, TimeUnit.SECONDS);
+      fail("The load should have failed");
+    } catch (ExecutionException e) {
+      assertEquals("weigh", e.getCause().getMessage());
+    }
+
+    // The key is not left claimed by the failed load.
+    assertEquals("good", cache.getAsync(1, key -> CompletableFuture.completedFuture("good"))
+            .get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void checksTheCacheAgainAfterClaimingALoad() throws Exception {
+    SingleFlight<Integer, String> flights = new SingleFlight<>(null);
+    CacheNode<Integer, String> added = new CacheNode<>(1, "added");
+    AtomicInteger loads = new AtomicInteger();
+
+    // The lookup misses, but another load adds the value before this one claims the key.
+    CompletableFuture<String> value = flights.get(1, key -> {
+      loads.incrementAndGet();
+      return CompletableFuture.completedFuture("loaded");
+    }, key -> null, key -> added, (key, loaded) -> fail("Nothing should be added"));
+
+    assertEquals("added", value.get(5, TimeUnit.SECONDS));
+    assertEquals(0, loads.get());
+  }
+
+  @Test
+  public void addsNothingWhenALoadFindsNothing() {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCache<>(10);
+
+    assertNull(cache.get(1, key -> null));
+    assertFalse(cache.contains(1));
+  }
+
+  @Test
+  public void addsValuesLoadedOnAnotherThread() throws Exception {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCache<>(100);
+    ExecutorService requests = Executors.newSingleThreadExecutor();
+    List<CompletableFuture<String>> values = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      int key = i;
+      values.add(cache.getAsync(key, k -> CompletableFuture.supplyAsync(() -> "v" + k, requests)));
+      // Keep using the cache on this thread while the loads finish on the other.
+      cache.add(1_000 + key, "other");
+      cache.remove(1_000 + key);
+    }
+    for (CompletableFuture<String> value : values) {
+      value.get(5, TimeUnit.SECONDS);
+    }
+
+    assertEquals(100, cache.size());
+    for (int i = 0; i < 100; i++) {
+      assertTrue(cache.contains(i));
+      assertEquals("v" + i, cache.get(i));
+    }
+    requests.shutdown();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
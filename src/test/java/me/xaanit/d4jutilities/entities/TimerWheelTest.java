@@ -0,0 +1,126 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TimerWheelTest {
+  // One bucket spans 2^26ns, and the ring has 512 of them.
+  private static final long TICK = 1L << 26;
+  private static final long TURN = 512 * TICK;
+
+  @Test
+  public void expiresOnlyNodesThatAreDue() throws Exception {
+    TimerWheel<String, String> wheel = new TimerWheel<>();
+    CacheNode<String, String> due = scheduled(wheel, "due", Expiration.now() + 1);
+    CacheNode<String, String> later = scheduled(wheel, "later", Expiration.now() + TimeUnit.MINUTES.toNanos(5));
+
+    List<CacheNode<String, String>> expired = expireAfter(wheel, 3 * TICK);
+
+    assertEquals(1, expired.size());
+    assertEquals(due, expired.get(0));
+    assertEquals(-1, due.bucket);
+    assertTrue(later.bucket >= 0);
+  }
+
+  @Test
+  public void putsBackNodesDueATurnLater() throws Exception {
+    TimerWheel<String, String> wheel = new TimerWheel<>();
+    long now = Expiration.now();
+    CacheNode<String, String> due = scheduled(wheel, "due", now + TICK);
+    // Hashed into the same bucket as the node above, but only due once the ring has gone round.
+    CacheNode<String, String> nextTurn = scheduled(wheel, "nextTurn", now + TICK + TURN);
+    assertEquals(due.bucket, nextTurn.bucket);
+
+    List<CacheNode<String, String>> expired = expireAfter(wheel, 3 * TICK);
+
+    assertEquals(1, expired.size());
+    assertEquals(due, expired.get(0));
+    assertTrue(nextTurn.bucket >= 0);
+  }
+
+  @Test
+  public void putsBackNodesWhoseDeadlineWasPushedBack() throws Exception {
+    TimerWheel<String, String> wheel = new TimerWheel<>();
+    CacheNode<String, String> read = scheduled(wheel, "read", Expiration.now() + 1);
+    int bucket = read.bucket;
+    // A read pushes the deadline back without touching the wheel.
+    read.expiresAt = Expiration.now() + TimeUnit.MINUTES.toNanos(5);
+
+    List<CacheNode<String, String>> expired = expireAfter(wheel, 3 * TICK);
+
+    assertTrue(expired.isEmpty());
+    assertTrue(read.bucket >= 0);
+    assertTrue(read.bucket != bucket);
+  }
+
+  @Test
+  public void ignoresNodesThatNeverExpire() {
+    TimerWheel<String, String> wheel = new TimerWheel<>();
+    CacheNode<String, String> node = scheduled(wheel, "never", Expiration.NEVER);
+
+    assertEquals(-1, node.bucket);
+  }
+
+  @Test
+  public void unschedulesNodesAnywhereInABucket() throws Exception {
+    TimerWheel<String, String> wheel = new TimerWheel<>();
+    long at = Expiration.now() + 1;
+    CacheNode<String, String> first = scheduled(wheel, "first", at);
+    CacheNode<String, String> middle = scheduled(wheel, "middle", at);
+    CacheNode<String, String> last = scheduled(wheel, "last", at);
+    wheel.unschedule(middle);
+
+    assertEquals(-1, middle.bucket);
+    assertNull(middle.wheelNext);
+    assertNull(middle.wheelPrev);
+    List<CacheNode<String, String>> expired = expireAfter(wheel, 3 * TICK);
+    assertEquals(2, expired.size());
+    assertTrue(expired.contains(first));
+    assertTrue(expired.contains(last));
+    assertFalse(expired.contains(middle));
+  }
+
+  @Test
+  public void expiresEntriesOfACacheAcrossManyBuckets() throws Exception {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCacheBuilder<Integer, String>()
+            .setSize(1_000)
+            .setRecordStats(true)
+            .build();
+    for (int i = 0; i < 10; i++) {
+      cache.add(i, "short", 1 + i * 20, TimeUnit.MILLISECONDS);
+    }
+    cache.add(100, "long", 10, TimeUnit.MINUTES);
+    cache.add(101, "forever");
+
+    Thread.sleep(200 + 3 * TimeUnit.NANOSECONDS.toMillis(TICK));
+    cache.expireEntries();
+
+    assertEquals(2, cache.size());
+    assertEquals(10, cache.getStats().getExpirationCount());
+    assertEquals("long", cache.get(100));
+    assertEquals("forever", cache.get(101));
+  }
+
+  private static CacheNode<String, String> scheduled(TimerWheel<String, String> wheel, String key, long at) {
+    CacheNode<String, String> node = new CacheNode<>(key, key);
+    node.expiresAt = at;
+    wheel.schedule(node);
+    return node;
+  }
+
+  private static List<CacheNode<String, String>> expireAfter(TimerWheel<String, String> wheel, long nanos)
+          throws InterruptedException {
+    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(nanos) + 1);
+    List<CacheNode<String, String>> expired = new ArrayList<>();
+    wheel.expire(expired::add);
+    return expired;
+  }
+}
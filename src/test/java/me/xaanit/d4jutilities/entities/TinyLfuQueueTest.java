@@ -0,0 +1,117 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TinyLfuQueueTest {
+
+  @Test
+  public void keepsFrequentEntriesThroughAScan() {
+    FixedSizeCache<Integer, Integer> tinyLfu = new FixedSizeCache<>(100, EvictionPolicy.TINY_LFU);
+    FixedSizeCache<Integer, Integer> lru = new FixedSizeCache<>(100, EvictionPolicy.LRU);
+    for (FixedSizeCache<Integer, Integer> cache : Arrays.asList(tinyLfu, lru)) {
+      for (int key = 0; key < 50; key++) {
+        cache.add(key, key);
+      }
+      for (int round = 0; round < 5; round++) {
+        for (int key = 0; key < 50; key++) {
+          cache.get(key);
+        }
+      }
+      // Keys that are each used once, far more of them than the cache holds, while the others keep being
+      // used, just not often enough for recency alone to keep them.
+      for (int key = 1_000; key < 3_000; key++) {
+        use(cache, key);
+        if (key % 4 == 0) {
+          use(cache, key / 4 % 50);
+        }
+      }
+    }
+
+    int keptByLru = 0;
+    for (int key = 0; key < 50; key++) {
+      assertTrue(tinyLfu.contains(key));
+      if (lru.contains(key)) {
+        keptByLru++;
+      }
+    }
+    assertTrue("LRU kept " + keptByLru, keptByLru < 25);
+  }
+
+  private static void use(FixedSizeCache<Integer, Integer> cache, int key) {
+    if (cache.get(key) == null) {
+      cache.add(key, key);
+    }
+  }
+
+  @Test
+  public void admitsNewEntriesThatBecomeFrequent() {
+    FixedSizeCache<Integer, Integer> cache = new FixedSizeCache<>(100, EvictionPolicy.TINY_LFU);
+    for (int key = 0; key < 100; key++) {
+      cache.add(key, key);
+      cache.get(key);
+    }
+    // A new key that keeps missing earns its way in over the entries used only twice.
+    for (int i = 0; i < 5; i++) {
+      cache.get(500);
+      cache.add(500, 500);
+    }
+
+    assertTrue(cache.contains(500));
+    assertEquals(100, cache.size());
+  }
+
+  @Test
+  public void beatsRecencyOnASkewedWorkloadWithScans() {
+    double fifo = hitRate(EvictionPolicy.FIFO);
+    double lru = hitRate(EvictionPolicy.LRU);
+    double tinyLfu = hitRate(EvictionPolicy.TINY_LFU);
+
+    assertTrue("LRU " + lru + " vs FIFO " + fifo, lru > fifo);
+    assertTrue("TinyLFU " + tinyLfu + " vs LRU " + lru, tinyLfu > lru + 0.05);
+  }
+
+  /**
+   * Replays a Zipf(0.9) distribution over 100,000 keys, interrupted every 50,000 reads by 5,000 keys that
+   * are each read once, against a cache of 1,000 entries that adds every key it misses.
+   */
+  private static double hitRate(EvictionPolicy policy) {
+    FixedSizeCache<Integer, Integer> cache = new FixedSizeCache<>(1_000, policy);
+    double[] cdf = zipf(100_000, 0.9);
+    Random random = new Random(7);
+    int reads = 300_000;
+    int hits = 0;
+    for (int i = 0; i < reads; i++) {
+      int key = i % 50_000 < 5_000 ? 1_000_000 + i : sample(cdf, random);
+      if (cache.get(key) != null) {
+        hits++;
+      } else {
+        cache.add(key, key);
+      }
+    }
+    return hits / (double) reads;
+  }
+
+  private static double[] zipf(int keys, double skew) {
+    double[] cdf = new double[keys];
+    double sum = 0;
+    for (int i = 0; i < keys; i++) {
+      sum += 1 / Math.pow(i + 1, skew);
+      cdf[i] = sum;
+    }
+    for (int i = 0; i < keys; i++) {
+      cdf[i] /= sum;
+    }
+    return cdf;
+  }
+
+  private static int sample(double[] cdf, Random random) {
+    int index = Arrays.binarySearch(cdf, random.nextDouble());
+    return index < 0 ? -index - 1 : index;
+  }
+}
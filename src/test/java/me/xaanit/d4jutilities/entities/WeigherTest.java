@@ -0,0 +1,164 @@
+package me.xaanit.d4jutilities.entities;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WeigherTest {
+
+  @Test
+  public void neverHoldsMoreThanItsMaximumWeight() {
+    for (EvictionPolicy policy : EvictionPolicy.values()) {
+      FixedSizeCache<Integer, String> cache = weighed(policy, 1_000);
+      Random random = new Random(3);
+      for (int i = 0; i < 20_000; i++) {
+        int key = random.nextInt(500);
+        if (random.nextBoolean()) {
+          cache.add(key, value(random.nextInt(40)));
+        } else {
+          cache.get(key);
+        }
+        assertTrue(cache.getStats().getWeight() <= 1_000);
+      }
+
+      assertEquals(policy.toString(), totalLength(cache), cache.getStats().getWeight());
+    }
+  }
+
+  @Test
+  public void evictsAsManyEntriesAsItTakes() {
+    FixedSizeCache<Integer, String> cache = weighed(EvictionPolicy.FIFO, 10);
+    cache.add(1, value(3));
+    cache.add(2, value(3));
+    cache.add(3, value(3));
+    cache.add(4, value(8));
+
+    assertFalse(cache.contains(1));
+    assertFalse(cache.contains(2));
+    assertFalse(cache.contains(3));
+    assertTrue(cache.contains(4));
+    assertEquals(8, cache.getStats().getWeight());
+  }
+
+  @Test
+  public void neverKeepsAnEntryHeavierThanItsMaximumWeight() {
+    FixedSizeCache<Integer, String> cache = weighed(EvictionPolicy.FIFO, 10);
+    cache.add(1, value(3));
+    cache.add(2, value(3));
+    cache.add(3, value(11));
+
+    assertFalse(cache.contains(3));
+    assertEquals(value(3), cache.get(1));
+    assertEquals(value(3), cache.get(2));
+    assertEquals(6, cache.getStats().getWeight());
+    assertEquals(1, cache.getStats().getEvictionCount());
+
+    // Its key is not left paired with the value it had before.
+    cache.add(1, value(11));
+    assertNull(cache.get(1));
+    assertEquals(value(3), cache.get(2));
+    assertEquals(3, cache.getStats().getWeight());
+  }
+
+  @Test
+  public void reweighsEntriesWhenTheirValueIsReplaced() {
+    FixedSizeCache<Integer, String> cache = weighed(EvictionPolicy.FIFO, 10);
+    cache.add(1, value(4));
+    cache.add(2, value(4));
+
+    cache.add(1, value(6));
+    assertEquals(10, cache.getStats().getWeight());
+    assertEquals(2, cache.size());
+
+    // Growing past the maximum evicts the oldest entry, which is not the one that grew.
+    cache.add(2, value(7));
+    assertFalse(cache.contains(1));
+    assertEquals(value(7), cache.get(2));
+    assertEquals(7, cache.getStats().getWeight());
+
+    cache.add(2, value(1));
+    assertEquals(1, cache.getStats().getWeight());
+  }
+
+  @Test
+  public void keepsEntriesUpToTheWholeMaximumWeightAcrossStripes() {
+    ConcurrentFixedSizeCache<Integer, String> cache = new FixedSizeCacheBuilder<Integer, String>()
+            .setMaximumWeight(1_000, (key, value) -> value.length())
+            .setConcurrencyLevel(16)
+            .buildConcurrent();
+    for (int i = 0; i < 50; i++) {
+      cache.add(i, value(10));
+    }
+
+    // Far heavier than a sixteenth of the maximum weight, so it evicts from the other stripes to fit.
+    cache.add(100, value(900));
+    assertEquals(value(900), cache.get(100));
+    assertTrue(cache.getStats().getWeight() <= 1_000);
+    assertEquals(totalLength(cache), cache.getStats().getWeight());
+
+    cache.add(101, value(1_000));
+    assertEquals(value(1_000), cache.get(101));
+    assertEquals(1, cache.size());
+    assertEquals(1_000, cache.getStats().getWeight());
+  }
+
+  @Test
+  public void boundsAConcurrentCacheWithASingleStripe() {
+    ConcurrentFixedSizeCache<Integer, String> cache = new FixedSizeCacheBuilder<Integer, String>()
+            .setMaximumWeight(10, (key, value) -> value.length())
+            .setConcurrencyLevel(1)
+            .setRecordStats(true)
+            .buildConcurrent();
+    cache.add(1, value(3));
+    cache.add(2, value(3));
+    cache.add(3, value(11));
+
+    assertFalse(cache.contains(3));
+    assertTrue(cache.contains(1));
+    assertTrue(cache.contains(2));
+    assertEquals(6, cache.getStats().getWeight());
+
+    cache.add(2, value(8));
+    assertFalse(cache.contains(1));
+    assertEquals(8, cache.getStats().getWeight());
+
+    cache.add(2, value(11));
+    assertNull(cache.get(2));
+    assertEquals(0, cache.getStats().getWeight());
+    assertEquals(0, cache.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNegativeWeights() {
+    FixedSizeCache<Integer, String> cache = new FixedSizeCacheBuilder<Integer, String>()
+            .setMaximumWeight(10, (key, value) -> -1)
+            .build();
+    cache.add(1, "1");
+  }
+
+  private static FixedSizeCache<Integer, String> weighed(EvictionPolicy policy, long maxWeight) {
+    return new FixedSizeCacheBuilder<Integer, String>()
+            .setMaximumWeight(maxWeight, (key, value) -> value.length())
+            .setPolicy(policy)
+            .setRecordStats(true)
+            .build();
+  }
+
+  private static String value(int length) {
+    return new String(new char[length]).replace('\0', 'x');
+  }
+
+  private static long totalLength(Iterable<Map.Entry<Integer, String>> cache) {
+    long length = 0;
+    for (Map.Entry<Integer, String> entry : cache) {
+      length += entry.getValue().length();
+    }
+    return length;
+  }
+}
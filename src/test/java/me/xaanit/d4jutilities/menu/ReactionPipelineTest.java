@@ -0,0 +1,79 @@
+package me.xaanit.d4jutilities.menu;
+
+import org.junit.Test;
+import sx.blah.discord.handle.impl.obj.ReactionEmoji;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.handle.obj.IReaction;
+import sx.blah.discord.handle.obj.IUser;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReactionPipelineTest {
+  private static final ReactionEmoji A = ReactionEmoji.of("\uD83C\uDDE6");
+  private static final ReactionEmoji B = ReactionEmoji.of("\uD83C\uDDE7");
+  private static final ReactionEmoji C = ReactionEmoji.of("\uD83C\uDDE8");
+  private static final ReactionEmoji D = ReactionEmoji.of("\uD83C\uDDE9");
+
+  private final IUser self = proxy(IUser.class, Collections.emptyMap());
+  // A DM, where reactions can never be cleared all at once.
+  private final IMessage message = proxy(IMessage.class, Collections.singletonMap("getChannel",
+          proxy(IChannel.class, Collections.singletonMap("isPrivate", true))));
+
+  @Test
+  public void keepsReactionsAChainedMenuUsesAgain() {
+    ReactionPipeline pipeline = ReactionPipeline.reconcile(message, reacted(A, B), Arrays.asList(B, C), self);
+
+    assertEquals(Collections.singletonList(A), pipeline.getStale());
+  }
+
+  @Test
+  public void removesOnlyReactionsAfterTheKeptRun() {
+    ReactionPipeline pipeline = ReactionPipeline.reconcile(message, reacted(A, B, C), Arrays.asList(A, D), self);
+
+    assertEquals(Arrays.asList(B, C), pipeline.getStale());
+  }
+
+  @Test
+  public void matchesCustomEmojisByTheirId() {
+    ReactionEmoji custom = ReactionEmoji.of("old_name", 42L);
+    ReactionEmoji renamed = ReactionEmoji.of("new_name", 42L);
+
+    ReactionPipeline pipeline = ReactionPipeline.reconcile(message, reacted(A, custom), Arrays.asList(renamed, C),
+            self);
+
+    assertEquals(Collections.singletonList(A), pipeline.getStale());
+  }
+
+  /**
+   * Creates the reactions of a message, each added only by the bot.
+   */
+  private static List<IReaction> reacted(ReactionEmoji... emojis) {
+    List<IReaction> reactions = new ArrayList<>();
+    for (ReactionEmoji emoji : emojis) {
+      Map<String, Object> answers = new HashMap<>();
+      answers.put("getEmoji", emoji);
+      answers.put("getUserReacted", true);
+      answers.put("getCount", 1);
+      reactions.add(proxy(IReaction.class, answers));
+    }
+    return reactions;
+  }
+
+  /**
+   * Creates an instance of an interface that answers the named methods with fixed values, and every other
+   * method with {@code null}.
+   */
+  private static <T> T proxy(Class<T> type, Map<String, ?> answers) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+            (proxy, method, args) -> answers.get(method.getName())));
+  }
+}